@@ -0,0 +1,114 @@
+package com.example.dispatcher.collections;
+
+/**
+ * Keeps the {@code k} smallest (distance, slot) pairs seen so far.
+ * A max-heap on distance over two primitive arrays: the root is the
+ * current k-th best, so a candidate is one comparison away from
+ * rejection and never allocates.
+ */
+public class BoundedMaxHeap {
+
+    private final int k;
+    private final double[] distances;
+    private final int[] slots;
+    private int size;
+
+    public BoundedMaxHeap(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be > 0");
+        }
+        this.k = k;
+        this.distances = new double[k];
+        this.slots = new int[k];
+    }
+
+    /** Adds the pair if it is among the k best; returns whether it was kept. */
+    public boolean offer(int slot, double distance) {
+        if (size < k) {
+            distances[size] = distance;
+            slots[size] = slot;
+            siftUp(size++);
+            return true;
+        }
+        if (distance >= distances[0]) {
+            return false;
+        }
+        distances[0] = distance;
+        slots[0] = slot;
+        siftDown(0);
+        return true;
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Worst kept distance once full, otherwise +infinity. */
+    public double bound() {
+        return size < k ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Empties the heap into {@code outSlots} / {@code outDistances}
+     * nearest first and returns the count. Either array may be null.
+     */
+    public int drainAscending(int[] outSlots, double[] outDistances) {
+        int n = size;
+        for (int i = n - 1; i >= 0; i--) {
+            if (outSlots != null) {
+                outSlots[i] = slots[0];
+            }
+            if (outDistances != null) {
+                outDistances[i] = distances[0];
+            }
+            size--;
+            distances[0] = distances[size];
+            slots[0] = slots[size];
+            siftDown(0);
+        }
+        return n;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (distances[parent] >= distances[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left + 1 < size && distances[left + 1] > distances[left] ? left + 1 : left;
+            if (distances[i] >= distances[largest]) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double d = distances[a];
+        distances[a] = distances[b];
+        distances[b] = d;
+        int s = slots[a];
+        slots[a] = slots[b];
+        slots[b] = s;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.dispatcher.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Thread-safe map with primitive {@code long} keys: a fixed set of
+ * {@link LongObjectMap} stripes, each behind its own read/write lock.
+ * Keys spread over stripes by the high bits of the same mix the stripes
+ * probe with, so sequential ids land on different stripes and readers
+ * only contend with writers of their own stripe. No boxing and no
+ * per-entry node: a key costs its table slot.
+ * <p>
+ * Iteration ({@link #forEach}, {@link #values}) is weakly consistent, one
+ * stripe at a time. {@code null} values are not allowed.
+ */
+public class ConcurrentLongObjectMap<V> {
+
+    private static final int STRIPE_BITS = 6;
+
+    private final LongObjectMap<V>[] stripes;
+    private final ReentrantReadWriteLock[] locks;
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongObjectMap() {
+        int count = 1 << STRIPE_BITS;
+        stripes = new LongObjectMap[count];
+        locks = new ReentrantReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new LongObjectMap<>();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public V get(long key) {
+        int s = stripe(key);
+        locks[s].readLock().lock();
+        try {
+            return stripes[s].get(key);
+        } finally {
+            locks[s].readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            return stripes[s].put(key, value);
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    /** Maps the key only if unmapped; returns the value already there, or null. */
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            V existing = stripes[s].get(key);
+            if (existing == null) {
+                stripes[s].put(key, value);
+            }
+            return existing;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    public V remove(long key) {
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            return stripes[s].remove(key);
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    /** Removes the entry only if the key still maps to this very value. */
+    public boolean remove(long key, V value) {
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            if (value == null || stripes[s].get(key) != value) {
+                return false;
+            }
+            stripes[s].remove(key);
+            return true;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                size += stripes[s].size();
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visits every entry, holding one stripe's read lock at a time: the
+     * action must not write to this map.
+     */
+    public void forEach(LongObjectMap.LongObjectConsumer<? super V> action) {
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                stripes[s].forEach(action);
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+    }
+
+    /** Snapshot of the values, safe to iterate while the map changes. */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+
+    private static int stripe(long key) {
+        return (int) (LongObjectMap.mix(key) >>> (Long.SIZE - STRIPE_BITS));
+    }
+}
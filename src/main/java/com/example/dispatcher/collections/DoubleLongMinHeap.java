@@ -0,0 +1,88 @@
+package com.example.dispatcher.collections;
+
+import java.util.Arrays;
+
+/**
+ * Growable binary min-heap of {@code long} payloads ordered by a
+ * {@code double} priority, on two primitive arrays. Used as the frontier
+ * of best-first searches (priority = lower-bound distance, payload =
+ * encoded cell).
+ */
+public class DoubleLongMinHeap {
+
+    private double[] priorities;
+    private long[] payloads;
+    private int size;
+
+    public DoubleLongMinHeap() {
+        this(64);
+    }
+
+    public DoubleLongMinHeap(int initialCapacity) {
+        priorities = new double[Math.max(4, initialCapacity)];
+        payloads = new long[priorities.length];
+    }
+
+    public void push(double priority, long payload) {
+        if (size == priorities.length) {
+            priorities = Arrays.copyOf(priorities, size << 1);
+            payloads = Arrays.copyOf(payloads, size << 1);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            priorities[i] = priorities[parent];
+            payloads[i] = payloads[parent];
+            i = parent;
+        }
+        priorities[i] = priority;
+        payloads[i] = payload;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Priority of the head; the heap must not be empty. */
+    public double peekPriority() {
+        return priorities[0];
+    }
+
+    /** Removes the head and returns its payload; the heap must not be empty. */
+    public long poll() {
+        long head = payloads[0];
+        size--;
+        double priority = priorities[size];
+        long payload = payloads[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                child++;
+            }
+            if (priority <= priorities[child]) {
+                break;
+            }
+            priorities[i] = priorities[child];
+            payloads[i] = payloads[child];
+            i = child;
+        }
+        priorities[i] = priority;
+        payloads[i] = payload;
+        return head;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
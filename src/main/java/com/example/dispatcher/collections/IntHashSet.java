@@ -0,0 +1,141 @@
+package com.example.dispatcher.collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing set of non-negative {@code int}s (driver slots).
+ * Linear probing with {@code -1} as the empty marker and backward-shift
+ * deletion. Starts tiny because most geo cells hold a handful of drivers.
+ * <p>
+ * Not thread-safe: callers guard it with their own lock.
+ */
+public class IntHashSet {
+
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] table;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public IntHashSet() {
+        allocate(4);
+    }
+
+    public boolean add(int value) {
+        checkValue(value);
+        int i = index(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        if (++size >= resizeAt) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int i = index(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                shiftBack(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean contains(int value) {
+        int i = index(value);
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int v : table) {
+            if (v != EMPTY) {
+                action.accept(v);
+            }
+        }
+    }
+
+    /** Copies the members into {@code out} (must hold {@link #size()}) and returns the count. */
+    public int toArray(int[] out) {
+        int n = 0;
+        for (int v : table) {
+            if (v != EMPTY) {
+                out[n++] = v;
+            }
+        }
+        return n;
+    }
+
+    // ---------------- INTERNALS ----------------
+
+    private int index(int value) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must be >= 0");
+        }
+    }
+
+    private void shiftBack(int i) {
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (table[j] != EMPTY) {
+            int home = index(table[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                table[gap] = table[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        table[gap] = EMPTY;
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private void rehash(int capacity) {
+        int[] old = table;
+        allocate(capacity);
+        for (int v : old) {
+            if (v != EMPTY) {
+                int j = index(v);
+                while (table[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                table[j] = v;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.dispatcher.collections;
+
+/**
+ * Open-addressing {@code long → int} counter map.
+ * Absent keys read as 0 and a key whose count drops to 0 is removed,
+ * so a zero value doubles as the empty-slot marker. Linear probing with
+ * backward-shift deletion, like {@link LongObjectMap}.
+ * <p>
+ * Not thread-safe: callers guard it with their own lock.
+ */
+public class LongIntMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int get(long key) {
+        int i = index(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /** Adds {@code delta} to the key's count and returns the new count. */
+    public int addTo(long key, int delta) {
+        int i = index(key);
+        while (values[i] != 0) {
+            if (keys[i] == key) {
+                int updated = values[i] + delta;
+                if (updated == 0) {
+                    shiftBack(i);
+                    size--;
+                } else {
+                    values[i] = updated;
+                }
+                return updated;
+            }
+            i = (i + 1) & mask;
+        }
+        if (delta == 0) {
+            return 0;
+        }
+        keys[i] = key;
+        values[i] = delta;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Visits every non-zero entry; the map must not be modified while iterating. */
+    public void forEach(LongIntConsumer action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+
+    // ---------------- INTERNALS ----------------
+
+    private int index(long key) {
+        return (int) (LongObjectMap.mix(key) & mask);
+    }
+
+    private void shiftBack(int i) {
+        int gap = i;
+        int j = (i + 1) & mask;
+        while (values[j] != 0) {
+            int home = index(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+            j = (j + 1) & mask;
+        }
+        values[gap] = 0;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                int j = index(oldKeys[i]);
+                while (values[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
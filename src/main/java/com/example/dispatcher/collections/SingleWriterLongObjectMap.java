@@ -0,0 +1,156 @@
+package com.example.dispatcher.collections;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open-addressing {@code long → V} map with one writer and any number of
+ * lock-free readers. No boxing: a lookup is a probe over a {@code long[]}.
+ * <p>
+ * A value is published with release semantics after its key, and readers
+ * acquire the value before trusting the key, so a reader sees a complete
+ * entry or none. Slots are never re-keyed: a removed entry leaves a marker
+ * behind, and growing (or purging markers) builds a fresh table that is
+ * swapped in through a volatile reference, copy-on-write. Readers still
+ * probing the old table see it as of the swap.
+ * <p>
+ * Writes must come from one thread at a time (callers hold their own
+ * lock); {@code null} values are not allowed.
+ */
+public class SingleWriterLongObjectMap<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final Object REMOVED = new Object();
+
+    private static final class Table {
+
+        final long[] keys;
+        // null = never used, REMOVED = key kept, no value
+        final AtomicReferenceArray<Object> values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table;
+
+    // writer only
+    private int size;
+    private int used;
+    private int resizeAt;
+
+    public SingleWriterLongObjectMap() {
+        this(16);
+    }
+
+    public SingleWriterLongObjectMap(int expectedSize) {
+        table = allocate(expectedSize);
+    }
+
+    /** Lock-free; any thread. */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table t = table;
+        int i = index(key, t.mask);
+        while (true) {
+            Object value = t.values.getAcquire(i);
+            if (value == null) {
+                return null;
+            }
+            if (t.keys[i] == key) {
+                return value == REMOVED ? null : (V) value;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        Table t = table;
+        int i = index(key, t.mask);
+        while (true) {
+            Object current = t.values.getPlain(i);
+            if (current == null) {
+                t.keys[i] = key;
+                t.values.setRelease(i, value);
+                size++;
+                if (++used >= resizeAt) {
+                    rehash();
+                }
+                return null;
+            }
+            if (t.keys[i] == key) {
+                t.values.setRelease(i, value);
+                if (current == REMOVED) {
+                    size++;
+                    return null;
+                }
+                return (V) current;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        Table t = table;
+        int i = index(key, t.mask);
+        while (true) {
+            Object current = t.values.getPlain(i);
+            if (current == null) {
+                return null;
+            }
+            if (t.keys[i] == key) {
+                if (current == REMOVED) {
+                    return null;
+                }
+                t.values.setRelease(i, REMOVED);
+                size--;
+                return (V) current;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    /** Live entries; writer side. */
+    public int size() {
+        return size;
+    }
+
+    // builds a table with room for the live entries only, then swaps it in
+    private void rehash() {
+        Table old = table;
+        Table next = allocate(Math.max(size, 1) * 2);
+        for (int i = 0; i <= old.mask; i++) {
+            Object value = old.values.getPlain(i);
+            if (value == null || value == REMOVED) {
+                continue;
+            }
+            int j = index(old.keys[i], next.mask);
+            while (next.values.getPlain(j) != null) {
+                j = (j + 1) & next.mask;
+            }
+            next.keys[j] = old.keys[i];
+            next.values.setPlain(j, value);
+        }
+        used = size;
+        // the volatile write publishes the filled table
+        table = next;
+    }
+
+    private Table allocate(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        return new Table(capacity);
+    }
+
+    private static int index(long key, int mask) {
+        return (int) (LongObjectMap.mix(key) & mask);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dispatcher.controller;
+
+import com.example.dispatcher.model.AcceptTimeStats;
+import com.example.dispatcher.model.ApiResponse;
+import com.example.dispatcher.model.HourlyRideCount;
+import com.example.dispatcher.model.RideStatus;
+import com.example.dispatcher.service.TripAnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsController.class);
+
+    private final TripAnalyticsService service;
+
+    public AnalyticsController(TripAnalyticsService service) {
+        this.service = service;
+    }
+
+    // Finished rides per pickup cell per hour (ISO-8601 from / to, default: last day)
+    @GetMapping("/rides-per-cell-hour")
+    public ResponseEntity<ApiResponse<List<HourlyRideCount>>> ridesPerCellHour(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "COMPLETED") RideStatus status,
+            @RequestParam(defaultValue = "5") int precision) {
+        log.debug("Rides per cell/hour from={} to={} status={} precision={}", from, to, status, precision);
+        List<HourlyRideCount> counts = service.ridesPerCellHour(from, to, status, precision);
+
+        return ResponseEntity
+                .ok(new ApiResponse<>(true, "Ride counts fetched successfully", counts));
+    }
+
+    // Median / p90 time from request to accept per pickup cell
+    @GetMapping("/time-to-accept")
+    public ResponseEntity<ApiResponse<List<AcceptTimeStats>>> timeToAccept(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "5") int precision) {
+        log.debug("Time to accept from={} to={} precision={}", from, to, precision);
+        List<AcceptTimeStats> stats = service.acceptTimes(from, to, precision);
+
+        return ResponseEntity
+                .ok(new ApiResponse<>(true, "Accept times fetched successfully", stats));
+    }
+}
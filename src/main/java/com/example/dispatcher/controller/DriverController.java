@@ -1,18 +1,23 @@
 package com.example.dispatcher.controller;
 
 import com.example.dispatcher.model.ApiResponse;
+import com.example.dispatcher.model.CursorPage;
 import com.example.dispatcher.model.Driver;
 import com.example.dispatcher.model.DriverPingStatusResponse;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.LocationBatchResult;
+import com.example.dispatcher.model.LocationUpdate;
 import com.example.dispatcher.model.Ride;
 import com.example.dispatcher.service.DriverRideService;
 import com.example.dispatcher.service.DriverService;
+import com.example.dispatcher.service.LocationIngestService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.Collection;
 import java.util.List;
 
 @RestController
@@ -23,10 +28,17 @@ public class DriverController {
 
     private final DriverService service;
     private final DriverRideService driverRideService;
+    private final LocationIngestService locationIngestService;
+    private final NdjsonWriter ndjson;
 
-    public DriverController(DriverService service, DriverRideService driverRideService) {
+    public DriverController(DriverService service,
+                            DriverRideService driverRideService,
+                            LocationIngestService locationIngestService,
+                            NdjsonWriter ndjson) {
         this.service = service;
         this.driverRideService = driverRideService;
+        this.locationIngestService = locationIngestService;
+        this.ndjson = ndjson;
     }
 
     // ADD DRIVER
@@ -60,25 +72,84 @@ public class DriverController {
                 .ok(new ApiResponse<>(true, "Driver is now offline", null));
     }
 
-    // Get all drivers
+    // Get drivers, a page at a time, optionally of one status
     @GetMapping
-    public ResponseEntity<ApiResponse<Collection<Driver>>> getAllDrivers() {
-        log.debug("Fetching all drivers");
-        Collection<Driver> drivers = service.getAllDrivers();
+    public ResponseEntity<ApiResponse<CursorPage<Driver>>> getAllDrivers(
+            @RequestParam(required = false) DriverStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.debug("Fetching drivers status={} cursor={}", status, cursor);
+        CursorPage<Driver> drivers = service.getDrivers(status, cursor, limit);
 
         return ResponseEntity
                 .ok(new ApiResponse<>(true, "Drivers fetched successfully", drivers));
     }
 
-    // Get all rides for a driver
+    // Stream every driver (optionally of one status) as NDJSON, one driver per line
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDrivers(
+            @RequestParam(required = false) DriverStatus status) {
+        log.debug("Streaming drivers status={}", status);
+        StreamingResponseBody body = out -> service.forEachDriver(status, driver -> ndjson.write(out, driver));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Bulk location pings, coalesced and applied to the geo index in batches
+    @PostMapping("/locations")
+    public ResponseEntity<ApiResponse<LocationBatchResult>> updateLocations(
+            @RequestBody List<LocationUpdate> updates) {
+
+        log.debug("Received {} location updates", updates == null ? 0 : updates.size());
+        LocationBatchResult result = locationIngestService.submit(updates);
+
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse<>(true, "Locations accepted", result));
+    }
+
+    // Nearest drivers to a point
+    @GetMapping("/nearby")
+    public ResponseEntity<ApiResponse<List<Driver>>> nearby(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) DriverStatus status) {
+
+        log.debug("Fetching {} nearest drivers to {},{}", k, lat, lng);
+
+        List<Driver> drivers = service.findNearby(
+                lat, lng, k,
+                radius != null ? radius : Double.POSITIVE_INFINITY,
+                status);
+
+        return ResponseEntity.ok(
+                new ApiResponse<>(true, "Nearby drivers fetched successfully", drivers)
+        );
+    }
+
+    // Slot for the binary telemetry listener
+    @GetMapping("/{id}/slot")
+    public ResponseEntity<ApiResponse<Integer>> telemetrySlot(@PathVariable String id) {
+        return ResponseEntity.ok(
+                new ApiResponse<>(true, "Driver slot fetched successfully", service.telemetrySlot(id))
+        );
+    }
+
+    // Rides a driver was pinged for / assigned to, newest first
     @GetMapping("/{driverId}/rides")
-    public ResponseEntity<ApiResponse<List<DriverPingStatusResponse>>> getAllRidesForDriver(
-            @PathVariable String driverId) {
+    public ResponseEntity<ApiResponse<CursorPage<DriverPingStatusResponse>>> getRidesForDriver(
+            @PathVariable String driverId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
 
         log.debug("Fetching rides for driver {}", driverId);
 
-        List<DriverPingStatusResponse> rides =
-                driverRideService.getAllRidesForDriver(driverId);
+        CursorPage<DriverPingStatusResponse> rides =
+                driverRideService.getRidesForDriver(driverId, cursor, limit);
 
         return ResponseEntity.ok(
                 new ApiResponse<>(true, "Driver rides fetched successfully", rides)
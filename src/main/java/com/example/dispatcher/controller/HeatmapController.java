@@ -0,0 +1,38 @@
+package com.example.dispatcher.controller;
+
+import com.example.dispatcher.model.ApiResponse;
+import com.example.dispatcher.model.HeatmapCell;
+import com.example.dispatcher.service.HeatmapService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/heatmap")
+public class HeatmapController {
+
+    private static final Logger log = LoggerFactory.getLogger(HeatmapController.class);
+
+    private final HeatmapService service;
+
+    public HeatmapController(HeatmapService service) {
+        this.service = service;
+    }
+
+    // Supply / demand per populated geohash cell
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<HeatmapCell>>> heatmap(
+            @RequestParam(defaultValue = "5") int precision) {
+        log.debug("Fetching heatmap precision={}", precision);
+        List<HeatmapCell> cells = service.cells(precision);
+
+        return ResponseEntity
+                .ok(new ApiResponse<>(true, "Heatmap fetched successfully", cells));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.dispatcher.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes entities as newline-delimited JSON straight to a response stream,
+ * one line at a time, so a full listing never sits in memory as one body.
+ */
+@Component
+public class NdjsonWriter {
+
+    private final ObjectMapper mapper;
+
+    public NdjsonWriter(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public void write(OutputStream out, Object value) {
+        try {
+            out.write(mapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            // client went away mid-stream: stop walking the index
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,17 +1,19 @@
 package com.example.dispatcher.controller;
 
 import com.example.dispatcher.model.ApiResponse;
+import com.example.dispatcher.model.CursorPage;
 import com.example.dispatcher.model.DriverPingStatusResponse;
 import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
 import com.example.dispatcher.service.RideService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.Collection;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/rides")
@@ -20,9 +22,11 @@ public class RideController {
     private static final Logger log = LoggerFactory.getLogger(RideController.class);
 
     private final RideService service;
+    private final NdjsonWriter ndjson;
 
-    public RideController(RideService service) {
+    public RideController(RideService service, NdjsonWriter ndjson) {
         this.service = service;
+        this.ndjson = ndjson;
     }
 
     // Create Ride
@@ -89,16 +93,31 @@ public class RideController {
                 .ok(new ApiResponse<>(true, "Ride fetched", ride));
     }
 
-    // Get All Rides
+    // Get rides, a page at a time, optionally of one status
     @GetMapping
-    public ResponseEntity<ApiResponse<Collection<Ride>>> getAllRides() {
-        log.debug("Fetching all rides");
-        Collection<Ride> rides = service.getAllRides();
+    public ResponseEntity<ApiResponse<CursorPage<Ride>>> getAllRides(
+            @RequestParam(required = false) RideStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.debug("Fetching rides status={} cursor={}", status, cursor);
+        CursorPage<Ride> rides = service.getRides(status, cursor, limit);
 
         return ResponseEntity
                 .ok(new ApiResponse<>(true, "All rides fetched", rides));
     }
 
+    // Stream every live ride (optionally of one status) as NDJSON, one ride per line
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRides(
+            @RequestParam(required = false) RideStatus status) {
+        log.debug("Streaming rides status={}", status);
+        StreamingResponseBody body = out -> service.forEachRide(status, ride -> ndjson.write(out, ride));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     // Get Driver Ping Status
     @GetMapping("/{rideId}/drivers/{driverId}/ping-status")
     public ResponseEntity<ApiResponse<DriverPingStatusResponse>> getDriverPingStatus(
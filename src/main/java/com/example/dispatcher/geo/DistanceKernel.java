@@ -0,0 +1,106 @@
+package com.example.dispatcher.geo;
+
+/**
+ * Distances from one point to a batch of candidates.
+ * <p>
+ * A first pass over the batch drops candidates outside the bounding box of
+ * the search circle with nothing but comparisons; only survivors pay for
+ * haversine, whose pickup-side terms are computed once per batch. The box
+ * is exact on the sphere (max |Δλ| on a circle of radius d around φ is
+ * asin(sin(d/R) / cos φ)) and padded for rounding, so no candidate within
+ * the limit is ever dropped, and survivors get the same value
+ * {@link GeoHashUtil#distanceMeters} would return.
+ */
+public final class DistanceKernel {
+
+    private static final double PAD = 1e-9;
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * Writes the distance from ({@code lat}, {@code lng}) to candidate i,
+     * at ({@code lats[s]}, {@code lngs[s]}) with {@code s = slots[i]} (or
+     * {@code i} when {@code slots} is null), into {@code out[i]}; candidates
+     * the prefilter rules out beyond {@code limitMeters} get +infinity.
+     *
+     * @return how many candidates are within {@code limitMeters}
+     */
+    public static int distances(double lat, double lng,
+                                double[] lats, double[] lngs, int[] slots, int count,
+                                double limitMeters, double[] out) {
+        return distances(lat, lng, lats, lngs, slots, 0, count, limitMeters, out);
+    }
+
+    /**
+     * Same over candidates {@code from .. from + count - 1} of the arrays
+     * themselves (no slot indirection); candidate {@code from + i} goes to
+     * {@code out[i]}.
+     */
+    public static int distances(double lat, double lng,
+                                double[] lats, double[] lngs, int from, int count,
+                                double limitMeters, double[] out) {
+        return distances(lat, lng, lats, lngs, null, from, count, limitMeters, out);
+    }
+
+    private static int distances(double lat, double lng,
+                                 double[] lats, double[] lngs, int[] slots, int from, int count,
+                                 double limitMeters, double[] out) {
+
+        double latMin = -90;
+        double latMax = 90;
+        double maxDLng = 180;
+
+        if (limitMeters < Double.POSITIVE_INFINITY) {
+            double angle = limitMeters / GeoHashUtil.EARTH_RADIUS_M;
+            double dLat = Math.toDegrees(angle) + PAD;
+            latMin = lat - dLat;
+            latMax = lat + dLat;
+            double sinAngle = Math.sin(Math.min(angle, Math.PI / 2));
+            double cosLat = Math.cos(Math.toRadians(lat));
+            if (sinAngle < cosLat) {
+                maxDLng = Math.toDegrees(Math.asin(sinAngle / cosLat)) + PAD;
+            }
+        }
+
+        // pass 1: comparisons only, survivors marked with 0
+        int survivors = 0;
+        for (int i = 0; i < count; i++) {
+            int s = slots == null ? from + i : slots[i];
+            double la = lats[s];
+            double dl = Math.abs(lngs[s] - lng);
+            dl = dl > 180 ? 360 - dl : dl;
+            boolean inside = la >= latMin && la <= latMax && dl <= maxDLng;
+            out[i] = inside ? 0 : Double.POSITIVE_INFINITY;
+            survivors += inside ? 1 : 0;
+        }
+        if (survivors == 0) {
+            return 0;
+        }
+
+        // pass 2: haversine for survivors, pickup terms hoisted
+        double cosLat1 = Math.cos(Math.toRadians(lat));
+        int within = 0;
+        for (int i = 0; i < count; i++) {
+            if (out[i] != 0) {
+                continue;
+            }
+            int s = slots == null ? from + i : slots[i];
+            double lat2 = lats[s];
+            double dLat = Math.toRadians(lat2 - lat);
+            double dLon = Math.toRadians(lngs[s] - lng);
+
+            double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                    + cosLat1
+                    * Math.cos(Math.toRadians(lat2))
+                    * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+            double d = GeoHashUtil.EARTH_RADIUS_M * (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+            out[i] = d;
+            if (d <= limitMeters) {
+                within++;
+            }
+        }
+        return within;
+    }
+}
@@ -1,17 +1,291 @@
 package com.example.dispatcher.geo;
 
-import ch.hsr.geohash.GeoHash;
-
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * Geohash cells as primitive codes.
+ * <p>
+ * A cell code is the interleaved geohash bits right-aligned in a
+ * {@code long} (lng bit first, as in base32 geohash), 5 bits per
+ * character of precision. The parent of a cell is the code shifted right
+ * by 5 per level. Encoding and neighbour arithmetic work on the
+ * de-interleaved x (lng) / y (lat) integer coordinates, so neither
+ * allocates; x wraps at the antimeridian, y stops at the poles.
+ * <p>
+ * Methods without a precision argument work at the default precision 6.
+ */
 public class GeoHashUtil {
 
-    private static final int PRECISION = 6;
+    public static final int PRECISION = 6;
+
+    /** Finest precision a cell code can hold (60 bits). */
+    public static final int MAX_PRECISION = 12;
+
+    /** Bits in a cell code: 5 per base32 character, lng/lat interleaved. */
+    public static final int CELL_BITS = PRECISION * 5;
+
+    /** Marker for "not indexed yet"; real cell codes are always >= 0. */
+    public static final long NO_CELL = -1L;
+
+    public static final double EARTH_RADIUS_M = 6371000;
+
+    private static final char[] BASE32 =
+            "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private static final int[] BASE32_INDEX = new int[128];
+
+    static {
+        java.util.Arrays.fill(BASE32_INDEX, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            BASE32_INDEX[BASE32[i]] = i;
+        }
+    }
 
     public static String encode(double lat, double lng) {
-        return GeoHash.withCharacterPrecision(lat, lng, PRECISION)
-                .toBase32();
+        return toBase32(encodeCell(lat, lng));
+    }
+
+    /**
+     * Cell code of the point at the default precision.
+     */
+    public static long encodeCell(double lat, double lng) {
+        return encodeCell(lat, lng, PRECISION);
+    }
+
+    public static long encodeCell(double lat, double lng, int precision) {
+        if (!(lat >= -90 && lat <= 90) || !(lng >= -180 && lng <= 180)) {
+            throw new IllegalArgumentException("Invalid coordinates: " + lat + "," + lng);
+        }
+        int bits = bits(precision);
+        return cellOf(
+                quantize(lng, -180, 360, 1 << lngBits(bits)),
+                quantize(lat, -90, 180, 1 << latBits(bits)),
+                bits);
+    }
+
+    /** The enclosing cell {@code precision - parentPrecision} levels up. */
+    public static long parent(long cell, int precision, int parentPrecision) {
+        return cell >>> (5 * (precision - parentPrecision));
+    }
+
+    /** Base32 form of a cell code, only needed at the API boundary. */
+    public static String toBase32(long cell) {
+        return toBase32(cell, PRECISION);
+    }
+
+    public static String toBase32(long cell, int precision) {
+        bits(precision);
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32[(int) (cell & 31)];
+            cell >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /** Cell code of a base32 geohash; its precision is its length. */
+    public static long fromBase32(String geoHash) {
+        if (geoHash == null || geoHash.isEmpty() || geoHash.length() > MAX_PRECISION) {
+            throw new IllegalArgumentException("geoHash must have 1 to " + MAX_PRECISION + " characters");
+        }
+        long cell = 0;
+        for (int i = 0; i < geoHash.length(); i++) {
+            char c = geoHash.charAt(i);
+            int v = c < 128 ? BASE32_INDEX[c] : -1;
+            if (v < 0) {
+                throw new IllegalArgumentException("Invalid geohash character: " + c);
+            }
+            cell = (cell << 5) | v;
+        }
+        return cell;
+    }
+
+    // ---------------- NEIGHBOURS ----------------
+
+    /** Upper bound of cells in the disk of radius {@code ring}, for sizing buffers. */
+    public static int diskSize(int ring) {
+        int side = 2 * ring + 1;
+        return side * side;
+    }
+
+    /** Upper bound of cells in the ring (annulus) at distance {@code ring}. */
+    public static int ringSize(int ring) {
+        return ring == 0 ? 1 : 8 * ring;
+    }
+
+    public static int ring(long cell, int ring, long[] out) {
+        return ring(cell, PRECISION, ring, out);
+    }
+
+    /**
+     * Writes the cells exactly {@code ring} steps from {@code cell}
+     * (Chebyshev distance) into {@code out} and returns how many were
+     * written. Fewer than {@link #ringSize(int)} near the poles.
+     */
+    public static int ring(long cell, int precision, int ring, long[] out) {
+
+        if (ring < 0) {
+            throw new IllegalArgumentException("ring must be >= 0");
+        }
+
+        int bits = bits(precision);
+        int x = cellX(cell, bits);
+        int y = cellY(cell, bits);
+
+        if (ring == 0) {
+            out[0] = cell;
+            return 1;
+        }
+
+        int n = 0;
+        // top and bottom rows, full width
+        for (int dx = -ring; dx <= ring; dx++) {
+            n = put(out, n, x + dx, y + ring, bits);
+            n = put(out, n, x + dx, y - ring, bits);
+        }
+        // left and right columns, corners already done
+        for (int dy = -ring + 1; dy < ring; dy++) {
+            n = put(out, n, x - ring, y + dy, bits);
+            n = put(out, n, x + ring, y + dy, bits);
+        }
+        return n;
+    }
+
+    public static int neighbors(long cell, int ring, long[] out) {
+        return neighbors(cell, PRECISION, ring, out);
+    }
+
+    /**
+     * Writes every cell within {@code ring} steps of {@code cell} (the
+     * (2r+1)x(2r+1) block) into {@code out} and returns how many were written.
+     */
+    public static int neighbors(long cell, int precision, int ring, long[] out) {
+
+        if (ring < 0) {
+            throw new IllegalArgumentException("ring must be >= 0");
+        }
+
+        int bits = bits(precision);
+        int x = cellX(cell, bits);
+        int y = cellY(cell, bits);
+
+        int n = 0;
+        for (int dy = ring; dy >= -ring; dy--) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                n = put(out, n, x + dx, y + dy, bits);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Lower bound, in meters, on the distance from the point
+     * ({@code lat}, {@code lng}) inside {@code cell} to anything in the
+     * ring at distance {@code ring} around that cell.
+     * <p>
+     * Every cell of ring r lies outside the block formed by rings 0..r-1,
+     * so the bound is the distance to the nearest edge of that block:
+     * along a meridian for the north/south edges, and to the edge meridian
+     * (a great circle, R·asin(cos φ·sin Δλ)) for the east/west edges.
+     */
+    public static double ringLowerBoundMeters(long cell, double lat, double lng, int ring) {
+
+        if (ring <= 0) {
+            return 0;
+        }
+
+        int x = cellX(cell, CELL_BITS);
+        int y = cellY(cell, CELL_BITS);
+        double width = cellWidthDeg(CELL_BITS);
+        double height = cellHeightDeg(CELL_BITS);
+        int inner = ring - 1;
+
+        return boxEdgeDistanceMeters(lat, lng,
+                -90 + (y - inner) * height,
+                -180 + (x - inner) * width,
+                -90 + (y + inner + 1) * height,
+                -180 + (x + inner + 1) * width);
+    }
+
+    /**
+     * Lower bound, in meters, from a point inside the box to anything
+     * outside it: the nearest edge, measured along the meridian for the
+     * north/south edges and to the edge meridian (a great circle,
+     * R·asin(cos φ·sin Δλ)) for the east/west edges. Edges at or past a
+     * pole are ignored, there is nothing beyond them.
+     */
+    public static double boxEdgeDistanceMeters(double lat, double lng,
+                                               double south, double west,
+                                               double north, double east) {
+
+        double toNorth = north >= 90 ? Double.POSITIVE_INFINITY : north - lat;
+        double toSouth = south <= -90 ? Double.POSITIVE_INFINITY : lat - south;
+        double latBound = EARTH_RADIUS_M * Math.toRadians(Math.min(toNorth, toSouth));
+
+        double dLng = Math.min(Math.min(east - lng, lng - west), 90);
+        double lngBound = east - west >= 360
+                ? Double.POSITIVE_INFINITY
+                : meridianDistanceMeters(lat, dLng);
+
+        return Math.max(0, Math.min(latBound, lngBound));
+    }
+
+    /**
+     * Lower bound, in meters, on the distance from the point to anything
+     * inside {@code cell}; 0 when the point is inside it.
+     */
+    public static double minDistanceMeters(long cell, int precision, double lat, double lng) {
+        int bits = bits(precision);
+        double width = cellWidthDeg(bits);
+        double height = cellHeightDeg(bits);
+        double south = -90 + cellY(cell, bits) * height;
+        double west = -180 + cellX(cell, bits) * width;
+        return boxDistanceMeters(lat, lng, south, west, south + height, west + width);
+    }
+
+    /**
+     * Lower bound, in meters, on the distance from the point to anything
+     * inside the box; 0 when the point is inside it. The larger of the
+     * latitude gap and the distance to the nearer edge meridian, with
+     * longitudes compared the short way round.
+     */
+    public static double boxDistanceMeters(double lat, double lng,
+                                           double south, double west,
+                                           double north, double east) {
+
+        double dLat = lat < south ? south - lat
+                : lat > north ? lat - north
+                : 0;
+
+        double width = east - west;
+        double fromWest = lng - west;
+        fromWest -= 360 * Math.floor(fromWest / 360);
+        double dLng = width >= 360 || fromWest <= width
+                ? 0
+                : Math.min(fromWest - width, 360 - fromWest);
+
+        return Math.max(
+                EARTH_RADIUS_M * Math.toRadians(dLat),
+                meridianDistanceMeters(lat, Math.min(dLng, 90)));
+    }
+
+    /** Writes the cell's south, west, north, east edges (degrees) into {@code out}. */
+    public static void cellBounds(long cell, int precision, double[] out) {
+        int bits = bits(precision);
+        double width = cellWidthDeg(bits);
+        double height = cellHeightDeg(bits);
+        out[0] = -90 + cellY(cell, bits) * height;
+        out[1] = -180 + cellX(cell, bits) * width;
+        out[2] = out[0] + height;
+        out[3] = out[1] + width;
+    }
+
+    /** Allocating convenience form of {@link #neighbors(long, int, long[])}. */
+    public static long[] neighbors(long cell, int ring) {
+        long[] buffer = new long[diskSize(ring)];
+        int n = neighbors(cell, ring, buffer);
+        return n == buffer.length ? buffer : java.util.Arrays.copyOf(buffer, n);
     }
 
     /**
@@ -37,35 +311,15 @@ public class GeoHashUtil {
         if (geoHash == null || geoHash.isEmpty()) {
             throw new IllegalArgumentException("geoHash cannot be null or empty");
         }
-        if (ring < 0) {
-            throw new IllegalArgumentException("ring must be >= 0");
-        }
+
+        int precision = geoHash.length();
+        long[] buffer = new long[diskSize(ring)];
+        int n = neighbors(fromBase32(geoHash), precision, ring, buffer);
 
         Set<String> result = new HashSet<>();
-        Set<String> frontier = new HashSet<>();
-
-        // ring 0
-        result.add(geoHash);
-        frontier.add(geoHash);
-
-        // expand rings
-        for (int i = 0; i < ring; i++) {
-            Set<String> next = new HashSet<>();
-
-            for (String h : frontier) {
-                GeoHash center = GeoHash.fromGeohashString(h);
-                GeoHash[] adjacents = center.getAdjacent();
-
-                for (GeoHash gh : adjacents) {
-                    String adj = gh.toBase32();
-                    if (result.add(adj)) {
-                        next.add(adj);
-                    }
-                }
-            }
-            frontier = next;
+        for (int i = 0; i < n; i++) {
+            result.add(toBase32(buffer[i], precision));
         }
-
         return result;
     }
 
@@ -81,8 +335,6 @@ public class GeoHashUtil {
             double lat1, double lon1,
             double lat2, double lon2) {
 
-        final int EARTH_RADIUS = 6371000; // meters
-
         double dLat = Math.toRadians(lat2 - lat1);
         double dLon = Math.toRadians(lon2 - lon1);
 
@@ -93,7 +345,96 @@ public class GeoHashUtil {
 
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
 
-        return EARTH_RADIUS * c;
+        return EARTH_RADIUS_M * c;
+    }
+
+    // ---------------- BIT ARITHMETIC ----------------
+
+    static int cellX(long cell) {
+        return cellX(cell, CELL_BITS);
+    }
+
+    static int cellY(long cell) {
+        return cellY(cell, CELL_BITS);
+    }
+
+    // with an even bit count lng owns the odd bits, with an odd count the even ones
+    private static int cellX(long cell, int bits) {
+        return (bits & 1) == 0 ? compact(cell >>> 1) : compact(cell);
+    }
+
+    private static int cellY(long cell, int bits) {
+        return (bits & 1) == 0 ? compact(cell) : compact(cell >>> 1);
+    }
+
+    private static long cellOf(int x, int y, int bits) {
+        return (bits & 1) == 0
+                ? (spread(x) << 1) | spread(y)
+                : (spread(y) << 1) | spread(x);
+    }
+
+    private static int bits(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be 1.." + MAX_PRECISION);
+        }
+        return precision * 5;
+    }
+
+    private static int lngBits(int bits) {
+        return (bits + 1) / 2;
     }
 
+    private static int latBits(int bits) {
+        return bits / 2;
+    }
+
+    private static double cellWidthDeg(int bits) {
+        return 360.0 / (1L << lngBits(bits));
+    }
+
+    private static double cellHeightDeg(int bits) {
+        return 180.0 / (1L << latBits(bits));
+    }
+
+    // great-circle distance from a point at lat to a meridian dLng degrees away
+    private static double meridianDistanceMeters(double lat, double dLng) {
+        return EARTH_RADIUS_M * Math.asin(
+                Math.cos(Math.toRadians(lat)) * Math.sin(Math.toRadians(dLng)));
+    }
+
+    private static int quantize(double value, double min, double range, int cells) {
+        int q = (int) ((value - min) / range * cells);
+        return Math.min(q, cells - 1);   // the max edge belongs to the last cell
+    }
+
+    // x wraps around the antimeridian, y past a pole has no cell
+    private static int put(long[] out, int n, int x, int y, int bits) {
+        if (y < 0 || y >= 1 << latBits(bits)) {
+            return n;
+        }
+        out[n] = cellOf(x & ((1 << lngBits(bits)) - 1), y, bits);
+        return n + 1;
+    }
+
+    // 0b1011 → 0b01000101: bit i moves to bit 2i
+    private static long spread(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    // inverse of spread: keeps the even bits and packs them together
+    private static int compact(long v) {
+        long x = v & 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) x;
+    }
 }
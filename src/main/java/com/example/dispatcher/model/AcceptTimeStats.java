@@ -0,0 +1,4 @@
+package com.example.dispatcher.model;
+
+/** How long rides requested in one geohash cell waited for a driver to accept. */
+public record AcceptTimeStats(String geoHash, int accepted, long medianMs, long p90Ms) {}
@@ -0,0 +1,6 @@
+package com.example.dispatcher.model;
+
+import java.util.List;
+
+/** One page of results; pass {@code nextCursor} back for the next page, null after the last. */
+public record CursorPage<T>(List<T> items, String nextCursor) {}
@@ -1,6 +1,7 @@
 package com.example.dispatcher.model;
 
 import com.example.dispatcher.geo.GeoHashUtil;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -9,10 +10,12 @@ import java.util.concurrent.locks.ReentrantLock;
 public class Driver {
 
     private static final AtomicLong SEQ = new AtomicLong(1);
+    private static final String ID_PREFIX = "D-";
 
-    private final String id;                 // 🔒 immutable identity
+    private final long numericId;            // 🔑 store key
+    private final String id;                 // 🔒 immutable identity, API form
     private Location location;
-    private String geoHash;
+    private long cell = GeoHashUtil.NO_CELL;   // 🔑 index key, base32 only on read
     private DriverStatus status = DriverStatus.ONLINE;
 
     private double rating;
@@ -22,15 +25,40 @@ public class Driver {
     private String assignedRideId;
     private final ReentrantLock lock = new ReentrantLock();
 
+    // geo store hook: keeps its status partitions in sync
+    private volatile DriverStatusListener statusListener;
+
     public Driver() {
-        this.id = "D-" + SEQ.getAndIncrement();   // ✅ ID generated once
+        this.numericId = SEQ.getAndIncrement();
+        this.id = ID_PREFIX + numericId;         // ✅ ID generated once
         this.lastStateChangeAt = System.currentTimeMillis();
     }
 
+    /** A driver rebuilt from the store journal, keeping its id. */
+    public Driver(long numericId) {
+        if (numericId < 0) {
+            throw new IllegalArgumentException("Invalid driver id: " + numericId);
+        }
+        this.numericId = numericId;
+        this.id = ID_PREFIX + numericId;
+        // new drivers must not reuse a recovered id
+        SEQ.accumulateAndGet(numericId + 1, Math::max);
+    }
+
+    /** Journal replay only: sets state as recorded, without firing the status listener. */
+    public void restoreState(DriverStatus status, long lastStateChangeAt,
+                             int rejectCount, int timeoutCount, String assignedRideId) {
+        this.status = status;
+        this.lastStateChangeAt = lastStateChangeAt;
+        this.rejectCount = rejectCount;
+        this.timeoutCount = timeoutCount;
+        this.assignedRideId = assignedRideId;
+    }
+
     // 🔒 ONLY way to update location
     public void updateLocation(Location location) {
+        this.cell = GeoHashUtil.encodeCell(location.lat(), location.lng());
         this.location = location;
-        this.geoHash = GeoHashUtil.encode(location.lat(), location.lng());
     }
 
     // 🔒 domain events (increment only)
@@ -48,12 +76,27 @@ public class Driver {
         return id;
     }
 
+    @JsonIgnore
+    public long getNumericId() {
+        return numericId;
+    }
+
+    /** Numeric id behind a "D-n" string id, -1 if it is not one. */
+    public static long numericIdOf(String id) {
+        return Ids.parse(id, ID_PREFIX);
+    }
+
     public Location getLocation() {
         return location;
     }
 
     public String getGeoHash() {
-        return geoHash;
+        return cell == GeoHashUtil.NO_CELL ? null : GeoHashUtil.toBase32(cell);
+    }
+
+    @JsonIgnore
+    public long getCell() {
+        return cell;
     }
 
     public DriverStatus getStatus() {
@@ -75,11 +118,21 @@ public class Driver {
     // 🔒 SINGLE ENTRY POINT for state change
     public void setStatus(DriverStatus newStatus) {
         if (this.status != newStatus) {
+            DriverStatus oldStatus = this.status;
             this.status = newStatus;
             this.lastStateChangeAt = System.currentTimeMillis();
+
+            DriverStatusListener listener = statusListener;
+            if (listener != null) {
+                listener.onStatusChange(this, oldStatus, newStatus);
+            }
         }
     }
 
+    public void attachStatusListener(DriverStatusListener listener) {
+        this.statusListener = listener;
+    }
+
     public boolean tryLock(long timeoutMs) throws InterruptedException {
         return lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
     }
@@ -0,0 +1,9 @@
+package com.example.dispatcher.model;
+
+/**
+ * Told about every {@link Driver} status transition, after it happened.
+ */
+@FunctionalInterface
+public interface DriverStatusListener {
+    void onStatusChange(Driver driver, DriverStatus from, DriverStatus to);
+}
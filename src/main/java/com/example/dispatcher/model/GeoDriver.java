@@ -1,37 +1,77 @@
 package com.example.dispatcher.model;
 
+/**
+ * Geo index entry for a driver: its slot in the index, the shard that owns
+ * it and the status partition it is filed under. The {@link Driver} holds
+ * the authoritative position; the owning shard's DriverPositionTable keeps
+ * its own copy by slot, updated when the shard applies the driver's move.
+ */
 public class GeoDriver {
 
-    private final String driverId;
-    private double latitude;
-    private double longitude;
+    private final Driver driver;
+    private final int slot;
 
-    public GeoDriver(String driverId, double latitude, double longitude) {
-        if (driverId == null) {
-            throw new IllegalArgumentException("driverId cannot be null");
+    // 🔑 owning geo shard; only that shard's writer moves it elsewhere
+    private volatile int shard = -1;
+    // row in the owning shard, -1 until filed there (guarded by the shard's lock)
+    private int shardSlot = -1;
+
+    // 🔑 status partition this driver is filed under, null while not indexed
+    //    (no location yet, or dropped as silent until its next ping)
+    private DriverStatus indexedStatus;
+
+    public GeoDriver(Driver driver, int slot) {
+        if (driver == null || driver.getId() == null) {
+            throw new IllegalArgumentException("driver cannot be null");
+        }
+        if (slot < 0) {
+            throw new IllegalArgumentException("slot must be >= 0");
         }
-        this.driverId = driverId;
-        this.latitude = latitude;
-        this.longitude = longitude;
+        this.driver = driver;
+        this.slot = slot;
     }
 
     public String getDriverId() {
-        return driverId;
+        return driver.getId();
     }
 
-    public double getLatitude() {
-        return latitude;
+    public Driver getDriver() {
+        return driver;
     }
 
-    public void setLatitude(double latitude) {
-        this.latitude = latitude;
+    public int getSlot() {
+        return slot;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+
+    public int getShardSlot() {
+        return shardSlot;
+    }
+
+    public void setShardSlot(int shardSlot) {
+        this.shardSlot = shardSlot;
+    }
+
+    public double getLatitude() {
+        return driver.getLocation().lat();
     }
 
     public double getLongitude() {
-        return longitude;
+        return driver.getLocation().lng();
+    }
+
+    public DriverStatus getIndexedStatus() {
+        return indexedStatus;
     }
 
-    public void setLongitude(double longitude) {
-        this.longitude = longitude;
+    public void setIndexedStatus(DriverStatus indexedStatus) {
+        this.indexedStatus = indexedStatus;
     }
 }
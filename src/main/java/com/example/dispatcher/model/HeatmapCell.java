@@ -0,0 +1,15 @@
+package com.example.dispatcher.model;
+
+/**
+ * Supply and demand of one geohash cell: ONLINE drivers and waiting rides
+ * right now, and rides requested / accepted there over sliding windows.
+ */
+public record HeatmapCell(String geoHash,
+                          int onlineDrivers,
+                          int waitingRides,
+                          Window requested,
+                          Window accepted) {
+
+    /** Events in the last 1, 5 and 15 minutes. */
+    public record Window(int last1m, int last5m, int last15m) {}
+}
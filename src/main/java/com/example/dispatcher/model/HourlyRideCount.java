@@ -0,0 +1,6 @@
+package com.example.dispatcher.model;
+
+import java.time.Instant;
+
+/** Finished rides requested in one geohash cell during one (UTC) hour. */
+public record HourlyRideCount(String geoHash, Instant hour, int rides) {}
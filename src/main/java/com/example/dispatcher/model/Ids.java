@@ -0,0 +1,37 @@
+package com.example.dispatcher.model;
+
+/** The {@code <prefix>-<n>} string form of entity ids, used only at the API edge. */
+final class Ids {
+
+    // 18 digits always fit in a long, so parsing needs no overflow check
+    private static final int MAX_DIGITS = 18;
+
+    private Ids() {
+    }
+
+    /**
+     * n of "{prefix}n", -1 for anything else. Leading zeros are rejected so
+     * that each entity has exactly one string id ("D-7", never "D-07").
+     */
+    static long parse(String id, String prefix) {
+        if (id == null || !id.startsWith(prefix)) {
+            return -1;
+        }
+        int digits = id.length() - prefix.length();
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return -1;
+        }
+        if (digits > 1 && id.charAt(prefix.length()) == '0') {
+            return -1;
+        }
+        long n = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            int digit = id.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            n = n * 10 + digit;
+        }
+        return n;
+    }
+}
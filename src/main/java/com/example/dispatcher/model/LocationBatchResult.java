@@ -0,0 +1,7 @@
+package com.example.dispatcher.model;
+
+/**
+ * Outcome of a bulk location post: pings queued vs dropped (unknown driver,
+ * bad coordinates, timestamp too far ahead).
+ */
+public record LocationBatchResult(int accepted, int rejected) {}
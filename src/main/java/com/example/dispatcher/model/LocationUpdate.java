@@ -0,0 +1,11 @@
+package com.example.dispatcher.model;
+
+/**
+ * One location ping. {@code timestamp} (epoch ms on the device) orders pings
+ * for the same driver; when absent, arrival order is used. A device clock
+ * more than {@link #MAX_CLOCK_SKEW_MS} ahead of the server is not trusted.
+ */
+public record LocationUpdate(String driverId, double lat, double lng, Long timestamp) {
+
+    public static final long MAX_CLOCK_SKEW_MS = 30_000;
+}
@@ -0,0 +1,103 @@
+package com.example.dispatcher.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Drivers pinged for one ride and whether each ping expired, as two small
+ * parallel arrays: driver ids (the drivers' own id strings, not copies)
+ * and a state byte per driver. A ride pings a handful of drivers, so a
+ * linear scan beats hashing and lookups allocate nothing; the bookkeeping
+ * goes away with the ride.
+ * <p>
+ * Reads as the set of pinged driver ids. Thread-safe.
+ */
+public final class PingLog extends AbstractSet<String> {
+
+    private static final byte PINGED = 1;
+    private static final byte EXPIRED = 2;
+
+    private String[] driverIds = new String[4];
+    private byte[] states = new byte[4];
+    private int count;
+
+    /** Records a ping (again); a fresh ping is not expired. */
+    @Override
+    public synchronized boolean add(String driverId) {
+        int i = indexOf(driverId);
+        if (i >= 0) {
+            states[i] = PINGED;
+            return false;
+        }
+        if (count == driverIds.length) {
+            driverIds = Arrays.copyOf(driverIds, count << 1);
+            states = Arrays.copyOf(states, count << 1);
+        }
+        driverIds[count] = driverId;
+        states[count] = PINGED;
+        count++;
+        return true;
+    }
+
+    /** Marks the driver's ping expired (timed out or cancelled); false if never pinged. */
+    public synchronized boolean expire(String driverId) {
+        int i = indexOf(driverId);
+        if (i < 0) {
+            return false;
+        }
+        states[i] |= EXPIRED;
+        return true;
+    }
+
+    public synchronized boolean isExpired(String driverId) {
+        int i = indexOf(driverId);
+        return i >= 0 && (states[i] & EXPIRED) != 0;
+    }
+
+    @Override
+    public synchronized boolean contains(Object driverId) {
+        return indexOf(driverId) >= 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    /** Iterates a copy: safe while pings are being recorded. */
+    @Override
+    public synchronized Iterator<String> iterator() {
+        String[] ids = Arrays.copyOf(driverIds, count);
+        return new Iterator<>() {
+            int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ids.length;
+            }
+
+            @Override
+            public String next() {
+                if (next == ids.length) {
+                    throw new NoSuchElementException();
+                }
+                return ids[next++];
+            }
+        };
+    }
+
+    private int indexOf(Object driverId) {
+        if (driverId == null) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            // same Driver → same id instance, so == settles most lookups
+            if (driverIds[i] == driverId || driverIds[i].equals(driverId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
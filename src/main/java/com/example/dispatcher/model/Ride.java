@@ -1,19 +1,21 @@
 package com.example.dispatcher.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotNull;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 
 public class Ride {
 
     private static final AtomicLong SEQ = new AtomicLong(1);
+    private static final String ID_PREFIX = "R-";
 
+    // store key; -1 for an id that is not store-issued
+    private final long numericId;
     private final String id;
     @NotNull(message = "Pickup location is required")
     private Location pickup;
@@ -24,17 +26,40 @@ public class Ride {
 
     private String assignedDriverId;
 
-    // drivers already pinged for this ride
-    private Set<String> pingedDrivers = new HashSet<>();
+    // drivers already pinged for this ride, and which of those pings expired
+    private final PingLog pingedDrivers = new PingLog();
 
     // business flag only
     private boolean cancelledAfterAccept;
 
-    private List<String> timers = new ArrayList<>();
+    // wheel handles of the ride's timers, fired or not; runtime only
+    private long[] timers = new long[4];
+    private int timerCount;
+
+    // when the ride was requested / ACCEPTED / reached COMPLETED or CANCELLED (epoch ms), 0 if not (yet)
+    private long requestedAt;
+    private long acceptedAt;
+    private long finishedAt;
 
     private final ReentrantLock lock = new ReentrantLock();
+
+    // heatmap hook: keeps per-cell demand in sync
+    private volatile RideStatusListener statusListener;
+
     public Ride() {
-        this.id = "R-" + SEQ.getAndIncrement();
+        this.numericId = SEQ.getAndIncrement();
+        this.id = ID_PREFIX + numericId;
+        this.requestedAt = System.currentTimeMillis();
+    }
+
+    /** A ride read back from the archive or the store journal, keeping its original id. */
+    public Ride(String id) {
+        this.numericId = numericIdOf(id);
+        this.id = id;
+        if (numericId >= 0) {
+            // new rides must not reuse a recovered id
+            SEQ.accumulateAndGet(numericId + 1, Math::max);
+        }
     }
 
     // ---------- getters & setters ----------
@@ -43,6 +68,16 @@ public class Ride {
         return id;
     }
 
+    @JsonIgnore
+    public long getNumericId() {
+        return numericId;
+    }
+
+    /** Numeric id behind an "R-n" string id, -1 if it is not one. */
+    public static long numericIdOf(String id) {
+        return Ids.parse(id, ID_PREFIX);
+    }
+
     public Location getPickup() {
         return pickup;
     }
@@ -64,7 +99,23 @@ public class Ride {
     }
 
     public void setStatus(RideStatus status) {
+        RideStatus oldStatus = this.status;
         this.status = status;
+        if (acceptedAt == 0 && status == RideStatus.ACCEPTED) {
+            acceptedAt = System.currentTimeMillis();
+        }
+        if (finishedAt == 0 && (status == RideStatus.COMPLETED || status == RideStatus.CANCELLED)) {
+            finishedAt = System.currentTimeMillis();
+        }
+
+        RideStatusListener listener = statusListener;
+        if (listener != null && oldStatus != status) {
+            listener.onStatusChange(this, oldStatus, status);
+        }
+    }
+
+    public void attachStatusListener(RideStatusListener listener) {
+        this.statusListener = listener;
     }
 
     public String getAssignedDriverId() {
@@ -75,7 +126,7 @@ public class Ride {
         this.assignedDriverId = assignedDriverId;
     }
 
-    public Set<String> getPingedDrivers() {
+    public PingLog getPingedDrivers() {
         return pingedDrivers;
     }
 
@@ -87,8 +138,46 @@ public class Ride {
         this.cancelledAfterAccept = true;
     }
 
-    public List<String> getTimers() {
-        return timers;
+    @JsonIgnore
+    public long getRequestedAt() {
+        return requestedAt;
+    }
+
+    @JsonIgnore
+    public long getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    @JsonIgnore
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /** Archive / journal replay only: timestamps as recorded. */
+    public void restoreTimes(long requestedAt, long acceptedAt, long finishedAt) {
+        this.requestedAt = requestedAt;
+        this.acceptedAt = acceptedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    /** Remembers a timer handle so a later {@link #clearTimers} can cancel it. */
+    public void addTimer(long handle) {
+        if (timerCount == timers.length) {
+            timers = Arrays.copyOf(timers, timerCount << 1);
+        }
+        timers[timerCount++] = handle;
+    }
+
+    public int timerCount() {
+        return timerCount;
+    }
+
+    /** Hands every remembered timer handle to {@code cancel}, then forgets them. */
+    public void clearTimers(LongConsumer cancel) {
+        for (int i = 0; i < timerCount; i++) {
+            cancel.accept(timers[i]);
+        }
+        timerCount = 0;
     }
 
     public boolean tryLock(long timeoutMs) throws InterruptedException {
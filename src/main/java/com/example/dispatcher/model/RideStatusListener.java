@@ -0,0 +1,9 @@
+package com.example.dispatcher.model;
+
+/**
+ * Told about every {@link Ride} status transition, after it happened.
+ */
+@FunctionalInterface
+public interface RideStatusListener {
+    void onStatusChange(Ride ride, RideStatus from, RideStatus to);
+}
@@ -0,0 +1,35 @@
+package com.example.dispatcher.service;
+
+/** Pagination cursors as the API sees them: opaque strings over a non-negative position. */
+final class Cursors {
+
+    private Cursors() {
+    }
+
+    /** The position behind a cursor, {@code ifAbsent} when there is none. */
+    static long parse(String cursor, long ifAbsent) {
+        if (cursor == null) {
+            return ifAbsent;
+        }
+        try {
+            long position = Long.parseLong(cursor);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    /** Cursor for the next page, null when there is none (position -1). */
+    static String format(long next) {
+        return next < 0 ? null : Long.toString(next);
+    }
+
+    static void checkLimit(int limit, int max) {
+        if (limit <= 0 || limit > max) {
+            throw new IllegalArgumentException("limit must be 1.." + max);
+        }
+    }
+}
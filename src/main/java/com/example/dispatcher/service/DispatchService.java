@@ -16,6 +16,9 @@ import java.util.*;
 @Service
 public class DispatchService {
 
+    // farthest pickup we dispatch to, about what the old 30-ring search reached
+    private static final double MAX_DISPATCH_RADIUS_M = 20_000;
+
     private final GeoDriverStore geoStore;
     private final InMemoryStore store;
     private final TimerManager timerManager;
@@ -102,11 +105,12 @@ public class DispatchService {
         }
 
         driver.recordTimeout();
-            String key = ride.getId() + ":" + driver.getId();
-            store.rideTimerExpired.put(key, true);
+            ride.getPingedDrivers().expire(driver.getId());
             // CHANGE: state back to REQUESTED (spec)
         RideStateMachine.validate(ride.getStatus(), RideStatus.REQUESTED);
         ride.setStatus(RideStatus.REQUESTED);
+            store.driverChanged(driver);
+            store.rideChanged(ride);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -137,58 +141,24 @@ public class DispatchService {
                 return;
             }
 
-            // 2️⃣ Encode pickup location
-            String pickupHash = GeoHashUtil.encode(
+            // 2️⃣ Nearest eligible driver: bounded ring search over the ONLINE
+            //    partition's published cell snapshots (no index lock), so the result
+            //    is the true nearest, not just the first hit
+            List<GeoDriver> found = geoStore.nearestSnapshot(
                     ride.getPickup().lat(),
-                    ride.getPickup().lng()
+                    ride.getPickup().lng(),
+                    1,
+                    MAX_DISPATCH_RADIUS_M,
+                    DriverStatus.ONLINE,
+                    gd -> isDispatchable(gd.getDriver(), ride)
             );
 
-            Driver nearest = null;                 // ✅ FIX 1
-            double nearestDistance = Double.MAX_VALUE;
-
-            final int MAX_RINGS = 30;
-
-            // 3️⃣ Progressive ring expansion
-            for (int ring = 0; ring <= MAX_RINGS; ring++) {
-
-                Set<String> searchHashes = GeoHashUtil.neighbors(pickupHash, ring);
-
-                List<Driver> candidates =
-                        geoStore.find(searchHashes).stream()
-                                .map(gd -> store.drivers.get(gd.getDriverId()))
-                                .filter(Objects::nonNull)
-                                .filter(d -> d.getStatus() == DriverStatus.ONLINE)
-                                .filter(d -> !ride.getPingedDrivers().contains(d.getId()))
-                                .toList();
-
-                boolean foundInThisRing = false;
-
-                // 4️⃣ Find nearest driver in THIS ring
-                for (Driver d : candidates) {
-
-                    double dist = GeoHashUtil.distanceMeters(
-                            d.getLocation().lat(),
-                            d.getLocation().lng(),
-                            ride.getPickup().lat(),
-                            ride.getPickup().lng()
-                    );
-
-                    if (dist < nearestDistance) {
-                        nearestDistance = dist;
-                        nearest = d;
-                        foundInThisRing = true;
-                    }
-                }
-
-                // 5️⃣ Early exit ONLY if this ring had candidates
-                if (foundInThisRing) {
-                    break;
-                }
-            }
+            Driver nearest = found.isEmpty() ? null : found.get(0).getDriver();
 
             // 6️⃣ No driver found after all rings
             if (nearest == null) {
                 ride.setStatus(RideStatus.REQUESTED);
+                store.rideChanged(ride);
                 return;
             }
 
@@ -204,13 +174,13 @@ public class DispatchService {
                 );
 
                 ride.getPingedDrivers().add(nearest.getId());
+                store.driverRides.record(nearest.getNumericId(), ride.getNumericId());
                 ride.setStatus(RideStatus.DRIVER_PINGED);
+                store.rideChanged(ride);
 
-                String key = ride.getId() + ":" + nearest.getId();
-                store.rideTimerExpired.put(key, false);
                 // 8️⃣ Schedule timeout (outside domain logic)
                 Driver finalNearest = nearest;
-                String timerId = timerManager.schedule(
+                long timer = timerManager.schedule(
                         ride.getId(),
                         "DRIVER_TIMEOUT",
                         20,
@@ -218,7 +188,7 @@ public class DispatchService {
                 );
 
 // 🔧             CHANGE: ride owns timer
-                ride.getTimers().add(timerId);
+                ride.addTimer(timer);
             } finally {
                 if (driverLocked) nearest.unlock(); // 🔧 ADD
             }
@@ -230,4 +200,9 @@ public class DispatchService {
         }
 
     }
+
+    private boolean isDispatchable(Driver d, Ride ride) {
+        return d.getStatus() == DriverStatus.ONLINE
+                && !ride.getPingedDrivers().contains(d.getId());
+    }
 }
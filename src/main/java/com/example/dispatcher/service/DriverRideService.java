@@ -1,37 +1,58 @@
 package com.example.dispatcher.service;
 
+import com.example.dispatcher.model.CursorPage;
+import com.example.dispatcher.model.Driver;
 import com.example.dispatcher.model.DriverPingStatusResponse;
 import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.store.DriverRideIndex;
 import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.RideArchive;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.bind.annotation.PathVariable;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A driver's rides, newest first, read through the store's driver → rides
+ * index: O(rides that touched the driver), never a scan of all rides.
+ * Rides already archived are read back from the archive.
+ */
 @Service
 public class DriverRideService {
 
+    public static final int MAX_PAGE = 100;
+
     private final InMemoryStore store;
+    // finished rides that already left the live map
+    private final RideArchive archive;
 
-    public DriverRideService(InMemoryStore store) {
+    @Autowired
+    public DriverRideService(InMemoryStore store, RideArchive archive) {
         this.store = store;
+        this.archive = archive;
     }
 
-    public List<DriverPingStatusResponse> getAllRidesForDriver(String driverId) {
+    public CursorPage<DriverPingStatusResponse> getRidesForDriver(String driverId, String cursor, int limit) {
 
-        List<DriverPingStatusResponse> result = new ArrayList<>();
+        Cursors.checkLimit(limit, MAX_PAGE);
+        long before = Cursors.parse(cursor, Long.MAX_VALUE);
 
-        for (Ride ride : store.rides.values()) {
+        DriverRideIndex.Page page = store.driverRides.page(Driver.numericIdOf(driverId), before, limit);
+        List<DriverPingStatusResponse> result = new ArrayList<>(page.rideIds().length);
 
-            boolean pinged = ride.getPingedDrivers().contains(driverId);
-            boolean assigned = driverId.equals(ride.getAssignedDriverId());
-
-            // if driver was never involved → skip
-            if (!pinged && !assigned) {
+        for (long rideId : page.rideIds()) {
+            Ride ride = store.rides.get(rideId);
+            if (ride == null) {
+                ride = archive.find(rideId);
+            }
+            if (ride == null) {
                 continue;
             }
 
+            boolean pinged = ride.getPingedDrivers().contains(driverId);
+            boolean assigned = driverId.equals(ride.getAssignedDriverId());
+
             DriverPingStatusResponse res = new DriverPingStatusResponse();
             res.setRideId(ride.getId());
             res.setDriverId(driverId);
@@ -41,15 +62,11 @@ public class DriverRideService {
             res.setPickup(ride.getPickup());
             res.setDrop(ride.getDrop());
             // expired flag
-            String key = ride.getId() + ":" + driverId;
-            res.setExpired(
-                    store.rideTimerExpired.getOrDefault(key, false)
-
-            );
+            res.setExpired(ride.getPingedDrivers().isExpired(driverId));
 
             result.add(res);
         }
 
-        return result;
+        return new CursorPage<>(result, Cursors.format(page.next()));
     }
 }
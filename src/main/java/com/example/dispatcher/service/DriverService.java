@@ -1,17 +1,26 @@
 package com.example.dispatcher.service;
 
+import com.example.dispatcher.lock.LockPolicy;
+import com.example.dispatcher.model.CursorPage;
 import com.example.dispatcher.model.Driver;
 import com.example.dispatcher.model.DriverStatus;
-import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.GeoDriver;
 import com.example.dispatcher.store.GeoDriverStore;
 import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.StatusIndex;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class DriverService {
 
+    public static final int MAX_PAGE = 500;
+    // drivers looked up per index page while streaming
+    private static final int STREAM_BATCH = 512;
+
     private final InMemoryStore store;
     private final GeoDriverStore geoStore;
 
@@ -28,7 +37,9 @@ public class DriverService {
 
         driver.updateLocation(driver.getLocation()); // 🔑 IMPORTANT
 
-        store.drivers.put(driver.getId(), driver);
+        // journaled before it is published: no other thread can change it yet
+        store.driverChanged(driver);
+        store.drivers.put(driver.getNumericId(), driver);
         geoStore.addOrUpdate(driver);
 
         return driver;
@@ -36,14 +47,81 @@ public class DriverService {
 
 
     public void goOnline(String id) {
-        store.drivers.get(id).setStatus(DriverStatus.ONLINE);
+        setStatus(id, DriverStatus.ONLINE);
     }
 
     public void goOffline(String id) {
-        store.drivers.get(id).setStatus(DriverStatus.OFFLINE);
+        setStatus(id, DriverStatus.OFFLINE);
+    }
+
+    private void setStatus(String id, DriverStatus status) {
+        Driver driver = store.drivers.get(id);
+        boolean driverLocked = false;
+        try {
+            driverLocked = driver.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
+            if (!driverLocked) throw new IllegalStateException("Could not lock driver");
+
+            driver.setStatus(status);
+            store.driverChanged(driver);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (driverLocked) driver.unlock();
+        }
+    }
+
+    public List<Driver> findNearby(double lat, double lng, int k,
+                                   double radiusMeters, DriverStatus status) {
+        if (k <= 0 || k > MAX_PAGE) {
+            throw new IllegalArgumentException("k must be 1.." + MAX_PAGE);
+        }
+        if (!(lat >= -90 && lat <= 90) || !(lng >= -180 && lng <= 180)) {
+            throw new IllegalArgumentException("lat must be -90..90 and lng -180..180");
+        }
+        return geoStore.nearest(lat, lng, k, radiusMeters, status, null)
+                .stream()
+                .map(GeoDriver::getDriver)
+                .toList();
+    }
+
+    /** Slot the driver is addressed by on the binary telemetry listener. */
+    public int telemetrySlot(String id) {
+        int slot = geoStore.slotOf(id);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Driver not found: " + id);
+        }
+        return slot;
+    }
+
+    /**
+     * One page of drivers, oldest first, of one status or of all
+     * ({@code status == null}); {@code cursor} comes from the previous page.
+     */
+    public CursorPage<Driver> getDrivers(DriverStatus status, String cursor, int limit) {
+        Cursors.checkLimit(limit, MAX_PAGE);
+        StatusIndex.Page page = store.driversByStatus.page(status, Cursors.parse(cursor, -1), limit);
+        List<Driver> drivers = new ArrayList<>(page.ids().length);
+        for (long id : page.ids()) {
+            Driver driver = store.drivers.get(id);
+            if (driver != null) {
+                drivers.add(driver);
+            }
+        }
+        return new CursorPage<>(drivers, Cursors.format(page.next()));
     }
 
-    public Collection<Driver> getAllDrivers() {
-        return store.drivers.values();
+    /** Every driver (of one status), oldest first, looked up a page at a time. */
+    public void forEachDriver(DriverStatus status, Consumer<Driver> action) {
+        long after = -1;
+        do {
+            StatusIndex.Page page = store.driversByStatus.page(status, after, STREAM_BATCH);
+            for (long id : page.ids()) {
+                Driver driver = store.drivers.get(id);
+                if (driver != null) {
+                    action.accept(driver);
+                }
+            }
+            after = page.next();
+        } while (after >= 0);
     }
 }
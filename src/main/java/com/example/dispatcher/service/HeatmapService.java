@@ -0,0 +1,78 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.HeatmapCell;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+import com.example.dispatcher.store.CellHeatmap;
+import com.example.dispatcher.store.GeoDriverStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Supply/demand heatmap, kept current as things happen instead of scanning
+ * drivers and rides: the geo index reports every ONLINE driver entering or
+ * leaving a cell, and every tracked ride reports its status transitions.
+ * <p>
+ * A ride counts as waiting demand at its pickup cell while REQUESTED or
+ * DRIVER_PINGED: dispatch flips it between the two on every ping, and it
+ * is still unserved either way.
+ */
+@Service
+public class HeatmapService {
+
+    private final CellHeatmap heatmap = new CellHeatmap();
+    private final Clock clock;
+
+    @Autowired
+    public HeatmapService(GeoDriverStore geoStore) {
+        this(geoStore, Clock.systemUTC());
+    }
+
+    public HeatmapService(GeoDriverStore geoStore, Clock clock) {
+        this.clock = clock;
+        geoStore.setSupplyListener(heatmap::supplyMoved);
+    }
+
+    /** Starts counting a new ride: one request now, and demand while it waits. */
+    public void track(Ride ride) {
+        long cell = pickupCell(ride);
+        if (cell == GeoHashUtil.NO_CELL) {
+            return;
+        }
+        heatmap.rideRequested(cell, clock.millis());
+        if (isWaiting(ride.getStatus())) {
+            heatmap.demandMoved(GeoHashUtil.NO_CELL, cell);
+        }
+        ride.attachStatusListener(this::onRideStatusChange);
+    }
+
+    public List<HeatmapCell> cells(int precision) {
+        return heatmap.cells(precision, clock.millis());
+    }
+
+    private void onRideStatusChange(Ride ride, RideStatus from, RideStatus to) {
+        long cell = pickupCell(ride);
+        boolean wasWaiting = isWaiting(from);
+        boolean waiting = isWaiting(to);
+        if (wasWaiting != waiting) {
+            heatmap.demandMoved(wasWaiting ? cell : GeoHashUtil.NO_CELL, waiting ? cell : GeoHashUtil.NO_CELL);
+        }
+        if (to == RideStatus.ACCEPTED) {
+            heatmap.rideAccepted(cell, clock.millis());
+        }
+    }
+
+    private static boolean isWaiting(RideStatus status) {
+        return status == RideStatus.REQUESTED || status == RideStatus.DRIVER_PINGED;
+    }
+
+    private static long pickupCell(Ride ride) {
+        Location pickup = ride.getPickup();
+        return pickup == null ? GeoHashUtil.NO_CELL : GeoHashUtil.encodeCell(pickup.lat(), pickup.lng());
+    }
+}
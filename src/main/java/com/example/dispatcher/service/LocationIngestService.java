@@ -0,0 +1,181 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.lock.LockPolicy;
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.LocationBatchResult;
+import com.example.dispatcher.model.LocationUpdate;
+import com.example.dispatcher.store.GeoDriverStore;
+import com.example.dispatcher.store.InMemoryStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk location ingestion.
+ * <p>
+ * Pings are coalesced per driver, last write wins by device timestamp (by
+ * arrival when either ping has none), and every
+ * {@code dispatch.location.flush-ms} the surviving pings are applied to the
+ * drivers (each under its lock) and to the geo index in one batch, one
+ * write lock per geo shard. A ping stamped older than the stamped ping last
+ * applied to its driver, delayed into a later window, is dropped; a ping
+ * stamped further ahead than {@link LocationUpdate#MAX_CLOCK_SKEW_MS} is
+ * rejected, so one bad device clock cannot silence its driver.
+ */
+@Service
+public class LocationIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationIngestService.class);
+
+    public static final int MAX_BATCH = 10_000;
+
+    private final InMemoryStore store;
+    private final GeoDriverStore geoStore;
+
+    // 🔑 latest ping per driver since the last flush
+    private final Map<String, LocationUpdate> pending = new ConcurrentHashMap<>();
+
+    // device timestamp of the stamped ping last applied, per geo store slot (flush only)
+    private long[] lastAppliedAt = new long[0];
+
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "location-flush");
+                t.setDaemon(true);
+                return t;
+            });
+
+    public LocationIngestService(InMemoryStore store,
+                                 GeoDriverStore geoStore,
+                                 @Value("${dispatch.location.flush-ms:100}") long flushMs) {
+        if (flushMs <= 0) {
+            throw new IllegalArgumentException("flush-ms must be > 0");
+        }
+        this.store = store;
+        this.geoStore = geoStore;
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    public LocationBatchResult submit(List<LocationUpdate> updates) {
+
+        if (updates == null || updates.isEmpty()) {
+            throw new IllegalArgumentException("Locations are required");
+        }
+        if (updates.size() > MAX_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH + " locations per request");
+        }
+
+        long now = System.currentTimeMillis();
+        int accepted = 0;
+
+        for (LocationUpdate update : updates) {
+            if (update == null
+                    || update.driverId() == null
+                    || !store.drivers.containsKey(update.driverId())
+                    || !(update.lat() >= -90 && update.lat() <= 90)
+                    || !(update.lng() >= -180 && update.lng() <= 180)
+                    || (update.timestamp() != null && update.timestamp() > now + LocationUpdate.MAX_CLOCK_SKEW_MS)) {
+                continue;
+            }
+
+            // 🔄 last write wins; ties go to the later arrival
+            pending.merge(update.driverId(), update, (old, neu) -> newer(old, neu));
+            accepted++;
+        }
+
+        return new LocationBatchResult(accepted, updates.size() - accepted);
+    }
+
+    /** Applies every pending ping; returns how many drivers moved. */
+    public synchronized int flush() {
+
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Driver> batch = new ArrayList<>(pending.size());
+        List<LocationUpdate> applied = new ArrayList<>(pending.size());
+        for (String driverId : pending.keySet()) {
+            LocationUpdate update = pending.remove(driverId);
+            Driver driver = store.drivers.get(driverId);
+            if (update == null || driver == null) {
+                continue;
+            }
+            int slot = geoStore.slotOf(driverId);
+            if (update.timestamp() != null
+                    && slot >= 0 && slot < lastAppliedAt.length && update.timestamp() < lastAppliedAt[slot]) {
+                // delayed past a newer ping we already applied
+                continue;
+            }
+            boolean locked = false;
+            try {
+                locked = driver.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
+                if (!locked) {
+                    // busy in a ride transition: retry next window, unless a newer ping came meanwhile
+                    pending.merge(driverId, update, (queued, retry) -> newer(retry, queued));
+                    continue;
+                }
+                driver.updateLocation(new Location(update.lat(), update.lng()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                if (locked) driver.unlock();
+            }
+            batch.add(driver);
+            applied.add(update);
+        }
+
+        geoStore.addOrUpdateAll(batch);
+
+        // slots exist for every driver now that the geo store has them
+        if (lastAppliedAt.length < geoStore.slotCount()) {
+            int from = lastAppliedAt.length;
+            lastAppliedAt = Arrays.copyOf(lastAppliedAt, Math.max(geoStore.slotCount(), from << 1));
+            Arrays.fill(lastAppliedAt, from, lastAppliedAt.length, Long.MIN_VALUE);
+        }
+        for (LocationUpdate update : applied) {
+            int slot = geoStore.slotOf(update.driverId());
+            // unstamped pings carry no device time to order later ones by
+            if (slot >= 0 && update.timestamp() != null) {
+                lastAppliedAt[slot] = update.timestamp();
+            }
+        }
+        return batch.size();
+    }
+
+    // device times are only compared with device times; otherwise the later arrival wins
+    private static LocationUpdate newer(LocationUpdate earlier, LocationUpdate later) {
+        if (earlier.timestamp() == null || later.timestamp() == null) {
+            return later;
+        }
+        return later.timestamp() >= earlier.timestamp() ? later : earlier;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flushQuietly();
+    }
+
+    // an exception escaping a scheduled task would cancel every later flush
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Location flush failed; retrying next window", e);
+        }
+    }
+}
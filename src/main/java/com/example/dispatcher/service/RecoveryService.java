@@ -0,0 +1,44 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.StoreJournal;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Puts rides the {@link StoreJournal} recovered at startup back in motion
+ * (dispatch, ride timers), before the node takes requests.
+ */
+@Service
+public class RecoveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecoveryService.class);
+
+    private final StoreJournal journal;
+    private final InMemoryStore store;
+    private final RideService rideService;
+
+    public RecoveryService(StoreJournal journal, InMemoryStore store, RideService rideService) {
+        this.journal = journal;
+        this.store = store;
+        this.rideService = rideService;
+    }
+
+    @PostConstruct
+    public void resumeRecoveredRides() {
+        if (journal.recoveredRides() == 0) {
+            return;
+        }
+        int resumed = 0;
+        for (Ride ride : store.rides.values()) {
+            if (ride.getFinishedAt() == 0) {
+                rideService.resume(ride);
+                resumed++;
+            }
+        }
+        log.info("Resumed {} recovered rides", resumed);
+    }
+}
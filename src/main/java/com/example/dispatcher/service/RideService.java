@@ -4,31 +4,57 @@ import com.example.dispatcher.lock.LockPolicy;
 import com.example.dispatcher.model.*;
 import com.example.dispatcher.state.RideStateMachine;
 import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.RideArchive;
+import com.example.dispatcher.store.StatusIndex;
+import com.example.dispatcher.store.TripHistory;
 import com.example.dispatcher.timer.RideTimingPolicy;
 import com.example.dispatcher.timer.TimerManager;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class RideService {
 
+    public static final int MAX_PAGE = 500;
+    // rides looked up per index page while streaming
+    private static final int STREAM_BATCH = 512;
+
     private final InMemoryStore store;
     private final DispatchService dispatchService;
     private final TimerManager timerManager;
-
+    // counts demand per cell
+    private final HeatmapService heatmapService;
+    // finished rides that already left the live map
+    private final RideArchive archive;
+    // every finished ride, for analytics
+    private final TripHistory tripHistory;
+
+    @Autowired
     public RideService(InMemoryStore store,
                        DispatchService dispatchService,
-                       TimerManager timerManager) {
+                       TimerManager timerManager,
+                       HeatmapService heatmapService,
+                       RideArchive archive,
+                       TripHistory tripHistory) {
         this.store = store;
         this.dispatchService = dispatchService;
         this.timerManager = timerManager;
+        this.heatmapService = heatmapService;
+        this.archive = archive;
+        this.tripHistory = tripHistory;
     }
 
     public Ride create(Ride ride) {
 
-        store.rides.put(ride.getId(), ride);
+        // journaled before it is published: no other thread can change it yet
+        store.rideChanged(ride);
+        store.rides.put(ride.getNumericId(), ride);
+        heatmapService.track(ride);
         dispatchService.dispatch(ride);
 
         return ride;
@@ -36,7 +62,7 @@ public class RideService {
 
     public DriverPingStatusResponse accept(String rideId, String driverId) {
 
-        Ride ride = store.rides.get(rideId);
+        Ride ride = findRide(rideId);
         if (ride == null) {
             throw new IllegalArgumentException("Ride not found: " + rideId);
         }
@@ -89,8 +115,10 @@ public class RideService {
             // 🎯 ATOMIC COMMIT (first-accept-wins)
             ride.setAssignedDriverId(driverId);
             driver.assignRide(rideId);
+            store.driverRides.record(driver.getNumericId(), ride.getNumericId());
 
             transition(ride, RideStatus.ACCEPTED);
+            store.driverChanged(driver);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -118,7 +146,7 @@ public class RideService {
 
     public String riderCancel(String rideId) {
 
-        Ride ride = store.rides.get(rideId);
+        Ride ride = findRide(rideId);
         if (ride == null) {
             throw new IllegalArgumentException("Ride not found: " + rideId);
         }
@@ -155,6 +183,7 @@ public class RideService {
 
                         //  ADD: clear bidirectional relationship
                         driver.clearAssignedRide();
+                        store.driverChanged(driver);
                     }
                 }
             }
@@ -180,7 +209,7 @@ public class RideService {
 
     public String driverCancel(String rideId, String driverId) {
 
-        Ride ride = store.rides.get(rideId);
+        Ride ride = findRide(rideId);
         Driver driver = store.drivers.get(driverId);
 
         if (ride == null || driver == null) {
@@ -216,11 +245,11 @@ public class RideService {
             // Reset assignments
             ride.setAssignedDriverId(null);
             driver.clearAssignedRide();
-            String key = ride.getId() + ":" + driver.getId();
-            store.rideTimerExpired.put(key, true);
+            ride.getPingedDrivers().expire(driver.getId());
 
             // Move ride back to REQUESTED
             transition(ride, RideStatus.REQUESTED);
+            store.driverChanged(driver);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -236,35 +265,85 @@ public class RideService {
     }
 
 
+    /**
+     * Picks a ride recovered from the store journal back up: its timers
+     * died with the old process. A ride waiting on a ping starts over (the
+     * ping counts as expired); a ride in progress gets its next step
+     * scheduled again.
+     */
+    public void resume(Ride ride) {
+        RideStatus status = ride.getStatus();
+        if (status == RideStatus.REQUESTED) {
+            dispatchService.dispatch(ride);
+        } else if (status == RideStatus.DRIVER_PINGED) {
+            boolean rideLocked = false;
+            try {
+                rideLocked = ride.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
+                if (!rideLocked || ride.getStatus() != RideStatus.DRIVER_PINGED) return;
+
+                for (String driverId : ride.getPingedDrivers()) {
+                    ride.getPingedDrivers().expire(driverId);
+                }
+                transition(ride, RideStatus.REQUESTED);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (rideLocked) ride.unlock();
+            }
+            dispatchService.dispatch(ride);
+        } else if (status == RideStatus.ACCEPTED) {
+            scheduleArriving(ride);
+        } else if (status == RideStatus.ARRIVING) {
+            scheduleStep(ride, "ON_TRIP", RideTimingPolicy.ON_TRIP_DELAY_SEC, () -> transitionToOnTrip(ride));
+        } else if (status == RideStatus.ON_TRIP) {
+            scheduleStep(ride, "COMPLETED", RideTimingPolicy.COMPLETE_DELAY_SEC, () -> completeRide(ride));
+        }
+    }
+
+    // live first, then the archive (finished rides past their grace period)
+    private Ride findRide(String rideId) {
+        Ride ride = store.rides.get(rideId);
+        if (ride == null) {
+            ride = archive.find(rideId);
+        }
+        return ride;
+    }
+
     // 🔧 CHANGE: central transition helper
     private void transition(Ride ride, RideStatus next) {
         RideStateMachine.validate(ride.getStatus(), next);
         ride.setStatus(next);
+        store.rideChanged(ride);
+        if (next == RideStatus.COMPLETED || next == RideStatus.CANCELLED) {
+            tripHistory.record(ride);
+        }
     }
 
     // 🔧 CHANGE: central timer cleanup
     private void clearRideTimers(Ride ride) {
-        for (String timerId : ride.getTimers()) {
-            timerManager.clearTimer(timerId);
-        }
-        ride.getTimers().clear();
+        ride.clearTimers(timerManager::clearTimer);
     }
 
     private void scheduleArriving(Ride ride) {
+        scheduleStep(ride, "ARRIVING", RideTimingPolicy.ARRIVING_DELAY_SEC, () -> transitionToArriving(ride));
+    }
+
+    private void scheduleStep(Ride ride, String type, long delaySec, Runnable step) {
 
         boolean rideLocked = false;
         try {
             rideLocked = ride.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
             if (!rideLocked) return;
 
-            String timerId = timerManager.schedule(
+            long timer = timerManager.schedule(
                     ride.getId(),
-                    "ARRIVING",
-                    RideTimingPolicy.ARRIVING_DELAY_SEC,
-                    () -> transitionToArriving(ride)
+                    type,
+                    delaySec,
+                    step
             );
 
-            ride.getTimers().add(timerId);
+            ride.addTimer(timer);
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -284,14 +363,14 @@ public class RideService {
         if (ride.getStatus() != RideStatus.ACCEPTED) return;
         transition(ride,RideStatus.ARRIVING);
 
-        String timerId = timerManager.schedule(
+        long timer = timerManager.schedule(
                 ride.getId(),
                 "ON_TRIP",
                 RideTimingPolicy.ON_TRIP_DELAY_SEC,
                 () -> transitionToOnTrip(ride)
         );
 
-        ride.getTimers().add(timerId);
+        ride.addTimer(timer);
     }catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
@@ -309,14 +388,14 @@ public class RideService {
             if (ride.getStatus() != RideStatus.ARRIVING) return;
 
             transition(ride,RideStatus.ON_TRIP);
-        String timerId = timerManager.schedule(
+        long timer = timerManager.schedule(
                 ride.getId(),
                 "COMPLETED",
                 RideTimingPolicy.COMPLETE_DELAY_SEC,
                 () -> completeRide(ride)
         );
 
-        ride.getTimers().add(timerId);
+        ride.addTimer(timer);
     }catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
@@ -326,6 +405,8 @@ public class RideService {
 
     private void completeRide(Ride ride) {
         boolean rideLocked = false;
+        boolean driverLocked = false;
+        Driver driver = null;
         try {
             rideLocked = ride.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
             if (!rideLocked) return;
@@ -335,23 +416,28 @@ public class RideService {
 
         transition(ride,RideStatus.COMPLETED);
         // 🔧 CHANGE: driver back ONLINE
-        Driver driver = store.drivers.get(ride.getAssignedDriverId());
+        driver = store.drivers.get(ride.getAssignedDriverId());
 
-        driver.clearAssignedRide();
+        // Lock order: Ride → Driver
+        driverLocked = driver.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
+        if (driverLocked) {
+            driver.clearAssignedRide();
+            store.driverChanged(driver);
+        }
 
         //CHANGE: cleanup all timers
         clearRideTimers(ride);
-        ride.getTimers().clear();
     }catch (InterruptedException e) {
         Thread.currentThread().interrupt();
     } finally {
+        if (driverLocked) driver.unlock();
         if (rideLocked) ride.unlock();
     }
 }
 
     public Ride getRide(String rideId) {
 
-        Ride ride = store.rides.get(rideId);
+        Ride ride = findRide(rideId);
 
         if (ride == null) {
             throw new IllegalArgumentException("Ride not found: " + rideId);
@@ -360,13 +446,43 @@ public class RideService {
         return ride;
     }
 
-    public Collection<Ride> getAllRides() {
-        return store.rides.values();
+    /**
+     * One page of live rides, oldest first, of one status or of all
+     * ({@code status == null}); {@code cursor} comes from the previous page.
+     * Archived rides are not listed: {@link #getRide} serves them by id.
+     */
+    public CursorPage<Ride> getRides(RideStatus status, String cursor, int limit) {
+        Cursors.checkLimit(limit, MAX_PAGE);
+        StatusIndex.Page page = store.ridesByStatus.page(status, Cursors.parse(cursor, -1), limit);
+        List<Ride> rides = new ArrayList<>(page.ids().length);
+        for (long id : page.ids()) {
+            Ride ride = store.rides.get(id);
+            // removed since the page was cut
+            if (ride != null) {
+                rides.add(ride);
+            }
+        }
+        return new CursorPage<>(rides, Cursors.format(page.next()));
+    }
+
+    /** Every live ride (of one status), oldest first, looked up a page at a time. */
+    public void forEachRide(RideStatus status, Consumer<Ride> action) {
+        long after = -1;
+        do {
+            StatusIndex.Page page = store.ridesByStatus.page(status, after, STREAM_BATCH);
+            for (long id : page.ids()) {
+                Ride ride = store.rides.get(id);
+                if (ride != null) {
+                    action.accept(ride);
+                }
+            }
+            after = page.next();
+        } while (after >= 0);
     }
 
     public DriverPingStatusResponse getPingStatus(String rideId, String driverId) {
 
-        Ride ride = store.rides.get(rideId);
+        Ride ride = findRide(rideId);
         Driver driver = store.drivers.get(driverId);
 
         if (ride == null || driver == null) {
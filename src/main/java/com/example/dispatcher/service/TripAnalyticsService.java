@@ -0,0 +1,70 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.model.AcceptTimeStats;
+import com.example.dispatcher.model.HourlyRideCount;
+import com.example.dispatcher.model.RideStatus;
+import com.example.dispatcher.store.TripHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Aggregations over the {@link TripHistory} of finished rides. Time ranges
+ * are on the request time, default to the last day and may span at most
+ * {@link #MAX_RANGE}.
+ */
+@Service
+public class TripAnalyticsService {
+
+    public static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+    public static final Duration MAX_RANGE = Duration.ofDays(92);
+
+    private final TripHistory history;
+    private final Clock clock;
+
+    @Autowired
+    public TripAnalyticsService(TripHistory history) {
+        this(history, Clock.systemUTC());
+    }
+
+    public TripAnalyticsService(TripHistory history, Clock clock) {
+        this.history = history;
+        this.clock = clock;
+    }
+
+    /** Finished rides per pickup cell and hour; {@code status} COMPLETED, CANCELLED or null for both. */
+    public List<HourlyRideCount> ridesPerCellHour(Instant from, Instant to, RideStatus status, int precision) {
+        if (status != null && status != RideStatus.COMPLETED && status != RideStatus.CANCELLED) {
+            throw new IllegalArgumentException("Only COMPLETED / CANCELLED rides are kept in history");
+        }
+        Instant end = endOf(to);
+        Instant start = startOf(from, end);
+        return history.ridesPerCellHour(start.toEpochMilli(), end.toEpochMilli(), status, precision);
+    }
+
+    /** Time from request to accept per pickup cell, over rides that were accepted. */
+    public List<AcceptTimeStats> acceptTimes(Instant from, Instant to, int precision) {
+        Instant end = endOf(to);
+        Instant start = startOf(from, end);
+        return history.acceptTimeByCell(start.toEpochMilli(), end.toEpochMilli(), precision);
+    }
+
+    private Instant endOf(Instant to) {
+        return to != null ? to : clock.instant();
+    }
+
+    private static Instant startOf(Instant from, Instant end) {
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (Duration.between(start, end).compareTo(MAX_RANGE) > 0) {
+            throw new IllegalArgumentException("Time range must not exceed " + MAX_RANGE.toDays() + " days");
+        }
+        return start;
+    }
+}
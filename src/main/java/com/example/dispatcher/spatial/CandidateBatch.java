@@ -0,0 +1,72 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.collections.BoundedMaxHeap;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Slots collected from a cell, leaf or ring, measured in one
+ * {@link SlotPositions#distances} call instead of one distance per slot.
+ * One per query, never shared.
+ */
+final class CandidateBatch {
+
+    private final SlotPositions positions;
+    private final double lat;
+    private final double lng;
+
+    private int[] slots = new int[64];
+    private double[] distances = new double[64];
+    private int size;
+
+    /** {@link #add} as a reusable visitor. */
+    final IntConsumer add = this::add;
+
+    CandidateBatch(SlotPositions positions, double lat, double lng) {
+        this.positions = positions;
+        this.lat = lat;
+        this.lng = lng;
+    }
+
+    void add(int slot) {
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size << 1);
+            distances = Arrays.copyOf(distances, size << 1);
+        }
+        slots[size++] = slot;
+    }
+
+    void add(int[] from, int count) {
+        for (int i = 0; i < count; i++) {
+            add(from[i]);
+        }
+    }
+
+    /** Offers the pending slots that beat the radius and the heap's bound and pass the filter. */
+    void offerTo(BoundedMaxHeap heap, double radiusMeters, IntPredicate filter) {
+        double limit = Math.min(radiusMeters, heap.bound());
+        if (size > 0 && positions.distances(lat, lng, slots, size, limit, distances) > 0) {
+            for (int i = 0; i < size; i++) {
+                double d = distances[i];
+                if (d <= limit && (filter == null || filter.test(slots[i]))) {
+                    heap.offer(slots[i], d);
+                }
+            }
+        }
+        size = 0;
+    }
+
+    /** Hands the pending slots within the radius to the action. */
+    void drainWithin(double radiusMeters, IntConsumer action) {
+        if (size > 0 && positions.distances(lat, lng, slots, size, radiusMeters, distances) > 0) {
+            for (int i = 0; i < size; i++) {
+                if (distances[i] <= radiusMeters) {
+                    action.accept(slots[i]);
+                }
+            }
+        }
+        size = 0;
+    }
+}
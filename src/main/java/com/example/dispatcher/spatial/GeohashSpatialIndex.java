@@ -0,0 +1,228 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.collections.BoundedMaxHeap;
+import com.example.dispatcher.collections.DoubleLongMinHeap;
+import com.example.dispatcher.collections.IntHashSet;
+import com.example.dispatcher.collections.LongIntMap;
+import com.example.dispatcher.collections.LongObjectMap;
+import com.example.dispatcher.geo.GeoHashUtil;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link SpatialIndex} as a geohash pyramid.
+ * <p>
+ * Slots are filed under leaf cells at {@link #LEAF_PRECISION} (~150 m);
+ * every coarser level down to {@link #TOP_PRECISION} (~150 km) keeps an
+ * occupancy count per populated cell, so a search skips empty regions
+ * wholesale and descends only where slots are. Only populated cells are
+ * stored at any level.
+ */
+public class GeohashSpatialIndex implements SpatialIndex {
+
+    public static final int TOP_PRECISION = 3;
+    public static final int LEAF_PRECISION = 7;
+
+    private static final long CELL_MASK = (1L << 48) - 1;
+
+    private final SlotPositions positions;
+
+    private final LongObjectMap<IntHashSet> leaves = new LongObjectMap<>(1024);
+
+    // counts[p] for TOP_PRECISION <= p < LEAF_PRECISION; leaf counts are set sizes
+    private final LongIntMap[] counts = new LongIntMap[LEAF_PRECISION];
+
+    // 🔑 reverse index: leaf cell each slot is filed under
+    private long[] leafOfSlot = new long[0];
+
+    private int size;
+
+    public GeohashSpatialIndex(SlotPositions positions) {
+        this.positions = positions;
+        for (int p = TOP_PRECISION; p < LEAF_PRECISION; p++) {
+            counts[p] = new LongIntMap(256);
+        }
+    }
+
+    @Override
+    public void upsert(int slot) {
+        long leaf = GeoHashUtil.encodeCell(positions.lat(slot), positions.lng(slot), LEAF_PRECISION);
+        if (slot >= leafOfSlot.length) {
+            int from = leafOfSlot.length;
+            leafOfSlot = Arrays.copyOf(leafOfSlot, Math.max(1024, Math.max(slot + 1, from << 1)));
+            Arrays.fill(leafOfSlot, from, leafOfSlot.length, GeoHashUtil.NO_CELL);
+        }
+        long previous = leafOfSlot[slot];
+        if (previous == leaf) {
+            return;
+        }
+        if (previous != GeoHashUtil.NO_CELL) {
+            removeFromLeaf(previous, slot);
+        }
+        IntHashSet set = leaves.get(leaf);
+        if (set == null) {
+            set = new IntHashSet();
+            leaves.put(leaf, set);
+        }
+        set.add(slot);
+        adjustCounts(leaf, 1);
+        leafOfSlot[slot] = leaf;
+    }
+
+    @Override
+    public void remove(int slot) {
+        if (slot < 0 || slot >= leafOfSlot.length || leafOfSlot[slot] == GeoHashUtil.NO_CELL) {
+            return;
+        }
+        removeFromLeaf(leafOfSlot[slot], slot);
+        leafOfSlot[slot] = GeoHashUtil.NO_CELL;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Best-first descent: a frontier of cells ordered by their minimum
+     * possible distance starts from the populated top cells; a popped cell
+     * expands into its populated children only, a popped leaf offers its
+     * slots to a bounded max-heap. Stops when the nearest frontier cell can
+     * no longer beat the radius or the current k-th best.
+     */
+    @Override
+    public int nearest(double lat, double lng, int k, double radiusMeters, IntPredicate filter,
+                       int[] outSlots, double[] outDistances) {
+
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        DoubleLongMinHeap frontier = new DoubleLongMinHeap();
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+
+        counts[TOP_PRECISION].forEach((cell, count) ->
+                push(frontier, TOP_PRECISION, cell, lat, lng, radiusMeters));
+
+        while (!frontier.isEmpty()
+                && frontier.peekPriority() <= Math.min(radiusMeters, heap.bound())) {
+
+            long entry = frontier.poll();
+            int precision = (int) (entry >>> 48);
+            long cell = entry & CELL_MASK;
+
+            if (precision == LEAF_PRECISION) {
+                leaves.get(cell).forEach(batch.add);
+                batch.offerTo(heap, radiusMeters, filter);
+                continue;
+            }
+
+            double limit = Math.min(radiusMeters, heap.bound());
+            long first = cell << 5;
+            for (int c = 0; c < 32; c++) {
+                push(frontier, precision + 1, first + c, lat, lng, limit);
+            }
+        }
+
+        return heap.drainAscending(outSlots, outDistances);
+    }
+
+    @Override
+    public void forEachWithin(double lat, double lng, double radiusMeters, IntConsumer action) {
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+        counts[TOP_PRECISION].forEach((cell, count) -> {
+            if (GeoHashUtil.minDistanceMeters(cell, TOP_PRECISION, lat, lng) <= radiusMeters) {
+                descendWithin(TOP_PRECISION, cell, lat, lng, radiusMeters, batch, action);
+            }
+        });
+    }
+
+    @Override
+    public void forEachInBox(double south, double west, double north, double east, IntConsumer action) {
+        double[] bounds = new double[4];
+        IntConsumer visit = slot -> {
+            double lat = positions.lat(slot);
+            double lng = positions.lng(slot);
+            if (lat >= south && lat < north && lng >= west && lng < east) {
+                action.accept(slot);
+            }
+        };
+        counts[TOP_PRECISION].forEach((cell, count) ->
+                descendInBox(TOP_PRECISION, cell, south, west, north, east, bounds, visit));
+    }
+
+    /** Slots inside the cell at the given precision (TOP..LEAF). */
+    public int count(int precision, long cell) {
+        if (precision == LEAF_PRECISION) {
+            IntHashSet set = leaves.get(cell);
+            return set == null ? 0 : set.size();
+        }
+        if (precision < TOP_PRECISION || precision > LEAF_PRECISION) {
+            throw new IllegalArgumentException(
+                    "precision must be " + TOP_PRECISION + ".." + LEAF_PRECISION);
+        }
+        return counts[precision].get(cell);
+    }
+
+    private void push(DoubleLongMinHeap frontier, int precision, long cell,
+                      double lat, double lng, double limit) {
+        if (count(precision, cell) == 0) {
+            return;
+        }
+        double bound = GeoHashUtil.minDistanceMeters(cell, precision, lat, lng);
+        if (bound <= limit) {
+            frontier.push(bound, ((long) precision << 48) | cell);
+        }
+    }
+
+    private void descendWithin(int precision, long cell, double lat, double lng,
+                               double radiusMeters, CandidateBatch batch, IntConsumer action) {
+        if (precision == LEAF_PRECISION) {
+            leaves.get(cell).forEach(batch.add);
+            batch.drainWithin(radiusMeters, action);
+            return;
+        }
+        long first = cell << 5;
+        for (int c = 0; c < 32; c++) {
+            long child = first + c;
+            if (count(precision + 1, child) > 0
+                    && GeoHashUtil.minDistanceMeters(child, precision + 1, lat, lng) <= radiusMeters) {
+                descendWithin(precision + 1, child, lat, lng, radiusMeters, batch, action);
+            }
+        }
+    }
+
+    private void descendInBox(int precision, long cell, double south, double west,
+                              double north, double east, double[] bounds, IntConsumer visit) {
+        GeoHashUtil.cellBounds(cell, precision, bounds);
+        if (bounds[0] >= north || bounds[2] <= south || bounds[1] >= east || bounds[3] <= west) {
+            return;
+        }
+        if (precision == LEAF_PRECISION) {
+            leaves.get(cell).forEach(visit);
+            return;
+        }
+        long first = cell << 5;
+        for (int c = 0; c < 32; c++) {
+            if (count(precision + 1, first + c) > 0) {
+                descendInBox(precision + 1, first + c, south, west, north, east, bounds, visit);
+            }
+        }
+    }
+
+    private void removeFromLeaf(long leaf, int slot) {
+        IntHashSet set = leaves.get(leaf);
+        if (set != null && set.remove(slot)) {
+            if (set.isEmpty()) {
+                leaves.remove(leaf);
+            }
+            adjustCounts(leaf, -1);
+        }
+    }
+
+    private void adjustCounts(long leaf, int delta) {
+        size += delta;
+        for (int p = TOP_PRECISION; p < LEAF_PRECISION; p++) {
+            counts[p].addTo(GeoHashUtil.parent(leaf, LEAF_PRECISION, p), delta);
+        }
+    }
+}
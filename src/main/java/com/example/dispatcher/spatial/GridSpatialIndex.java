@@ -0,0 +1,245 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.collections.BoundedMaxHeap;
+import com.example.dispatcher.collections.IntHashSet;
+import com.example.dispatcher.collections.LongObjectMap;
+import com.example.dispatcher.geo.GeoHashUtil;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link SpatialIndex} as a uniform grid over equirectangular coordinates:
+ * fixed {@code cellDegrees} square cells in (lng, lat), keyed row-major,
+ * only populated cells stored.
+ * <p>
+ * A k-nearest search walks rings of cells around the point until the
+ * block already covered is farther than the k-th best; once a ring would
+ * cost more lookups than there are populated cells, the rest is a plain
+ * scan of the populated cells, so sparse indexes never walk empty space.
+ */
+public class GridSpatialIndex implements SpatialIndex {
+
+    /** ~1.1 km north-south, ~1 km east-west at city latitudes. */
+    public static final double DEFAULT_CELL_DEGREES = 0.01;
+
+    private static final double METERS_PER_DEGREE = GeoHashUtil.EARTH_RADIUS_M * Math.PI / 180;
+
+    private final SlotPositions positions;
+    private final double cellDegrees;
+    private final int rows;
+    private final int cols;
+
+    private final LongObjectMap<IntHashSet> cells = new LongObjectMap<>(1024);
+
+    // 🔑 reverse index: grid cell each slot is filed under
+    private long[] cellOfSlot = new long[0];
+
+    private int size;
+
+    public GridSpatialIndex(SlotPositions positions) {
+        this(positions, DEFAULT_CELL_DEGREES);
+    }
+
+    public GridSpatialIndex(SlotPositions positions, double cellDegrees) {
+        if (!(cellDegrees > 0) || cellDegrees > 90) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 90]");
+        }
+        this.positions = positions;
+        this.cellDegrees = cellDegrees;
+        this.rows = (int) Math.ceil(180 / cellDegrees);
+        this.cols = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    @Override
+    public void upsert(int slot) {
+        long cell = key(row(positions.lat(slot)), col(positions.lng(slot)));
+        if (slot >= cellOfSlot.length) {
+            int from = cellOfSlot.length;
+            cellOfSlot = Arrays.copyOf(cellOfSlot, Math.max(1024, Math.max(slot + 1, from << 1)));
+            Arrays.fill(cellOfSlot, from, cellOfSlot.length, -1L);
+        }
+        long previous = cellOfSlot[slot];
+        if (previous == cell) {
+            return;
+        }
+        if (previous != -1L) {
+            removeFromCell(previous, slot);
+        }
+        IntHashSet set = cells.get(cell);
+        if (set == null) {
+            set = new IntHashSet();
+            cells.put(cell, set);
+        }
+        set.add(slot);
+        cellOfSlot[slot] = cell;
+        size++;
+    }
+
+    @Override
+    public void remove(int slot) {
+        if (slot < 0 || slot >= cellOfSlot.length || cellOfSlot[slot] == -1L) {
+            return;
+        }
+        removeFromCell(cellOfSlot[slot], slot);
+        cellOfSlot[slot] = -1L;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int nearest(double lat, double lng, int k, double radiusMeters, IntPredicate filter,
+                       int[] outSlots, double[] outDistances) {
+
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        if (size == 0) {
+            return 0;
+        }
+
+        int row0 = row(lat);
+        int col0 = col(lng);
+        int[] seen = new int[1];
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+
+        IntConsumer visit = slot -> {
+            seen[0]++;
+            batch.add(slot);
+        };
+
+        for (int ring = 0; seen[0] < size; ring++) {
+
+            if (ring > 0) {
+                // everything left lies outside the block of rings 0..ring-1
+                int inner = ring - 1;
+                double bound = GeoHashUtil.boxEdgeDistanceMeters(lat, lng,
+                        -90 + (row0 - inner) * cellDegrees,
+                        -180 + (col0 - inner) * cellDegrees,
+                        -90 + (row0 + inner + 1) * cellDegrees,
+                        -180 + (col0 + inner + 1) * cellDegrees);
+                if (bound > Math.min(radiusMeters, heap.bound())) {
+                    break;
+                }
+            }
+
+            if (8L * ring > cells.size() || 2 * ring + 1 >= cols) {
+                // cheaper to scan what is populated than to keep walking rings
+                int covered = ring - 1;
+                cells.forEach((cell, set) -> {
+                    if (chebyshev(cell, row0, col0) > covered) {
+                        set.forEach(visit);
+                    }
+                });
+                batch.offerTo(heap, radiusMeters, filter);
+                break;
+            }
+
+            visitRing(row0, col0, ring, visit);
+            batch.offerTo(heap, radiusMeters, filter);
+        }
+
+        return heap.drainAscending(outSlots, outDistances);
+    }
+
+    @Override
+    public void forEachWithin(double lat, double lng, double radiusMeters, IntConsumer action) {
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double maxAbsLat = Math.abs(lat) + dLat;
+        double dLng = maxAbsLat >= 90 ? 360 : dLat / Math.cos(Math.toRadians(maxAbsLat));
+        visitRange(lat - dLat, lng - dLng, lat + dLat, lng + dLng, batch.add);
+        batch.drainWithin(radiusMeters, action);
+    }
+
+    @Override
+    public void forEachInBox(double south, double west, double north, double east, IntConsumer action) {
+        IntConsumer visit = slot -> {
+            double lat = positions.lat(slot);
+            double lng = positions.lng(slot);
+            if (lat >= south && lat < north && lng >= west && lng < east) {
+                action.accept(slot);
+            }
+        };
+        visitRange(south, west, north, east, visit);
+    }
+
+    // cells overlapping the (possibly wrapping) degree range, or every populated cell when cheaper
+    private void visitRange(double south, double west, double north, double east, IntConsumer visit) {
+        int rowFrom = row(south);
+        int rowTo = row(north);
+        long span = east - west >= 360 ? cols : (long) Math.floor((east + 180) / cellDegrees)
+                - (long) Math.floor((west + 180) / cellDegrees) + 1;
+        long width = Math.min(span, cols);
+        int colFrom = col(west);
+
+        if ((rowTo - rowFrom + 1) * width > cells.size()) {
+            cells.forEach((cell, set) -> {
+                int r = (int) (cell / cols);
+                int c = (int) (cell % cols);
+                int offset = Math.floorMod(c - colFrom, cols);
+                if (r >= rowFrom && r <= rowTo && offset < width) {
+                    set.forEach(visit);
+                }
+            });
+            return;
+        }
+
+        for (int r = rowFrom; r <= rowTo; r++) {
+            for (int i = 0; i < width; i++) {
+                IntHashSet set = cells.get(key(r, (colFrom + i) % cols));
+                if (set != null) {
+                    set.forEach(visit);
+                }
+            }
+        }
+    }
+
+    private void visitRing(int row0, int col0, int ring, IntConsumer visit) {
+        for (int dy = -ring; dy <= ring; dy++) {
+            int r = row0 + dy;
+            if (r < 0 || r >= rows) {
+                continue;
+            }
+            int step = (dy == -ring || dy == ring) ? 1 : 2 * ring;
+            for (int dx = -ring; dx <= ring; dx += Math.max(step, 1)) {
+                IntHashSet set = cells.get(key(r, Math.floorMod(col0 + dx, cols)));
+                if (set != null) {
+                    set.forEach(visit);
+                }
+            }
+        }
+    }
+
+    private int chebyshev(long cell, int row0, int col0) {
+        int dr = Math.abs((int) (cell / cols) - row0);
+        int dc = Math.abs((int) (cell % cols) - col0);
+        return Math.max(dr, Math.min(dc, cols - dc));
+    }
+
+    private void removeFromCell(long cell, int slot) {
+        IntHashSet set = cells.get(cell);
+        if (set != null && set.remove(slot)) {
+            if (set.isEmpty()) {
+                cells.remove(cell);
+            }
+            size--;
+        }
+    }
+
+    private long key(int row, int col) {
+        return (long) row * cols + col;
+    }
+
+    private int row(double lat) {
+        int row = (int) Math.floor((lat + 90) / cellDegrees);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private int col(double lng) {
+        return Math.floorMod((int) Math.floor((lng + 180) / cellDegrees), cols);
+    }
+}
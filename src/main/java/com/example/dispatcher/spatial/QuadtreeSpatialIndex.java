@@ -0,0 +1,260 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.collections.BoundedMaxHeap;
+import com.example.dispatcher.collections.DoubleLongMinHeap;
+import com.example.dispatcher.geo.GeoHashUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * {@link SpatialIndex} as a bucketed region quadtree over (lat, lng).
+ * <p>
+ * A leaf holds up to {@link #BUCKET} slots and splits into four quadrants
+ * when it overflows, down to {@link #MAX_DEPTH} (~2 m); every node counts
+ * the slots below it, so searches skip emptied subtrees in one check.
+ * Nodes are never merged back: the tree only grows where drivers have
+ * been, which for a city is bounded. The tree adapts to density where the
+ * grid and the geohash pyramid use fixed cells.
+ */
+public class QuadtreeSpatialIndex implements SpatialIndex {
+
+    public static final int BUCKET = 16;
+    public static final int MAX_DEPTH = 24;
+
+    private final SlotPositions positions;
+    private final Node root;
+
+    // node ids are heap payloads during a search
+    private final List<Node> nodes = new ArrayList<>();
+
+    // 🔑 reverse index: leaf each slot is filed under
+    private Node[] leafOfSlot = new Node[0];
+
+    private int size;
+
+    public QuadtreeSpatialIndex(SlotPositions positions) {
+        this.positions = positions;
+        this.root = newNode(null, -90, -180, 90, 180);
+    }
+
+    @Override
+    public void upsert(int slot) {
+        double lat = positions.lat(slot);
+        double lng = positions.lng(slot);
+        if (slot >= leafOfSlot.length) {
+            leafOfSlot = Arrays.copyOf(leafOfSlot, Math.max(1024, Math.max(slot + 1, leafOfSlot.length << 1)));
+        }
+        Node previous = leafOfSlot[slot];
+        if (previous != null && descend(lat, lng) == previous) {
+            return;
+        }
+        if (previous != null) {
+            removeFromLeaf(previous, slot);
+        } else {
+            size++;
+        }
+        insert(descend(lat, lng), slot, lat, lng);
+    }
+
+    @Override
+    public void remove(int slot) {
+        if (slot < 0 || slot >= leafOfSlot.length || leafOfSlot[slot] == null) {
+            return;
+        }
+        removeFromLeaf(leafOfSlot[slot], slot);
+        leafOfSlot[slot] = null;
+        size--;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int nearest(double lat, double lng, int k, double radiusMeters, IntPredicate filter,
+                       int[] outSlots, double[] outDistances) {
+
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        DoubleLongMinHeap frontier = new DoubleLongMinHeap();
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+        if (root.count > 0) {
+            frontier.push(0, root.id);
+        }
+
+        while (!frontier.isEmpty()
+                && frontier.peekPriority() <= Math.min(radiusMeters, heap.bound())) {
+
+            Node node = nodes.get((int) frontier.poll());
+
+            if (node.children == null) {
+                batch.add(node.bucket, node.bucketSize);
+                batch.offerTo(heap, radiusMeters, filter);
+                continue;
+            }
+
+            double limit = Math.min(radiusMeters, heap.bound());
+            for (Node child : node.children) {
+                if (child.count == 0) {
+                    continue;
+                }
+                double bound = child.minDistanceMeters(lat, lng);
+                if (bound <= limit) {
+                    frontier.push(bound, child.id);
+                }
+            }
+        }
+
+        return heap.drainAscending(outSlots, outDistances);
+    }
+
+    @Override
+    public void forEachWithin(double lat, double lng, double radiusMeters, IntConsumer action) {
+        CandidateBatch batch = new CandidateBatch(positions, lat, lng);
+        within(root, lat, lng, radiusMeters, batch, action);
+    }
+
+    @Override
+    public void forEachInBox(double south, double west, double north, double east, IntConsumer action) {
+        inBox(root, south, west, north, east, action);
+    }
+
+    private void within(Node node, double lat, double lng, double radiusMeters,
+                        CandidateBatch batch, IntConsumer action) {
+        if (node.count == 0 || node.minDistanceMeters(lat, lng) > radiusMeters) {
+            return;
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                within(child, lat, lng, radiusMeters, batch, action);
+            }
+            return;
+        }
+        batch.add(node.bucket, node.bucketSize);
+        batch.drainWithin(radiusMeters, action);
+    }
+
+    private void inBox(Node node, double south, double west, double north, double east, IntConsumer action) {
+        if (node.count == 0
+                || node.south >= north || node.north <= south
+                || node.west >= east || node.east <= west) {
+            return;
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                inBox(child, south, west, north, east, action);
+            }
+            return;
+        }
+        for (int i = 0; i < node.bucketSize; i++) {
+            int slot = node.bucket[i];
+            double lat = positions.lat(slot);
+            double lng = positions.lng(slot);
+            if (lat >= south && lat < north && lng >= west && lng < east) {
+                action.accept(slot);
+            }
+        }
+    }
+
+    // leaf whose quadrant path the point follows
+    private Node descend(double lat, double lng) {
+        Node node = root;
+        while (node.children != null) {
+            node = node.children[node.quadrant(lat, lng)];
+        }
+        return node;
+    }
+
+    private void insert(Node leaf, int slot, double lat, double lng) {
+        if (leaf.bucketSize == BUCKET && leaf.depth < MAX_DEPTH) {
+            split(leaf);
+            leaf = leaf.children[leaf.quadrant(lat, lng)];
+            insert(leaf, slot, lat, lng);
+            return;
+        }
+        if (leaf.bucketSize == leaf.bucket.length) {
+            leaf.bucket = Arrays.copyOf(leaf.bucket, leaf.bucket.length << 1);
+        }
+        leaf.bucket[leaf.bucketSize++] = slot;
+        leafOfSlot[slot] = leaf;
+        for (Node n = leaf; n != null; n = n.parent) {
+            n.count++;
+        }
+    }
+
+    // moves the bucket down one level; counts above are unchanged
+    private void split(Node leaf) {
+        double midLat = (leaf.south + leaf.north) / 2;
+        double midLng = (leaf.west + leaf.east) / 2;
+        leaf.children = new Node[] {
+                newNode(leaf, leaf.south, leaf.west, midLat, midLng),
+                newNode(leaf, leaf.south, midLng, midLat, leaf.east),
+                newNode(leaf, midLat, leaf.west, leaf.north, midLng),
+                newNode(leaf, midLat, midLng, leaf.north, leaf.east)
+        };
+        for (int i = 0; i < leaf.bucketSize; i++) {
+            int slot = leaf.bucket[i];
+            Node child = leaf.children[leaf.quadrant(positions.lat(slot), positions.lng(slot))];
+            child.bucket[child.bucketSize++] = slot;
+            child.count++;
+            leafOfSlot[slot] = child;
+        }
+        leaf.bucket = null;
+        leaf.bucketSize = 0;
+    }
+
+    private void removeFromLeaf(Node leaf, int slot) {
+        for (int i = 0; i < leaf.bucketSize; i++) {
+            if (leaf.bucket[i] == slot) {
+                leaf.bucket[i] = leaf.bucket[--leaf.bucketSize];
+                for (Node n = leaf; n != null; n = n.parent) {
+                    n.count--;
+                }
+                return;
+            }
+        }
+    }
+
+    private Node newNode(Node parent, double south, double west, double north, double east) {
+        Node node = new Node(nodes.size(), parent, south, west, north, east);
+        nodes.add(node);
+        return node;
+    }
+
+    private static final class Node {
+
+        final int id;
+        final Node parent;
+        final int depth;
+        final double south, west, north, east;
+
+        Node[] children;
+        int[] bucket = new int[BUCKET];
+        int bucketSize;
+        int count;
+
+        Node(int id, Node parent, double south, double west, double north, double east) {
+            this.id = id;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.south = south;
+            this.west = west;
+            this.north = north;
+            this.east = east;
+        }
+
+        // SW, SE, NW, NE; points outside the node clamp to the nearest quadrant
+        int quadrant(double lat, double lng) {
+            int q = lng >= (west + east) / 2 ? 1 : 0;
+            return lat >= (south + north) / 2 ? q + 2 : q;
+        }
+
+        double minDistanceMeters(double lat, double lng) {
+            return GeoHashUtil.boxDistanceMeters(lat, lng, south, west, north, east);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+
+/**
+ * Where each slot currently is. Positions are held once, by the owner of
+ * the slots; a {@link SpatialIndex} reads them through this view instead of
+ * keeping its own copy.
+ */
+public interface SlotPositions {
+
+    double lat(int slot);
+
+    double lng(int slot);
+
+    /**
+     * Distances from the point to {@code slots[0..count)} into {@code out};
+     * a slot may be reported as +infinity when it is beyond
+     * {@code limitMeters}. Returns how many are within the limit.
+     * Array-backed views override this with {@link com.example.dispatcher.geo.DistanceKernel}.
+     */
+    default int distances(double lat, double lng, int[] slots, int count,
+                          double limitMeters, double[] out) {
+        int within = 0;
+        for (int i = 0; i < count; i++) {
+            out[i] = GeoHashUtil.distanceMeters(lat, lng, lat(slots[i]), lng(slots[i]));
+            if (out[i] <= limitMeters) {
+                within++;
+            }
+        }
+        return within;
+    }
+}
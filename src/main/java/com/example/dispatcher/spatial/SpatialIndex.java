@@ -0,0 +1,40 @@
+package com.example.dispatcher.spatial;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Point index over int slots, positions read through {@link SlotPositions}.
+ * <p>
+ * Implementations are not thread-safe; the owner serializes writers
+ * against readers. Distances are great-circle meters, boxes are degrees,
+ * south/west inclusive and north/east exclusive.
+ */
+public interface SpatialIndex {
+
+    /** Files the slot at its current position, moving it if it is already indexed. */
+    void upsert(int slot);
+
+    /** Drops the slot; no-op when it is not indexed. */
+    void remove(int slot);
+
+    int size();
+
+    /**
+     * Up to k indexed slots nearest to the point and within the radius,
+     * nearest first, written to {@code outSlots} / {@code outDistances}
+     * (either may be null when k is 1 and only the count matters).
+     *
+     * @param radiusMeters upper bound on distance, {@code +Infinity} for none
+     * @param filter       optional; slots it rejects are skipped
+     * @return number of slots written
+     */
+    int nearest(double lat, double lng, int k, double radiusMeters, IntPredicate filter,
+                int[] outSlots, double[] outDistances);
+
+    /** Visits every slot within the radius of the point, in no particular order. */
+    void forEachWithin(double lat, double lng, double radiusMeters, IntConsumer action);
+
+    /** Visits every slot inside the box, in no particular order. */
+    void forEachInBox(double south, double west, double north, double east, IntConsumer action);
+}
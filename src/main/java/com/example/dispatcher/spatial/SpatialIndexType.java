@@ -0,0 +1,33 @@
+package com.example.dispatcher.spatial;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/** Available {@link SpatialIndex} implementations, selected by {@code dispatch.spatial-index}. */
+public enum SpatialIndexType {
+
+    GEOHASH(GeohashSpatialIndex::new),
+    GRID(GridSpatialIndex::new),
+    QUADTREE(QuadtreeSpatialIndex::new);
+
+    private final Function<SlotPositions, SpatialIndex> factory;
+
+    SpatialIndexType(Function<SlotPositions, SpatialIndex> factory) {
+        this.factory = factory;
+    }
+
+    public SpatialIndex create(SlotPositions positions) {
+        return factory.apply(positions);
+    }
+
+    public static SpatialIndexType from(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Spatial index type is required");
+        }
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown spatial index type: " + name);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.HeatmapCell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-cell supply/demand counters, kept at every geohash precision from 1
+ * to {@link GeoHashUtil#PRECISION} so a heatmap at any of them is read in
+ * O(populated cells), never by scanning drivers or rides.
+ * <p>
+ * Two gauges (ONLINE drivers, waiting rides) move with every change, and
+ * two event streams (rides requested, rides accepted) are bucketed into
+ * {@value #BUCKET_MS} ms buckets covering the last 15 minutes, so window
+ * sums are exact to one bucket. A move only touches the precisions where
+ * the old and new cell differ. Cells are updated and, once idle, dropped
+ * inside {@link ConcurrentHashMap#compute}, so no count is lost to a
+ * concurrent removal. Thread-safe.
+ */
+public final class CellHeatmap {
+
+    public static final int BUCKET_MS = 15_000;
+
+    // 15 minutes of buckets
+    private static final int BUCKETS = 60;
+    private static final int[] WINDOW_BUCKETS = {4, 20, 60};
+
+    private static final int SUPPLY = 0;
+    private static final int DEMAND = 1;
+    private static final int REQUESTED = 0;
+    private static final int ACCEPTED = 1;
+
+    // levels[p] = counters of precision-p cells
+    private final List<Map<Long, Counters>> levels = new ArrayList<>();
+
+    public CellHeatmap() {
+        for (int p = 0; p <= GeoHashUtil.PRECISION; p++) {
+            levels.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /** An ONLINE driver moved between default-precision cells ({@code NO_CELL} = none). */
+    public void supplyMoved(long fromCell, long toCell) {
+        move(fromCell, toCell, SUPPLY);
+    }
+
+    /** A waiting ride appeared / disappeared at a default-precision cell ({@code NO_CELL} = none). */
+    public void demandMoved(long fromCell, long toCell) {
+        move(fromCell, toCell, DEMAND);
+    }
+
+    public void rideRequested(long cell, long now) {
+        event(cell, now, REQUESTED);
+    }
+
+    public void rideAccepted(long cell, long now) {
+        event(cell, now, ACCEPTED);
+    }
+
+    /** Every populated cell of the given precision, pruning the ones gone idle. */
+    public List<HeatmapCell> cells(int precision, long now) {
+        if (precision < 1 || precision > GeoHashUtil.PRECISION) {
+            throw new IllegalArgumentException("precision must be 1.." + GeoHashUtil.PRECISION);
+        }
+        long bucket = now / BUCKET_MS;
+        Map<Long, Counters> level = levels.get(precision);
+        List<HeatmapCell> result = new ArrayList<>(level.size());
+        List<Long> idle = new ArrayList<>();
+
+        level.forEach((cell, counters) -> {
+            HeatmapCell view = counters.view(GeoHashUtil.toBase32(cell, precision), bucket);
+            if (view == null) {
+                idle.add(cell);
+            } else {
+                result.add(view);
+            }
+        });
+        for (Long cell : idle) {
+            level.computeIfPresent(cell, (k, c) -> c.isIdle(bucket) ? null : c);
+        }
+        return result;
+    }
+
+    private void move(long fromCell, long toCell, int gauge) {
+        if (fromCell == toCell) {
+            return;
+        }
+        for (int p = GeoHashUtil.PRECISION; p >= 1; p--) {
+            long from = fromCell == GeoHashUtil.NO_CELL
+                    ? GeoHashUtil.NO_CELL
+                    : GeoHashUtil.parent(fromCell, GeoHashUtil.PRECISION, p);
+            long to = toCell == GeoHashUtil.NO_CELL
+                    ? GeoHashUtil.NO_CELL
+                    : GeoHashUtil.parent(toCell, GeoHashUtil.PRECISION, p);
+            if (from == to) {
+                // same parent here, so at every coarser precision too
+                return;
+            }
+            Map<Long, Counters> level = levels.get(p);
+            if (from != GeoHashUtil.NO_CELL) {
+                level.compute(from, (k, c) -> {
+                    c = c == null ? new Counters() : c;
+                    c.addGauge(gauge, -1);
+                    return c;
+                });
+            }
+            if (to != GeoHashUtil.NO_CELL) {
+                level.compute(to, (k, c) -> {
+                    c = c == null ? new Counters() : c;
+                    c.addGauge(gauge, 1);
+                    return c;
+                });
+            }
+        }
+    }
+
+    private void event(long cell, long now, int stream) {
+        if (cell == GeoHashUtil.NO_CELL) {
+            return;
+        }
+        long bucket = now / BUCKET_MS;
+        for (int p = GeoHashUtil.PRECISION; p >= 1; p--) {
+            levels.get(p).compute(GeoHashUtil.parent(cell, GeoHashUtil.PRECISION, p), (k, c) -> {
+                c = c == null ? new Counters() : c;
+                c.addEvent(stream, bucket);
+                return c;
+            });
+        }
+    }
+
+    /** One cell's gauges and event buckets; guarded by its own monitor. */
+    private static final class Counters {
+
+        private final int[] gauges = new int[2];
+        private final int[][] events = new int[2][BUCKETS];
+        // absolute bucket number each ring entry currently holds
+        private final long[] bucketOf = new long[BUCKETS];
+
+        Counters() {
+            Arrays.fill(bucketOf, Long.MIN_VALUE);
+        }
+
+        synchronized void addGauge(int gauge, int delta) {
+            gauges[gauge] += delta;
+        }
+
+        synchronized void addEvent(int stream, long bucket) {
+            int i = (int) Math.floorMod(bucket, (long) BUCKETS);
+            if (bucketOf[i] != bucket) {
+                bucketOf[i] = bucket;
+                events[REQUESTED][i] = 0;
+                events[ACCEPTED][i] = 0;
+            }
+            events[stream][i]++;
+        }
+
+        synchronized boolean isIdle(long bucket) {
+            if (gauges[SUPPLY] != 0 || gauges[DEMAND] != 0) {
+                return false;
+            }
+            for (long b : bucketOf) {
+                if (b > bucket - BUCKETS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Null when the cell has nothing to show any more. */
+        synchronized HeatmapCell view(String geoHash, long bucket) {
+            if (isIdle(bucket)) {
+                return null;
+            }
+            return new HeatmapCell(geoHash, gauges[SUPPLY], gauges[DEMAND],
+                    window(REQUESTED, bucket), window(ACCEPTED, bucket));
+        }
+
+        private HeatmapCell.Window window(int stream, long bucket) {
+            int[] sums = new int[WINDOW_BUCKETS.length];
+            for (int back = 0; back < BUCKETS; back++) {
+                long b = bucket - back;
+                int i = (int) Math.floorMod(b, (long) BUCKETS);
+                if (bucketOf[i] != b) {
+                    continue;
+                }
+                for (int w = 0; w < WINDOW_BUCKETS.length; w++) {
+                    if (back < WINDOW_BUCKETS[w]) {
+                        sums[w] += events[stream][i];
+                    }
+                }
+            }
+            return new HeatmapCell.Window(sums[0], sums[1], sums[2]);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.IntHashSet;
+import com.example.dispatcher.collections.LongIntMap;
+import com.example.dispatcher.collections.LongObjectMap;
+import com.example.dispatcher.collections.SingleWriterLongObjectMap;
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.spatial.SlotPositions;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Lock-free read side of one status partition: per default-precision cell,
+ * an immutable {@link CellSnapshot} of the slots in it and their positions.
+ * <p>
+ * The shard's writer records moves against a
+ * private membership map and mark cells dirty; {@link #publish} rebuilds
+ * only the dirty cells and swaps each in with a single map write, so a
+ * batch of moves costs one copy per touched cell. Readers take a cell's
+ * snapshot and scan its arrays with no lock and no iterator.
+ */
+final class CellSnapshots {
+
+    /** Store-wide slots of one cell and their positions as of {@link #version}. */
+    static final class CellSnapshot {
+
+        final long version;
+        final int[] slots;
+        final double[] lats;
+        final double[] lngs;
+
+        CellSnapshot(long version, int[] slots, double[] lats, double[] lngs) {
+            this.version = version;
+            this.slots = slots;
+            this.lats = lats;
+            this.lngs = lngs;
+        }
+    }
+
+    // 🔑 read side, safe to read from any thread; written under the shard's write lock
+    private final SingleWriterLongObjectMap<CellSnapshot> published = new SingleWriterLongObjectMap<>(1024);
+
+    // writer side, keyed by shard slot, guarded by the shard's write lock
+    private final LongObjectMap<IntHashSet> members = new LongObjectMap<>(1024);
+    private long[] cellOfSlot = new long[0];
+    private final LongIntMap dirtyMarks = new LongIntMap(64);
+    private long[] dirty = new long[64];
+    private int dirtyCount;
+
+    CellSnapshot get(long cell) {
+        return published.get(cell);
+    }
+
+    /** Files the slot under the cell, or refreshes its position there. */
+    void put(int slot, long cell) {
+        if (slot >= cellOfSlot.length) {
+            int from = cellOfSlot.length;
+            cellOfSlot = Arrays.copyOf(cellOfSlot, Math.max(1024, Math.max(slot + 1, from << 1)));
+            Arrays.fill(cellOfSlot, from, cellOfSlot.length, GeoHashUtil.NO_CELL);
+        }
+        long previous = cellOfSlot[slot];
+        if (previous != cell) {
+            if (previous != GeoHashUtil.NO_CELL) {
+                leave(previous, slot);
+            }
+            IntHashSet set = members.get(cell);
+            if (set == null) {
+                set = new IntHashSet();
+                members.put(cell, set);
+            }
+            set.add(slot);
+            cellOfSlot[slot] = cell;
+        }
+        markDirty(cell);
+    }
+
+    void remove(int slot) {
+        if (slot < cellOfSlot.length && cellOfSlot[slot] != GeoHashUtil.NO_CELL) {
+            leave(cellOfSlot[slot], slot);
+            cellOfSlot[slot] = GeoHashUtil.NO_CELL;
+        }
+    }
+
+    /**
+     * Rebuilds every dirty cell from the current positions, stamped with
+     * {@code version}; {@code storeSlot} maps shard slots to the ids readers see.
+     */
+    void publish(long version, SlotPositions positions, IntUnaryOperator storeSlot) {
+        for (int i = 0; i < dirtyCount; i++) {
+            long cell = dirty[i];
+            dirtyMarks.addTo(cell, -1);
+            IntHashSet set = members.get(cell);
+            if (set == null) {
+                published.remove(cell);
+                continue;
+            }
+            int[] slots = new int[set.size()];
+            int n = set.toArray(slots);
+            double[] lats = new double[n];
+            double[] lngs = new double[n];
+            for (int j = 0; j < n; j++) {
+                lats[j] = positions.lat(slots[j]);
+                lngs[j] = positions.lng(slots[j]);
+                slots[j] = storeSlot.applyAsInt(slots[j]);
+            }
+            published.put(cell, new CellSnapshot(version, slots, lats, lngs));
+        }
+        dirtyCount = 0;
+    }
+
+    private void leave(long cell, int slot) {
+        IntHashSet set = members.get(cell);
+        if (set != null && set.remove(slot) && set.isEmpty()) {
+            members.remove(cell);
+        }
+        markDirty(cell);
+    }
+
+    private void markDirty(long cell) {
+        if (dirtyMarks.get(cell) != 0) {
+            return;
+        }
+        dirtyMarks.addTo(cell, 1);
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount << 1);
+        }
+        dirty[dirtyCount++] = cell;
+    }
+}
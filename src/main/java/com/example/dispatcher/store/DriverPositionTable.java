@@ -0,0 +1,121 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.DistanceKernel;
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.spatial.SlotPositions;
+
+import java.util.Arrays;
+
+/**
+ * Driver positions as a struct of arrays addressed by slot: latitude,
+ * longitude, status, default-precision cell and last ping time each in
+ * its own primitive array, so the spatial index reads contiguous memory
+ * instead of chasing Driver → Location per candidate.
+ * <p>
+ * This is the index's view of where drivers are, one table per geo shard,
+ * written by the shard's writer under its write lock together with the
+ * index itself. Not thread-safe.
+ */
+public final class DriverPositionTable implements SlotPositions {
+
+    private static final DriverStatus[] STATUSES = DriverStatus.values();
+    private static final byte NO_STATUS = -1;
+
+    private double[] lat;
+    private double[] lng;
+    private byte[] status;
+    private long[] cell;
+    private long[] lastPingAt;
+
+    // slots in use are [0, size)
+    private int size;
+
+    public DriverPositionTable(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("initialCapacity must be > 0");
+        }
+        lat = new double[initialCapacity];
+        lng = new double[initialCapacity];
+        status = new byte[initialCapacity];
+        cell = new long[initialCapacity];
+        lastPingAt = new long[initialCapacity];
+        Arrays.fill(status, NO_STATUS);
+        Arrays.fill(cell, GeoHashUtil.NO_CELL);
+    }
+
+    /** Writes the slot's row, growing the table as needed. */
+    public void set(int slot, double lat, double lng, DriverStatus status, long cell, long pingAt) {
+        ensureCapacity(slot + 1);
+        this.lat[slot] = lat;
+        this.lng[slot] = lng;
+        this.status[slot] = (byte) status.ordinal();
+        this.cell[slot] = cell;
+        this.lastPingAt[slot] = pingAt;
+        size = Math.max(size, slot + 1);
+    }
+
+    public void setStatus(int slot, DriverStatus status) {
+        checkSlot(slot);
+        this.status[slot] = (byte) status.ordinal();
+    }
+
+    @Override
+    public double lat(int slot) {
+        return lat[slot];
+    }
+
+    @Override
+    public double lng(int slot) {
+        return lng[slot];
+    }
+
+    @Override
+    public int distances(double lat, double lng, int[] slots, int count,
+                         double limitMeters, double[] out) {
+        return DistanceKernel.distances(lat, lng, this.lat, this.lng, slots, count, limitMeters, out);
+    }
+
+    /** Status at the last write, or null for a slot never written. */
+    public DriverStatus status(int slot) {
+        checkSlot(slot);
+        byte s = status[slot];
+        return s == NO_STATUS ? null : STATUSES[s];
+    }
+
+    public long cell(int slot) {
+        checkSlot(slot);
+        return cell[slot];
+    }
+
+    public long lastPingAt(int slot) {
+        checkSlot(slot);
+        return lastPingAt[slot];
+    }
+
+    /** One past the highest slot written. */
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= lat.length) {
+            return;
+        }
+        int from = lat.length;
+        int grown = Math.max(capacity, from << 1);
+        lat = Arrays.copyOf(lat, grown);
+        lng = Arrays.copyOf(lng, grown);
+        status = Arrays.copyOf(status, grown);
+        cell = Arrays.copyOf(cell, grown);
+        lastPingAt = Arrays.copyOf(lastPingAt, grown);
+        Arrays.fill(status, from, grown, NO_STATUS);
+        Arrays.fill(cell, from, grown, GeoHashUtil.NO_CELL);
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IllegalArgumentException("Unknown slot: " + slot);
+        }
+    }
+}
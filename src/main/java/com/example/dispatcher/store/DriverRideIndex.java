@@ -0,0 +1,110 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.ConcurrentLongObjectMap;
+
+import java.util.Arrays;
+
+/**
+ * Rides each driver was involved in (pinged for, assigned to), newest
+ * last, so a driver's rides are found without scanning every ride.
+ * <p>
+ * Per driver: a ring of ride ids holding the last {@code history} rides,
+ * each numbered by its position in the driver's history (0, 1, 2, ...).
+ * Those positions are the pagination cursors: a page walks backwards from
+ * a position, and stays stable while newer rides are added. A ride is
+ * recorded once however often the driver touches it. Rides whose id is not
+ * store-issued are not indexed. Thread-safe: one monitor per driver.
+ */
+public final class DriverRideIndex {
+
+    public static final int DEFAULT_HISTORY = 200;
+
+    private final int history;
+    private final ConcurrentLongObjectMap<Rides> byDriver = new ConcurrentLongObjectMap<>();
+
+    public DriverRideIndex() {
+        this(DEFAULT_HISTORY);
+    }
+
+    public DriverRideIndex(int history) {
+        if (history <= 0) {
+            throw new IllegalArgumentException("history must be > 0");
+        }
+        this.history = history;
+    }
+
+    /** The driver was pinged for / assigned to the ride. */
+    public void record(long driverId, long rideId) {
+        if (driverId < 0 || rideId < 0) {
+            return;
+        }
+        Rides rides = byDriver.get(driverId);
+        if (rides == null) {
+            Rides created = new Rides(Math.min(4, history));
+            rides = byDriver.putIfAbsent(driverId, created);
+            if (rides == null) {
+                rides = created;
+            }
+        }
+        rides.add(rideId, history);
+    }
+
+    /**
+     * Up to {@code limit} ride ids of the driver, newest first, starting
+     * below {@code before} (a position from an earlier page; {@code
+     * Long.MAX_VALUE} for the newest).
+     */
+    public Page page(long driverId, long before, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        Rides rides = byDriver.get(driverId);
+        return rides == null ? Page.EMPTY : rides.page(before, limit);
+    }
+
+    /**
+     * One page of ride ids, newest first; {@code next} is the cursor for
+     * the following page, -1 when this is the last one.
+     */
+    public record Page(long[] rideIds, long next) {
+        static final Page EMPTY = new Page(new long[0], -1);
+    }
+
+    private static final class Rides {
+
+        private long[] ring;
+        // rides ever recorded; the newest sits at position total - 1
+        private long total;
+
+        Rides(int capacity) {
+            ring = new long[capacity];
+        }
+
+        synchronized void add(long rideId, int history) {
+            long oldest = Math.max(0, total - ring.length);
+            for (long p = total - 1; p >= oldest; p--) {
+                if (ring[(int) (p % ring.length)] == rideId) {
+                    return;
+                }
+            }
+            if (total == ring.length && ring.length < history) {
+                // still filling: positions equal indices, so growing keeps them in place
+                ring = Arrays.copyOf(ring, Math.min(history, ring.length << 1));
+            }
+            ring[(int) (total % ring.length)] = rideId;
+            total++;
+        }
+
+        synchronized Page page(long before, int limit) {
+            long oldest = Math.max(0, total - ring.length);
+            long from = Math.min(before, total);
+            int n = (int) Math.max(0, Math.min(limit, from - oldest));
+            long[] ids = new long[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = ring[(int) ((from - 1 - i) % ring.length)];
+            }
+            long next = from - n > oldest ? from - n : -1;
+            return new Page(ids, next);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary form of drivers and rides, shared by the {@link RideArchive}
+ * and the {@link StoreJournal}. A record is the entity's full state, so
+ * reading a later record of the same entity simply replaces the earlier one.
+ * Runtime-only state (locks, timers, listeners) is not part of it.
+ */
+final class EntityCodec {
+
+    private static final DriverStatus[] DRIVER_STATUSES = DriverStatus.values();
+    private static final RideStatus[] RIDE_STATUSES = RideStatus.values();
+
+    private static final int CANCELLED_AFTER_ACCEPT = 1;
+    private static final int HAS_PICKUP = 2;
+    private static final int HAS_DROP = 4;
+    private static final int HAS_DRIVER = 8;
+
+    private static final int HAS_LOCATION = 1;
+    private static final int HAS_RIDE = 2;
+
+    private EntityCodec() {
+    }
+
+    static void writeRide(DataOutput out, Ride ride) throws IOException {
+        int flags = (ride.isCancelledAfterAccept() ? CANCELLED_AFTER_ACCEPT : 0)
+                | (ride.getPickup() != null ? HAS_PICKUP : 0)
+                | (ride.getDrop() != null ? HAS_DROP : 0)
+                | (ride.getAssignedDriverId() != null ? HAS_DRIVER : 0);
+        out.writeUTF(ride.getId());
+        out.writeByte(ride.getStatus().ordinal());
+        out.writeByte(flags);
+        if (ride.getPickup() != null) {
+            out.writeDouble(ride.getPickup().lat());
+            out.writeDouble(ride.getPickup().lng());
+        }
+        if (ride.getDrop() != null) {
+            out.writeDouble(ride.getDrop().lat());
+            out.writeDouble(ride.getDrop().lng());
+        }
+        if (ride.getAssignedDriverId() != null) {
+            out.writeUTF(ride.getAssignedDriverId());
+        }
+        out.writeLong(ride.getRequestedAt());
+        out.writeLong(ride.getAcceptedAt());
+        out.writeLong(ride.getFinishedAt());
+        // one pass, so the count always matches the entries written
+        List<String> pinged = new ArrayList<>();
+        for (String driverId : ride.getPingedDrivers()) {
+            pinged.add(driverId);
+        }
+        out.writeInt(pinged.size());
+        for (String driverId : pinged) {
+            out.writeUTF(driverId);
+            out.writeBoolean(ride.getPingedDrivers().isExpired(driverId));
+        }
+    }
+
+    static Ride readRide(DataInput in) throws IOException {
+        Ride ride = new Ride(in.readUTF());
+        RideStatus status = RIDE_STATUSES[in.readByte()];
+        int flags = in.readByte();
+        if ((flags & HAS_PICKUP) != 0) {
+            ride.setPickup(new Location(in.readDouble(), in.readDouble()));
+        }
+        if ((flags & HAS_DROP) != 0) {
+            ride.setDrop(new Location(in.readDouble(), in.readDouble()));
+        }
+        if ((flags & HAS_DRIVER) != 0) {
+            ride.setAssignedDriverId(in.readUTF());
+        }
+        if ((flags & CANCELLED_AFTER_ACCEPT) != 0) {
+            ride.markCancelledAfterAccept();
+        }
+        ride.restoreTimes(in.readLong(), in.readLong(), in.readLong());
+        int pinged = in.readInt();
+        for (int i = 0; i < pinged; i++) {
+            String driverId = in.readUTF();
+            ride.getPingedDrivers().add(driverId);
+            if (in.readBoolean()) {
+                ride.getPingedDrivers().expire(driverId);
+            }
+        }
+        ride.setStatus(status);
+        return ride;
+    }
+
+    static void writeDriver(DataOutput out, Driver driver) throws IOException {
+        Location at = driver.getLocation();
+        String rideId = driver.getAssignedRideId();
+        out.writeLong(driver.getNumericId());
+        out.writeByte(driver.getStatus().ordinal());
+        out.writeByte((at != null ? HAS_LOCATION : 0) | (rideId != null ? HAS_RIDE : 0));
+        if (at != null) {
+            out.writeDouble(at.lat());
+            out.writeDouble(at.lng());
+        }
+        if (rideId != null) {
+            out.writeUTF(rideId);
+        }
+        out.writeLong(driver.getLastStateChangeAt());
+        out.writeInt(driver.getRejectCount());
+        out.writeInt(driver.getTimeoutCount());
+    }
+
+    static Driver readDriver(DataInput in) throws IOException {
+        Driver driver = new Driver(in.readLong());
+        DriverStatus status = DRIVER_STATUSES[in.readByte()];
+        int flags = in.readByte();
+        if ((flags & HAS_LOCATION) != 0) {
+            driver.updateLocation(new Location(in.readDouble(), in.readDouble()));
+        }
+        String rideId = (flags & HAS_RIDE) != 0 ? in.readUTF() : null;
+        driver.restoreState(status, in.readLong(), in.readInt(), in.readInt(), rideId);
+        return driver;
+    }
+}
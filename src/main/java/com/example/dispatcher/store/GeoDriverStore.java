@@ -1,62 +1,538 @@
 package com.example.dispatcher.store;
 
+import com.example.dispatcher.collections.BoundedMaxHeap;
+import com.example.dispatcher.collections.IntHashSet;
+import com.example.dispatcher.geo.DistanceKernel;
+import com.example.dispatcher.geo.GeoHashUtil;
 import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
 import com.example.dispatcher.model.GeoDriver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.spatial.SpatialIndex;
+import com.example.dispatcher.spatial.SpatialIndexType;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Component
 public class GeoDriverStore {
 
+    private static final DriverStatus[] STATUSES = DriverStatus.values();
+
+    /** Snapshot searches stop here: ~40 km north-south at the default precision. */
+    public static final int SNAPSHOT_MAX_RINGS = 64;
+
+    /** Drivers are sharded by their cell's prefix at this precision (~4.9 km cells). */
+    public static final int SHARD_PRECISION = 5;
+
+    private static final int SNAPSHOT_CHUNK = 32;
+
     // 🔑 Source of truth
     private final Map<String, GeoDriver> driversById = new ConcurrentHashMap<>();
 
-    // 🔑 Geo index
-    private final Map<String, Set<String>> geoIndex = new ConcurrentHashMap<>();
+    // 🔑 Geo index, split by coarse prefix: each shard owns its drivers'
+    //    positions, status partitions and cell snapshots, and is only written
+    //    by its own writer thread (see GeoShard); dispatch only ever reads ONLINE
+    private final GeoShard[] shards;
+
+    // store-wide slots, stable for a driver's lifetime whatever shard owns it;
+    // volatile: grown under registerLock, read without it
+    private volatile GeoDriver[] slots = new GeoDriver[1024];
+    private volatile int nextSlot;
+    private final Object registerLock = new Object();
+
+    private final long silenceMs;
+
+    private volatile SupplyListener supplyListener;
+    private volatile boolean closed;
+
+    public GeoDriverStore() {
+        this(SpatialIndexType.GEOHASH);
+    }
+
+    @Autowired
+    public GeoDriverStore(@Value("${dispatch.spatial-index:geohash}") String indexType,
+                          @Value("${dispatch.geo.shards:1}") int shards,
+                          @Value("${dispatch.driver.silence-ms:0}") long silenceMs) {
+        this(SpatialIndexType.from(indexType), shards, silenceMs, Clock.systemUTC());
+    }
+
+    public GeoDriverStore(SpatialIndexType indexType) {
+        this(indexType, 1, 0, Clock.systemUTC());
+    }
+
+    public GeoDriverStore(SpatialIndexType indexType, long silenceMs, Clock clock) {
+        this(indexType, 1, silenceMs, clock);
+    }
+
+    /**
+     * @param shards    writer shards; each runs its own writer thread
+     * @param silenceMs drivers with no location for this long are dropped
+     *                  from the index by {@link #evictSilent()}; 0 disables
+     */
+    public GeoDriverStore(SpatialIndexType indexType, int shards, long silenceMs, Clock clock) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("shards must be > 0");
+        }
+        if (silenceMs < 0) {
+            throw new IllegalArgumentException("silence must be >= 0");
+        }
+        this.silenceMs = silenceMs;
+        this.shards = new GeoShard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new GeoShard(i, this, indexType, silenceMs, evictionTickMs(silenceMs), clock);
+        }
+        for (GeoShard shard : this.shards) {
+            shard.start();
+        }
+    }
+
+    /** Stops the shard writers; writes after this throw {@link IllegalStateException}. */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        for (GeoShard shard : shards) {
+            shard.stop();
+        }
+    }
 
+    /** Told about every change of where ONLINE drivers are; one listener, null to detach. */
+    public void setSupplyListener(SupplyListener listener) {
+        this.supplyListener = listener;
+    }
+
+    /**
+     * Files the driver at its current location; returns once its shard
+     * applied it, so never call it holding a ride or driver lock.
+     */
     public void addOrUpdate(Driver driver) {
 
-        if (driver == null || driver.getId() == null || driver.getLocation() == null) {
-            throw new IllegalArgumentException("Invalid driver");
+        validate(driver);
+
+        GeoShard.Ticket ticket = new GeoShard.Ticket(1);
+        submit(GeoShard.Kind.LOCATE, entryOf(driver), ticket);
+        ticket.await();
+    }
+
+    /** Files a batch of drivers: each shard applies its share under one write lock. */
+    public void addOrUpdateAll(Collection<Driver> drivers) {
+
+        drivers.forEach(GeoDriverStore::validate);
+
+        GeoShard.Ticket ticket = new GeoShard.Ticket(drivers.size());
+        for (Driver driver : drivers) {
+            submit(GeoShard.Kind.LOCATE, entryOf(driver), ticket);
+        }
+        ticket.await();
+    }
+
+    /**
+     * Moves indexed drivers by slot: driver i goes to ({@code lats[i]},
+     * {@code lngs[i]}), under the driver's lock. Slots never registered
+     * are skipped, and so is a driver whose lock is held right now (a ride
+     * transition): its next position lands instead of waiting here.
+     * Returns how many were applied.
+     */
+    public int moveAll(int[] driverSlots, double[] lats, double[] lngs, int count) {
+        GeoDriver[] entries = new GeoDriver[count];
+        int registered = nextSlot;
+        GeoDriver[] slots = this.slots;
+        int applied = 0;
+        for (int i = 0; i < count; i++) {
+            int slot = driverSlots[i];
+            if (slot < 0 || slot >= registered) {
+                continue;
+            }
+            Driver driver = slots[slot].getDriver();
+            boolean locked = false;
+            try {
+                locked = driver.tryLock(0);
+                if (!locked) {
+                    continue;
+                }
+                driver.updateLocation(new Location(lats[i], lngs[i]));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                if (locked) driver.unlock();
+            }
+            entries[applied++] = slots[slot];
+        }
+
+        GeoShard.Ticket ticket = new GeoShard.Ticket(applied);
+        for (int i = 0; i < applied; i++) {
+            submit(GeoShard.Kind.LOCATE, entries[i], ticket);
         }
+        ticket.await();
+        return applied;
+    }
+
+    /** Slot the driver is indexed under (binary telemetry addresses drivers by it), or -1. */
+    public int slotOf(String driverId) {
+        GeoDriver entry = driversById.get(driverId);
+        return entry == null ? -1 : entry.getSlot();
+    }
+
+    /** One past the highest slot handed out. */
+    public int slotCount() {
+        return nextSlot;
+    }
 
-        String driverId = driver.getId();
-        String geoHash = driver.getGeoHash();
+    public int shardCount() {
+        return shards.length;
+    }
 
-        driversById.compute(driverId, (id, existing) -> {
-            if (existing == null) {
-                return new GeoDriver(
-                        driverId,
-                        driver.getLocation().lat(),
-                        driver.getLocation().lng()
-                );
+    /**
+     * Drops drivers silent for the configured window from the index; they
+     * come back on their next location. Returns how many were dropped.
+     */
+    public int evictSilent() {
+        if (silenceMs == 0) {
+            return 0;
+        }
+        GeoShard.Ticket ticket = new GeoShard.Ticket(shards.length);
+        for (GeoShard shard : shards) {
+            shard.submit(new GeoShard.Op(GeoShard.Kind.EVICT, null, ticket));
+        }
+        ticket.await();
+        return ticket.evicted();
+    }
+
+    /** How often {@link #evictSilent()} should run, 0 when eviction is off. */
+    public long evictionTickMs() {
+        return silenceMs == 0 ? 0 : evictionTickMs(silenceMs);
+    }
+
+    private static long evictionTickMs(long silenceMs) {
+        return Math.max(1, silenceMs / 64);
+    }
+
+    // 🔍 Lookup by cell codes (default precision)
+    public List<GeoDriver> find(long[] cells) {
+        List<GeoDriver> result = new ArrayList<>();
+        forEach(cells, cells.length, result::add);
+        return result;
+    }
+
+    // 🔍 Visit drivers in the first count cells (default precision), without building a list
+    public void forEach(long[] cells, int count, Consumer<GeoDriver> action) {
+        double[] bounds = new double[4];
+        for (int i = 0; i < count; i++) {
+            GeoShard shard = shards[shardOf(cells[i], GeoHashUtil.PRECISION)];
+            GeoHashUtil.cellBounds(cells[i], GeoHashUtil.PRECISION, bounds);
+            shard.lock.readLock().lock();
+            try {
+                shard.forEachInBox(bounds, action);
+            } finally {
+                shard.lock.readLock().unlock();
             }
-            existing.setLatitude(driver.getLocation().lat());
-            existing.setLongitude(driver.getLocation().lng());
-            return existing;
-        });
+        }
+    }
+
+    /**
+     * k nearest drivers to the point, nearest first; the search itself is
+     * the configured {@link SpatialIndex}, run on each shard's partitions
+     * with every shard read-locked. A driver is seen at most once; one
+     * mid-handoff (released by its old shard, not yet filed by the new one)
+     * is briefly missing.
+     *
+     * @param radiusMeters upper bound on distance, {@code +Infinity} for none
+     * @param status       only this status partition is read; null for all
+     * @param filter       optional; drivers it rejects are skipped
+     */
+    public List<GeoDriver> nearest(
+            double lat,
+            double lng,
+            int k,
+            double radiusMeters,
+            DriverStatus status,
+            Predicate<GeoDriver> filter
+    ) {
+
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be > 0");
+        }
+        if (!(radiusMeters > 0)) {
+            throw new IllegalArgumentException("radius must be > 0");
+        }
+
+        lockAll();
+        try {
+            // never more results than drivers: a huge k must not size the buffers
+            k = Math.min(k, Math.max(nextSlot, 1));
+            int[] found = new int[k];
+            double[] distances = new double[k];
+            BoundedMaxHeap merged = new BoundedMaxHeap(k);
 
-        // 🔄 Maintain geo index
-        geoIndex.values().forEach(set -> set.remove(driverId));
-        geoIndex.computeIfAbsent(geoHash, k -> ConcurrentHashMap.newKeySet())
-                .add(driverId);
+            for (GeoShard shard : shards) {
+                shard.nearest(lat, lng, k, radiusMeters, status, filter, found, distances, merged);
+            }
+
+            int n = merged.drainAscending(found, null);
+            GeoDriver[] slots = this.slots;
+            List<GeoDriver> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(slots[found[i]]);
+            }
+            return result;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * {@link #nearest} without taking any lock, over the per-cell snapshots
+     * each cell's shard published after its last write batch: rings of
+     * default-precision cells around the point, each cell's arrays run
+     * through {@link DistanceKernel}, until the next ring's lower bound
+     * cannot beat the radius or the k-th best. Searches at most
+     * {@link #SNAPSHOT_MAX_RINGS} rings out. Like {@link #nearest}, returns
+     * a driver at most once and may briefly miss one mid-handoff.
+     *
+     * @param status only this status partition is read; null for all
+     */
+    public List<GeoDriver> nearestSnapshot(
+            double lat,
+            double lng,
+            int k,
+            double radiusMeters,
+            DriverStatus status,
+            Predicate<GeoDriver> filter
+    ) {
+
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be > 0");
+        }
+        if (!(radiusMeters > 0)) {
+            throw new IllegalArgumentException("radius must be > 0");
+        }
+
+        long center = GeoHashUtil.encodeCell(lat, lng);
+        long[] ring = new long[GeoHashUtil.ringSize(SNAPSHOT_MAX_RINGS)];
+        double[] distances = new double[SNAPSHOT_CHUNK];
+        BoundedMaxHeap heap = new BoundedMaxHeap(k);
+        // a driver that moved can turn up in an old cell's snapshot and again
+        // in its new one (same shard or not); each slot is offered once
+        IntHashSet offered = new IntHashSet();
+
+        for (int r = 0; r <= SNAPSHOT_MAX_RINGS; r++) {
+            double limit = Math.min(radiusMeters, heap.bound());
+            if (GeoHashUtil.ringLowerBoundMeters(center, lat, lng, r) > limit) {
+                break;
+            }
+            int cells = GeoHashUtil.ring(center, r, ring);
+            for (DriverStatus s : STATUSES) {
+                if (status != null && s != status) {
+                    continue;
+                }
+                for (int i = 0; i < cells; i++) {
+                    limit = Math.min(radiusMeters, heap.bound());
+                    if (r > 0 && GeoHashUtil.minDistanceMeters(ring[i], GeoHashUtil.PRECISION, lat, lng) > limit) {
+                        continue;
+                    }
+                    CellSnapshots.CellSnapshot snapshot =
+                            shards[shardOf(ring[i], GeoHashUtil.PRECISION)].snapshot(s, ring[i]);
+                    if (snapshot == null) {
+                        continue;
+                    }
+                    // read after the snapshot, so it holds every driver in it
+                    GeoDriver[] slots = this.slots;
+                    // in chunks, so the k-th best tightens the prefilter as it goes
+                    int n = snapshot.slots.length;
+                    for (int from = 0; from < n; from += SNAPSHOT_CHUNK) {
+                        int count = Math.min(SNAPSHOT_CHUNK, n - from);
+                        limit = Math.min(radiusMeters, heap.bound());
+                        if (DistanceKernel.distances(lat, lng, snapshot.lats, snapshot.lngs,
+                                from, count, limit, distances) == 0) {
+                            continue;
+                        }
+                        for (int j = 0; j < count; j++) {
+                            int slot = snapshot.slots[from + j];
+                            if (distances[j] <= limit
+                                    && (filter == null || filter.test(slots[slot]))
+                                    && offered.add(slot)) {
+                                heap.offer(slot, distances[j]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] found = new int[heap.size()];
+        int n = heap.drainAscending(found, null);
+        GeoDriver[] slots = this.slots;
+        List<GeoDriver> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(slots[found[i]]);
+        }
+        return result;
     }
 
-    // 🔍 Lookup by geohash set
+    /** k nearest drivers across every status partition. */
+    public List<GeoDriver> nearest(
+            double lat,
+            double lng,
+            int k,
+            double radiusMeters,
+            Predicate<GeoDriver> filter
+    ) {
+        return nearest(lat, lng, k, radiusMeters, null, filter);
+    }
+
+    /** Drivers of the given status inside a geohash cell of any precision. */
+    public int count(DriverStatus status, int precision, long cell) {
+        if (precision >= SHARD_PRECISION) {
+            GeoShard shard = shards[shardOf(cell, precision)];
+            shard.lock.readLock().lock();
+            try {
+                return shard.count(status, precision, cell);
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        // coarser than a shard prefix: every shard may hold part of it
+        lockAll();
+        try {
+            int count = 0;
+            for (GeoShard shard : shards) {
+                count += shard.count(status, precision, cell);
+            }
+            return count;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // 🔍 Lookup by geohash set (API boundary)
     public List<GeoDriver> find(Set<String> geoHashes) {
-        return geoHashes.stream()
-                .map(geoIndex::get)
-                .filter(Objects::nonNull)
-                .flatMap(Set::stream)
-                .map(driversById::get)
-                .filter(Objects::nonNull)
-                .toList();
+        return find(geoHashes.stream()
+                .mapToLong(GeoHashUtil::fromBase32)
+                .toArray());
     }
 
     // ✅ Required for unit tests
     public GeoDriver get(String driverId) {
         return driversById.get(driverId);
     }
+
+    /** When the driver's location last reached the index (epoch ms), or -1 if never. */
+    public long lastPingAt(String driverId) {
+        GeoDriver entry = driversById.get(driverId);
+        if (entry == null) {
+            return -1;
+        }
+        while (true) {
+            int owner = entry.getShard();
+            GeoShard shard = shards[owner];
+            shard.lock.readLock().lock();
+            try {
+                // handed off since we looked: ask the new owner
+                if (entry.getShard() == owner) {
+                    return shard.lastPingAt(entry);
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+    }
+
+    /** Shard owning a cell of the given precision (at least {@link #SHARD_PRECISION}). */
+    int shardOf(long cell, int precision) {
+        if (shards.length == 1) {
+            return 0;
+        }
+        long prefix = GeoHashUtil.parent(cell, precision, SHARD_PRECISION);
+        // spread neighbouring prefixes, so one city lands on every shard
+        return Math.floorMod(Long.hashCode(prefix * 0x9E3779B97F4A7C15L), shards.length);
+    }
+
+    // called by shard writers
+    void supplyMoved(long fromCell, long toCell) {
+        SupplyListener listener = supplyListener;
+        if (listener != null && fromCell != toCell) {
+            listener.onSupplyMove(fromCell, toCell);
+        }
+    }
+
+    GeoShard shard(int id) {
+        return shards[id];
+    }
+
+    private static void validate(Driver driver) {
+        if (driver == null || driver.getId() == null || driver.getLocation() == null) {
+            throw new IllegalArgumentException("Invalid driver");
+        }
+    }
+
+    private GeoDriver entryOf(Driver driver) {
+        GeoDriver entry = driversById.get(driver.getId());
+        if (entry != null) {
+            return entry;
+        }
+        synchronized (registerLock) {
+            entry = driversById.get(driver.getId());
+            if (entry == null) {
+                entry = register(driver);
+            }
+            return entry;
+        }
+    }
+
+    // caller holds registerLock
+    private GeoDriver register(Driver driver) {
+        int slot = nextSlot;
+        GeoDriver entry = new GeoDriver(driver, slot);
+        Location location = driver.getLocation();
+        entry.setShard(shardOf(GeoHashUtil.encodeCell(location.lat(), location.lng()), GeoHashUtil.PRECISION));
+        GeoDriver[] grown = slots;
+        if (slot == grown.length) {
+            grown = Arrays.copyOf(grown, grown.length << 1);
+        }
+        grown[slot] = entry;
+        // publish the array, then the slot count readers check against
+        slots = grown;
+        nextSlot = slot + 1;
+        driversById.put(driver.getId(), entry);
+        driver.attachStatusListener(this::onStatusChange);
+        return entry;
+    }
+
+    private void submit(GeoShard.Kind kind, GeoDriver entry, GeoShard.Ticket ticket) {
+        shards[entry.getShard()].submit(new GeoShard.Op(kind, entry, ticket));
+    }
+
+    // 🔄 every status transition re-files the driver under its new partition
+    private void onStatusChange(Driver driver, DriverStatus from, DriverStatus to) {
+        GeoDriver entry = driversById.get(driver.getId());
+        if (entry == null) {
+            return;
+        }
+        // applied inline: callers hold ride / driver locks, so no waiting on
+        // a shard queue; nothing reads the index once the store is closed
+        while (!closed && !shards[entry.getShard()].applyStatus(entry)) {
+            // handed off since we looked: ask the new owner
+        }
+    }
+
+    // shards always locked in index order; writers only ever take their own
+    private void lockAll() {
+        for (GeoShard shard : shards) {
+            shard.lock.readLock().lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = shards.length - 1; i >= 0; i--) {
+            shards[i].lock.readLock().unlock();
+        }
+    }
 }
@@ -0,0 +1,417 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.BoundedMaxHeap;
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.GeoDriver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.spatial.GeohashSpatialIndex;
+import com.example.dispatcher.spatial.SpatialIndex;
+import com.example.dispatcher.spatial.SpatialIndexType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * One geo shard of {@link GeoDriverStore}: the drivers whose cell falls
+ * under the shard's coarse prefixes, with their own position table,
+ * status partitions, cell snapshots and silence wheel.
+ * <p>
+ * Only the shard's writer thread mutates it, except for status changes,
+ * which the changing thread applies itself under the write lock (see
+ * {@link #applyStatus}) rather than queue and wait. Any thread may submit an
+ * {@link Op} (the queue is multi-producer, single-consumer); the writer
+ * drains whatever is queued, applies it under one write lock and
+ * publishes the snapshots once per drain. A driver whose new cell belongs
+ * to another shard is released here and its op handed to that shard's
+ * queue, after this shard has published; until the new shard applies it,
+ * the driver is in neither. Locked readers take the read lock and see a
+ * driver at most once, possibly briefly missing; lock-free readers visit
+ * snapshots one at a time, so they may also meet it in an old snapshot
+ * and a new one, and dedupe by slot.
+ */
+final class GeoShard {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoShard.class);
+
+    private static final DriverStatus[] STATUSES = DriverStatus.values();
+
+    // most ops applied per write lock
+    private static final int MAX_DRAIN = 4096;
+
+    enum Kind { LOCATE, EVICT }
+
+    /** Work for a shard writer; {@code entry} is null for {@link Kind#EVICT}. */
+    record Op(Kind kind, GeoDriver entry, Ticket ticket) {
+    }
+
+    /** Completion of one store call, counted down as its ops land. */
+    static final class Ticket {
+
+        private final CountDownLatch pending;
+        private final AtomicInteger evicted = new AtomicInteger();
+
+        Ticket(int ops) {
+            this.pending = new CountDownLatch(ops);
+        }
+
+        void done() {
+            pending.countDown();
+        }
+
+        /** Blocks until every op landed; gives up quietly if interrupted. */
+        void await() {
+            try {
+                pending.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int evicted() {
+            return evicted.get();
+        }
+    }
+
+    private final int id;
+    private final GeoDriverStore store;
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 🔑 one SpatialIndex per DriverStatus over shard slots
+    private final EnumMap<DriverStatus, SpatialIndex> partitions = new EnumMap<>(DriverStatus.class);
+    private final EnumMap<DriverStatus, CellSnapshots> snapshots = new EnumMap<>(DriverStatus.class);
+    private long snapshotVersion;
+
+    private final DriverPositionTable positions = new DriverPositionTable(256);
+    private GeoDriver[] drivers = new GeoDriver[256];
+    private int nextSlot;
+    // shard slots freed by drivers handed to other shards
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    private final long silenceMs;
+    private final SilenceWheel silenceWheel;
+    private final Clock clock;
+
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean stopped;
+
+    GeoShard(int id, GeoDriverStore store, SpatialIndexType indexType,
+             long silenceMs, long tickMs, Clock clock) {
+        this.id = id;
+        this.store = store;
+        for (DriverStatus status : STATUSES) {
+            partitions.put(status, indexType.create(positions));
+            snapshots.put(status, new CellSnapshots());
+        }
+        this.silenceMs = silenceMs;
+        this.clock = clock;
+        this.silenceWheel = silenceMs == 0 ? null : new SilenceWheel(tickMs, silenceMs, clock.millis());
+        this.writer = new Thread(this::drain, "geo-shard-" + id);
+        this.writer.setDaemon(true);
+    }
+
+    void start() {
+        writer.start();
+    }
+
+    void stop() {
+        stopped = true;
+        writer.interrupt();
+    }
+
+    /** Queues the op; throws once the shard is stopped, as the op would never land. */
+    void submit(Op op) {
+        if (stopped) {
+            throw new IllegalStateException("Geo store is closed");
+        }
+        queue.add(op);
+        // stopped meanwhile: if the writer did not take it on the way out, nobody will
+        if (stopped && queue.remove(op)) {
+            throw new IllegalStateException("Geo store is closed");
+        }
+    }
+
+    // ---------------- WRITER ----------------
+
+    private void drain() {
+        List<Op> batch = new ArrayList<>();
+        List<Op> landed = new ArrayList<>();
+        List<Op> handoffs = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // 🛑 stopping: release whoever still waits on queued ops
+                queue.drainTo(batch);
+                batch.forEach(op -> op.ticket().done());
+                return;
+            }
+            queue.drainTo(batch, MAX_DRAIN - 1);
+
+            lock.writeLock().lock();
+            try {
+                for (Op op : batch) {
+                    (apply(op) ? handoffs : landed).add(op);
+                }
+            } finally {
+                publishSnapshots();
+                lock.writeLock().unlock();
+            }
+
+            for (Op op : landed) {
+                op.ticket().done();
+            }
+            for (Op op : handoffs) {
+                try {
+                    store.shard(op.entry().getShard()).submit(op);
+                } catch (IllegalStateException e) {
+                    // closing: the other shard is gone
+                    op.ticket().done();
+                }
+            }
+            batch.clear();
+            landed.clear();
+            handoffs.clear();
+        }
+    }
+
+    // writer holds the write lock; true when the op moves on to another shard
+    private boolean apply(Op op) {
+        try {
+            if (op.kind() == Kind.EVICT) {
+                op.ticket().evicted.addAndGet(evictSilent());
+                return false;
+            }
+            GeoDriver entry = op.entry();
+            if (entry.getShard() != id) {
+                // routed before a handoff: follow the driver
+                return true;
+            }
+            return locate(entry);
+        } catch (RuntimeException e) {
+            log.error("Geo shard {} failed to apply {}", id, op.kind(), e);
+            return false;
+        }
+    }
+
+    private boolean locate(GeoDriver entry) {
+        Driver driver = entry.getDriver();
+        // read once: the location may be replaced while we file it
+        Location location = driver.getLocation();
+        long cell = GeoHashUtil.encodeCell(location.lat(), location.lng());
+
+        int owner = store.shardOf(cell, GeoHashUtil.PRECISION);
+        if (owner != id) {
+            // 🔀 crossed a shard boundary: release here, the new owner files it
+            release(entry);
+            entry.setShard(owner);
+            return true;
+        }
+
+        int slot = entry.getShardSlot();
+        if (slot < 0) {
+            slot = attach(entry);
+        }
+        long supplyBefore = onlineCell(entry);
+        long now = clock.millis();
+        positions.set(slot, location.lat(), location.lng(), driver.getStatus(), cell, now);
+        // same cell and status → index untouched, else one remove + one add
+        refile(entry, driver.getStatus());
+        store.supplyMoved(supplyBefore, onlineCell(entry));
+        if (silenceWheel != null && !silenceWheel.isScheduled(slot)) {
+            silenceWheel.schedule(slot, now + silenceMs);
+        }
+        return false;
+    }
+
+    private void onStatusChange(GeoDriver entry) {
+        int slot = entry.getShardSlot();
+        if (slot < 0) {
+            return;
+        }
+        // read the status now: a later transition may already have landed
+        DriverStatus status = entry.getDriver().getStatus();
+        long supplyBefore = onlineCell(entry);
+        positions.setStatus(slot, status);
+        if (entry.getIndexedStatus() != null) {
+            refile(entry, status);
+        }
+        store.supplyMoved(supplyBefore, onlineCell(entry));
+    }
+
+    private int evictSilent() {
+        if (silenceWheel == null) {
+            return 0;
+        }
+        long now = clock.millis();
+        int[] evicted = new int[1];
+        silenceWheel.advance(now, slot -> {
+            GeoDriver entry = drivers[slot];
+            if (entry == null) {
+                return;
+            }
+            long lastPing = positions.lastPingAt(slot);
+            if (now - lastPing < silenceMs) {
+                silenceWheel.schedule(slot, lastPing + silenceMs);
+                return;
+            }
+            DriverStatus status = entry.getIndexedStatus();
+            if (status != null) {
+                store.supplyMoved(onlineCell(entry), GeoHashUtil.NO_CELL);
+                partitions.get(status).remove(slot);
+                snapshots.get(status).remove(slot);
+                entry.setIndexedStatus(null);
+                evicted[0]++;
+            }
+        });
+        return evicted[0];
+    }
+
+    private void refile(GeoDriver entry, DriverStatus status) {
+        int slot = entry.getShardSlot();
+        DriverStatus previousStatus = entry.getIndexedStatus();
+        if (previousStatus != null && previousStatus != status) {
+            partitions.get(previousStatus).remove(slot);
+            snapshots.get(previousStatus).remove(slot);
+        }
+        partitions.get(status).upsert(slot);
+        snapshots.get(status).put(slot, positions.cell(slot));
+        entry.setIndexedStatus(status);
+    }
+
+    // cell the driver counts as ONLINE supply in, NO_CELL if it does not
+    private long onlineCell(GeoDriver entry) {
+        return entry.getIndexedStatus() == DriverStatus.ONLINE
+                ? positions.cell(entry.getShardSlot())
+                : GeoHashUtil.NO_CELL;
+    }
+
+    private int attach(GeoDriver entry) {
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        if (slot == drivers.length) {
+            drivers = Arrays.copyOf(drivers, drivers.length << 1);
+        }
+        drivers[slot] = entry;
+        entry.setShardSlot(slot);
+        return slot;
+    }
+
+    private void release(GeoDriver entry) {
+        int slot = entry.getShardSlot();
+        if (slot < 0) {
+            return;
+        }
+        DriverStatus status = entry.getIndexedStatus();
+        if (status != null) {
+            store.supplyMoved(onlineCell(entry), GeoHashUtil.NO_CELL);
+            partitions.get(status).remove(slot);
+            snapshots.get(status).remove(slot);
+            entry.setIndexedStatus(null);
+        }
+        drivers[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+        entry.setShardSlot(-1);
+    }
+
+    // readers see this drain from here on
+    private void publishSnapshots() {
+        long version = ++snapshotVersion;
+        for (CellSnapshots partition : snapshots.values()) {
+            partition.publish(version, positions, slot -> drivers[slot].getSlot());
+        }
+    }
+
+    /**
+     * Re-files the driver under its current status on the caller's thread,
+     * without waiting on the queue. False if the driver belongs to another
+     * shard by the time the lock is held.
+     */
+    boolean applyStatus(GeoDriver entry) {
+        lock.writeLock().lock();
+        try {
+            if (entry.getShard() != id) {
+                return false;
+            }
+            onStatusChange(entry);
+            publishSnapshots();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- READERS ----------------
+
+    /** Lock-free: the published snapshot of one default-precision cell, or null. */
+    CellSnapshots.CellSnapshot snapshot(DriverStatus status, long cell) {
+        return snapshots.get(status).get(cell);
+    }
+
+    // caller holds the read lock; offers store slots to the merged heap
+    void nearest(double lat, double lng, int k, double radiusMeters, DriverStatus status,
+                 Predicate<GeoDriver> filter, int[] found, double[] distances, BoundedMaxHeap merged) {
+        IntPredicate accept = filter == null ? null : slot -> filter.test(drivers[slot]);
+        for (DriverStatus s : STATUSES) {
+            if (status != null && s != status) {
+                continue;
+            }
+            SpatialIndex partition = partitions.get(s);
+            if (partition.size() == 0) {
+                continue;
+            }
+            int n = partition.nearest(lat, lng, k, radiusMeters, accept, found, distances);
+            for (int i = 0; i < n; i++) {
+                merged.offer(drivers[found[i]].getSlot(), distances[i]);
+            }
+        }
+    }
+
+    // caller holds the read lock
+    void forEachInBox(double[] bounds, Consumer<GeoDriver> action) {
+        for (SpatialIndex partition : partitions.values()) {
+            if (partition.size() > 0) {
+                partition.forEachInBox(bounds[0], bounds[1], bounds[2], bounds[3],
+                        slot -> action.accept(drivers[slot]));
+            }
+        }
+    }
+
+    // caller holds the read lock
+    int count(DriverStatus status, int precision, long cell) {
+        SpatialIndex partition = partitions.get(status);
+        if (partition instanceof GeohashSpatialIndex pyramid) {
+            return pyramid.count(precision, cell);
+        }
+        double[] bounds = new double[4];
+        GeoHashUtil.cellBounds(cell, precision, bounds);
+        int[] count = new int[1];
+        partition.forEachInBox(bounds[0], bounds[1], bounds[2], bounds[3], slot -> count[0]++);
+        return count[0];
+    }
+
+    // caller holds the read lock and has checked the entry is still ours
+    long lastPingAt(GeoDriver entry) {
+        int slot = entry.getShardSlot();
+        return slot < 0 ? -1 : positions.lastPingAt(slot);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.ConcurrentLongObjectMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Entities keyed by their numeric id. The string form ("D-n", "R-n") is
+ * only accepted at the edge, where the API hands it in: it is parsed once
+ * into the key, never hashed or compared.
+ * <p>
+ * Ids that are not store-issued (hand-made ones in fixtures, say) still
+ * work, through a plain string-keyed side map that stays empty otherwise.
+ */
+public final class IdMap<V> {
+
+    private final ConcurrentLongObjectMap<V> map = new ConcurrentLongObjectMap<>();
+    private final Map<String, V> foreign = new ConcurrentHashMap<>();
+    private final ToLongFunction<String> parse;
+
+    public IdMap(ToLongFunction<String> parse) {
+        this.parse = parse;
+    }
+
+    public V get(long id) {
+        return map.get(id);
+    }
+
+    public V get(String id) {
+        long key = parse.applyAsLong(id);
+        if (key >= 0) {
+            return map.get(key);
+        }
+        return id == null || foreign.isEmpty() ? null : foreign.get(id);
+    }
+
+    public boolean containsKey(String id) {
+        return get(id) != null;
+    }
+
+    public V put(long id, V value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Not a store-issued id: " + id);
+        }
+        return map.put(id, value);
+    }
+
+    public V put(String id, V value) {
+        long key = parse.applyAsLong(id);
+        return key >= 0 ? map.put(key, value) : foreign.put(id, value);
+    }
+
+    /** Removes the entry only if the id still maps to this very value. */
+    public boolean remove(long id, V value) {
+        return map.remove(id, value);
+    }
+
+    public int size() {
+        return map.size() + foreign.size();
+    }
+
+    /** Snapshot of the entities, safe to iterate while the map changes. */
+    public List<V> values() {
+        List<V> values = map.values();
+        values.addAll(foreign.values());
+        return values;
+    }
+}
@@ -1,16 +1,52 @@
 package com.example.dispatcher.store;
 
 import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
 import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 @Component
 public class InMemoryStore {
-    public Map<String, Driver> drivers = new ConcurrentHashMap<>();
-    public Map<String, Ride> rides = new ConcurrentHashMap<>();
-    public final Map<String, Boolean> rideTimerExpired = new ConcurrentHashMap<>();
-}
+    public final IdMap<Driver> drivers = new IdMap<>(Driver::numericIdOf);
+    public final IdMap<Ride> rides = new IdMap<>(Ride::numericIdOf);
+    // driver → rides it was pinged for / assigned to
+    public final DriverRideIndex driverRides = new DriverRideIndex();
+    // live ids by status, kept current by the change reports below
+    public final StatusIndex<DriverStatus> driversByStatus = new StatusIndex<>(DriverStatus.class);
+    public final StatusIndex<RideStatus> ridesByStatus = new StatusIndex<>(RideStatus.class);
+
+    // journal hook, null when nothing is journaled
+    private volatile MutationListener mutationListener;
+
+    public void setMutationListener(MutationListener listener) {
+        this.mutationListener = listener;
+    }
 
+    /** Call after adding or changing a stored driver, still holding its lock. */
+    public void driverChanged(Driver driver) {
+        driversByStatus.update(driver.getNumericId(), driver.getStatus());
+        MutationListener listener = mutationListener;
+        if (listener != null) {
+            listener.driverChanged(driver);
+        }
+    }
+
+    /** Call after adding or changing a stored ride, still holding its lock. */
+    public void rideChanged(Ride ride) {
+        ridesByStatus.update(ride.getNumericId(), ride.getStatus());
+        MutationListener listener = mutationListener;
+        if (listener != null) {
+            listener.rideChanged(ride);
+        }
+    }
+
+    /** Call after a ride left the live map. */
+    public void rideRemoved(Ride ride) {
+        ridesByStatus.remove(ride.getNumericId());
+        MutationListener listener = mutationListener;
+        if (listener != null) {
+            listener.rideRemoved(ride);
+        }
+    }
+}
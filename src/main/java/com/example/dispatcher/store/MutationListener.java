@@ -0,0 +1,20 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Ride;
+
+/**
+ * Hook for the {@link StoreJournal}: told after a driver or ride in the
+ * {@link InMemoryStore} changed, with the change already applied. Called
+ * while the caller still holds the entity's lock (or before the entity is
+ * published), so the listener sees one consistent state.
+ */
+public interface MutationListener {
+
+    void driverChanged(Driver driver);
+
+    void rideChanged(Ride ride);
+
+    /** The ride left the live map (archived). */
+    void rideRemoved(Ride ride);
+}
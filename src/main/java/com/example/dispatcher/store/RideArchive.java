@@ -0,0 +1,245 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Ride;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only archive of finished rides, so they can leave the heap.
+ * <p>
+ * Rides are written as compact binary records ({@link EntityCodec}) to
+ * segment files ({@code rides-000001.seg}, ...) that roll over at a fixed
+ * size, and
+ * located through a memory-mapped index file addressed by the ride's
+ * sequence number (the {@code n} of {@code R-n}): 8 bytes per ride, the
+ * 1-based segment and the record's offset in it, 0 for "not archived".
+ * A lookup is one index read and one positional file read; nothing about
+ * archived rides stays on the heap.
+ * <p>
+ * The directory is cleared on open: the archive offloads this run's rides,
+ * it is not a durable history (the {@link StoreJournal} recovers live
+ * rides only). Without {@code dispatch.rides.archive-dir} it lives in a
+ * temp directory that {@link #close()} deletes.
+ */
+@Component
+public class RideArchive {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private static final int INDEX_ENTRY_BYTES = 8;
+    // index grows by this many rides at a time
+    private static final int INDEX_GROWTH = 1 << 20;
+
+    private final Path dir;
+    private final long segmentBytes;
+    // created for this run: deleted on close
+    private final boolean temporary;
+
+    // appends take the write lock, lookups the read lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<FileChannel> segments = new ArrayList<>();
+    private long segmentSize;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private long archived;
+
+    @Autowired
+    public RideArchive(@Value("${dispatch.rides.archive-dir:}") String dir) throws IOException {
+        this(dir.isBlank() ? Files.createTempDirectory("dispatcher-rides") : Path.of(dir),
+                DEFAULT_SEGMENT_BYTES, dir.isBlank());
+    }
+
+    public RideArchive(Path dir, long segmentBytes) throws IOException {
+        this(dir, segmentBytes, false);
+    }
+
+    private RideArchive(Path dir, long segmentBytes, boolean temporary) throws IOException {
+        if (segmentBytes <= 0) {
+            throw new IllegalArgumentException("segment size must be > 0");
+        }
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.temporary = temporary;
+
+        Files.createDirectories(dir);
+        try (var old = Files.newDirectoryStream(dir, "rides*.{seg,idx}")) {
+            for (Path file : old) {
+                Files.delete(file);
+            }
+        }
+        indexChannel = FileChannel.open(dir.resolve("rides.idx"),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) INDEX_GROWTH * INDEX_ENTRY_BYTES);
+        openSegment();
+    }
+
+    /** Archives a finished ride; its id must be a store-issued {@code R-n}. */
+    public void append(Ride ride) {
+        long seq = ride.getNumericId();
+        if (seq < 0) {
+            throw new IllegalArgumentException("Not an archivable ride id: " + ride.getId());
+        }
+        byte[] record = encode(ride);
+
+        lock.writeLock().lock();
+        try {
+            if (segmentSize > 0 && segmentSize + 4 + record.length > segmentBytes) {
+                openSegment();
+            }
+            long offset = segmentSize;
+            ByteBuffer buf = ByteBuffer.allocate(4 + record.length);
+            buf.putInt(record.length).put(record).flip();
+            FileChannel segment = segments.get(segments.size() - 1);
+            while (buf.hasRemaining()) {
+                segment.write(buf, segmentSize + buf.position());
+            }
+            segmentSize += 4 + record.length;
+
+            ensureIndexed(seq);
+            int at = (int) (seq * INDEX_ENTRY_BYTES);
+            index.putInt(at, segments.size());
+            index.putInt(at + 4, (int) offset);
+            archived++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive ride " + ride.getId(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The archived ride, or null if it was never archived. */
+    public Ride find(String rideId) {
+        return find(Ride.numericIdOf(rideId));
+    }
+
+    /** The archived ride with this numeric id, or null if it was never archived. */
+    public Ride find(long seq) {
+        if (seq < 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if ((seq + 1) * INDEX_ENTRY_BYTES > index.capacity()) {
+                return null;
+            }
+            int at = (int) (seq * INDEX_ENTRY_BYTES);
+            int segment = index.getInt(at);
+            if (segment == 0) {
+                return null;
+            }
+            long offset = Integer.toUnsignedLong(index.getInt(at + 4));
+            FileChannel channel = segments.get(segment - 1);
+
+            ByteBuffer length = ByteBuffer.allocate(4);
+            readFully(channel, length, offset);
+            ByteBuffer record = ByteBuffer.allocate(length.flip().getInt());
+            readFully(channel, record, offset + 4);
+            return decode(record.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived ride R-" + seq, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Rides archived since open. */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return archived;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (FileChannel segment : segments) {
+                segment.close();
+            }
+            indexChannel.close();
+            if (temporary) {
+                try (var files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(dir);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // caller holds the write lock (or is the constructor)
+    private void openSegment() throws IOException {
+        Path file = dir.resolve(String.format("rides-%06d.seg", segments.size() + 1));
+        segments.add(FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segmentSize = 0;
+    }
+
+    // caller holds the write lock
+    private void ensureIndexed(long seq) throws IOException {
+        long needed = (seq + 1) * INDEX_ENTRY_BYTES;
+        if (needed <= index.capacity()) {
+            return;
+        }
+        long grown = Math.max(needed, index.capacity() + (long) INDEX_GROWTH * INDEX_ENTRY_BYTES);
+        if (grown > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Ride archive index full");
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Truncated ride record");
+            }
+        }
+    }
+
+    private static byte[] encode(Ride ride) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            EntityCodec.writeRide(out, ride);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Ride decode(byte[] record) throws IOException {
+        return EntityCodec.readRide(new DataInputStream(new ByteArrayInputStream(record)));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.lock.LockPolicy;
+import com.example.dispatcher.model.Ride;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves finished rides out of {@link InMemoryStore#rides} into the
+ * {@link RideArchive} once they have been COMPLETED / CANCELLED for
+ * {@code dispatch.rides.archive-after-ms}, so the live map only holds
+ * active rides and the ones still in their grace period. Idle when the
+ * setting is 0.
+ */
+@Component
+public class RideRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(RideRetention.class);
+
+    private final InMemoryStore store;
+    private final RideArchive archive;
+    private final long archiveAfterMs;
+    private final Clock clock;
+    private final ScheduledExecutorService ticker;
+
+    @Autowired
+    public RideRetention(InMemoryStore store,
+                         RideArchive archive,
+                         @Value("${dispatch.rides.archive-after-ms:0}") long archiveAfterMs) {
+        this(store, archive, archiveAfterMs, Clock.systemUTC(), archiveAfterMs == 0 ? null
+                : Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "ride-retention");
+                    t.setDaemon(true);
+                    return t;
+                }));
+        if (ticker != null) {
+            long tickMs = Math.max(1_000, archiveAfterMs / 10);
+            ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Without a ticker: call {@link #sweep()} yourself. */
+    public RideRetention(InMemoryStore store, RideArchive archive, long archiveAfterMs, Clock clock) {
+        this(store, archive, archiveAfterMs, clock, null);
+    }
+
+    private RideRetention(InMemoryStore store, RideArchive archive, long archiveAfterMs, Clock clock,
+                          ScheduledExecutorService ticker) {
+        if (archiveAfterMs < 0) {
+            throw new IllegalArgumentException("archive-after-ms must be >= 0");
+        }
+        this.store = store;
+        this.archive = archive;
+        this.archiveAfterMs = archiveAfterMs;
+        this.clock = clock;
+        this.ticker = ticker;
+    }
+
+    /** Archives every ride finished at least the grace period ago; returns how many. */
+    public int sweep() {
+        if (archiveAfterMs == 0) {
+            return 0;
+        }
+        long now = clock.millis();
+        int moved = 0;
+
+        for (Ride ride : store.rides.values()) {
+            long finishedAt = ride.getFinishedAt();
+            if (finishedAt == 0 || now - finishedAt < archiveAfterMs
+                    || ride.getNumericId() < 0) {
+                continue;
+            }
+            boolean locked = false;
+            try {
+                // a late timer may still be looking at it
+                locked = ride.tryLock(LockPolicy.LOCK_TIMEOUT_MS);
+                if (!locked) {
+                    continue;
+                }
+                // archive first: getRide finds it in one place or the other throughout
+                try {
+                    archive.append(ride);
+                } catch (UncheckedIOException e) {
+                    // stays live; the next sweep tries again
+                    log.warn("Could not archive ride {}", ride.getId(), e);
+                    continue;
+                }
+                store.rides.remove(ride.getNumericId(), ride);
+                store.rideRemoved(ride);
+                moved++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                if (locked) ride.unlock();
+            }
+        }
+        return moved;
+    }
+
+    // an exception escaping a scheduled task would cancel every later sweep
+    private void tick() {
+        try {
+            int moved = sweep();
+            if (moved > 0) {
+                log.info("Archived {} finished rides", moved);
+            }
+        } catch (RuntimeException e) {
+            log.error("Ride retention sweep failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
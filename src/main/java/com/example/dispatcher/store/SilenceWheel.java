@@ -0,0 +1,86 @@
+package com.example.dispatcher.store;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Hashed timing wheel of slot deadlines, one revolution wide enough for
+ * the silence window.
+ * <p>
+ * A slot is scheduled at most once. It is not moved on every ping: when
+ * its bucket comes due, the owner re-checks the last ping and either
+ * evicts or schedules the slot again, so the cost is about one check per
+ * silence window per driver, whatever the ping rate. Not thread-safe,
+ * each {@link GeoShard} owns one and only touches it from its writer.
+ */
+final class SilenceWheel {
+
+    private final long tickMs;
+    private final int[][] buckets;
+    private final int[] sizes;
+
+    // next tick (absolute, now / tickMs) to be processed
+    private long currentTick;
+
+    private boolean[] scheduled = new boolean[0];
+
+    SilenceWheel(long tickMs, long horizonMs, long now) {
+        if (tickMs <= 0 || horizonMs <= 0) {
+            throw new IllegalArgumentException("tick and horizon must be > 0");
+        }
+        int wheelSize = (int) Math.min(1 << 20, horizonMs / tickMs + 2);
+        this.tickMs = tickMs;
+        this.buckets = new int[wheelSize][];
+        this.sizes = new int[wheelSize];
+        this.currentTick = now / tickMs;
+    }
+
+    boolean isScheduled(int slot) {
+        return slot < scheduled.length && scheduled[slot];
+    }
+
+    /** Files the slot under its deadline; deadlines past the horizon land on the last bucket. */
+    void schedule(int slot, long deadlineMs) {
+        long tick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        tick = Math.max(currentTick, Math.min(tick, currentTick + buckets.length - 1));
+        int b = (int) Math.floorMod(tick, (long) buckets.length);
+
+        if (buckets[b] == null) {
+            buckets[b] = new int[16];
+        } else if (sizes[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], sizes[b] << 1);
+        }
+        buckets[b][sizes[b]++] = slot;
+
+        if (slot >= scheduled.length) {
+            scheduled = Arrays.copyOf(scheduled, Math.max(1024, Math.max(slot + 1, scheduled.length << 1)));
+        }
+        scheduled[slot] = true;
+    }
+
+    /**
+     * Hands every slot whose bucket is due by {@code now} to {@code due},
+     * unscheduled; the callback may schedule it again.
+     */
+    void advance(long now, IntConsumer due) {
+        long target = now / tickMs;
+        long steps = Math.min(target - currentTick + 1, buckets.length);
+
+        for (long i = 0; i < steps; i++) {
+            int b = (int) Math.floorMod(currentTick + i, (long) buckets.length);
+            int[] bucket = buckets[b];
+            int size = sizes[b];
+            if (size == 0) {
+                continue;
+            }
+            // detach first: rescheduling must not land in the bucket being drained
+            buckets[b] = null;
+            sizes[b] = 0;
+            for (int j = 0; j < size; j++) {
+                scheduled[bucket[j]] = false;
+                due.accept(bucket[j]);
+            }
+        }
+        currentTick = Math.max(currentTick, target + 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.dispatcher.store;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks {@link GeoDriverStore#evictSilent()} when
+ * {@code dispatch.driver.silence-ms} is set; idle otherwise.
+ */
+@Component
+public class StaleDriverEvictor {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleDriverEvictor.class);
+
+    private final ScheduledExecutorService ticker;
+
+    public StaleDriverEvictor(GeoDriverStore geoStore) {
+        long tickMs = geoStore.evictionTickMs();
+        if (tickMs == 0) {
+            ticker = null;
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "driver-eviction");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> {
+            int evicted = geoStore.evictSilent();
+            if (evicted > 0) {
+                log.info("Dropped {} silent drivers from the geo index", evicted);
+            }
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
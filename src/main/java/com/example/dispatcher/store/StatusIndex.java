@@ -0,0 +1,134 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.ConcurrentLongObjectMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entity ids partitioned by status, each partition ordered by id (= age),
+ * so "rides that are DRIVER_PINGED" or "all drivers" can be walked page by
+ * page from a cursor without touching the other partitions or copying the
+ * whole map. Pages are weakly consistent: an entity that changes status
+ * mid-walk may show up under both statuses, or under neither, once.
+ * <p>
+ * Updated by {@link InMemoryStore} from the change reports; a move between
+ * partitions is atomic per id (striped lock).
+ */
+public final class StatusIndex<S extends Enum<S>> {
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentSkipListSet<Long>[] byStatus;
+    private final S[] statuses;
+    // status each id is filed under
+    private final ConcurrentLongObjectMap<S> filedAs = new ConcurrentLongObjectMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+    private final AtomicLong size = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public StatusIndex(Class<S> type) {
+        statuses = type.getEnumConstants();
+        byStatus = new ConcurrentSkipListSet[statuses.length];
+        for (int i = 0; i < statuses.length; i++) {
+            byStatus[i] = new ConcurrentSkipListSet<>();
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /** Files the id under its current status, moving it if it was filed elsewhere. */
+    public void update(long id, S status) {
+        if (id < 0) {
+            return;
+        }
+        synchronized (stripes[(int) (id & (STRIPES - 1))]) {
+            S old = filedAs.put(id, status);
+            if (old == status) {
+                return;
+            }
+            if (old != null) {
+                byStatus[old.ordinal()].remove(id);
+            } else {
+                size.incrementAndGet();
+            }
+            byStatus[status.ordinal()].add(id);
+        }
+    }
+
+    public void remove(long id) {
+        synchronized (stripes[(int) (id & (STRIPES - 1))]) {
+            S old = filedAs.remove(id);
+            if (old != null) {
+                byStatus[old.ordinal()].remove(id);
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public int count(S status) {
+        return byStatus[status.ordinal()].size();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * Up to {@code limit} ids above {@code after}, ascending, of one status
+     * or of all of them ({@code status == null}, merged by id).
+     */
+    public Page page(S status, long after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        List<Iterator<Long>> sources = new ArrayList<>();
+        for (S s : statuses) {
+            if (status == null || s == status) {
+                NavigableSet<Long> ids = byStatus[s.ordinal()];
+                sources.add(ids.tailSet(after, false).iterator());
+            }
+        }
+
+        // k-way merge of a handful of ascending iterators
+        long[] heads = new long[sources.size()];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : Long.MAX_VALUE;
+        }
+        long[] ids = new long[limit];
+        int n = 0;
+        while (n < limit) {
+            int min = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != Long.MAX_VALUE && (min < 0 || heads[i] < heads[min])) {
+                    min = i;
+                }
+            }
+            if (min < 0) {
+                break;
+            }
+            // a mid-walk move can file the same id under two statuses
+            if (n == 0 || ids[n - 1] != heads[min]) {
+                ids[n++] = heads[min];
+            }
+            heads[min] = sources.get(min).hasNext() ? sources.get(min).next() : Long.MAX_VALUE;
+        }
+
+        boolean more = false;
+        for (long head : heads) {
+            more |= head != Long.MAX_VALUE;
+        }
+        long[] page = n == limit ? ids : Arrays.copyOf(ids, n);
+        return new Page(page, more && n > 0 ? page[n - 1] : -1);
+    }
+
+    /** Ids in ascending order; {@code next} is the cursor for the following page, -1 after the last. */
+    public record Page(long[] ids, long next) {
+    }
+}
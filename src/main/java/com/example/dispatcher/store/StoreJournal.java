@@ -0,0 +1,551 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Ride;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log plus periodic snapshots of the {@link InMemoryStore}, so
+ * a restarted node comes back with its drivers, rides and geo index.
+ * <p>
+ * Services report every driver / ride they change ({@link MutationListener})
+ * while they still hold its lock, and the report is encoded right there
+ * ({@link EntityCodec}, framed with length and CRC), so a record is never
+ * torn by a concurrent change. One writer thread drains those records,
+ * writes each changed entity's latest one per batch to the current log
+ * segment and fsyncs the batch: one group commit however many changes it
+ * holds.
+ * <p>
+ * Reporters do not wait for that fsync, so a crash loses what was not yet
+ * synced: the batch being written plus up to {@code dispatch.wal.max-pending}
+ * queued records. Once that many are queued, reporters block (holding the
+ * entity lock) until the writer catches up. {@link #sync()} waits for
+ * everything reported so far.
+ * <p>
+ * Every {@code dispatch.wal.snapshot-every-ms} the writer rolls to a new
+ * segment {@code wal-N.log} and writes {@code snapshot-N.snap} from the live
+ * store (temp file + atomic rename), then deletes older segments and
+ * snapshots. An entity locked by someone else at that moment goes in as
+ * its last committed record; the change in progress is logged after.
+ * Records are full states written after the roll, so replaying segment N
+ * and later over the (fuzzy) snapshot ends at the latest state.
+ * On startup the newest snapshot is memory-mapped and loaded, the log tail
+ * replayed up to the first torn record, and the result installed in the
+ * store and geo index before anything else runs.
+ * <p>
+ * Driver positions are not logged per location ping: they are soft state,
+ * taken with each snapshot and with every driver change, and refreshed by
+ * the driver's next ping. Idle when {@code dispatch.wal.dir} is blank.
+ */
+@Component
+public class StoreJournal implements MutationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(StoreJournal.class);
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{12})\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{12})\\.snap");
+
+    private static final byte END = 0;
+    private static final byte DRIVER = 1;
+    private static final byte RIDE = 2;
+    private static final byte RIDE_REMOVED = 3;
+
+    private final InMemoryStore store;
+    private final GeoDriverStore geoStore;
+    private final Path dir;
+    private final long snapshotEveryMs;
+    private final boolean fsync;
+    private final Clock clock;
+
+    // Change or Sync, in report order; bounded so a slow disk pushes back
+    private final LinkedBlockingQueue<Object> pending;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // writer thread (or constructor) only
+    private FileChannel segment;
+    private long segmentNo;
+    private long nextSnapshotAt;
+    // last record written per live entity, for snapshots
+    private final Map<Object, byte[]> committed = new IdentityHashMap<>();
+
+    private int recoveredDrivers;
+    private int recoveredRides;
+
+    @Autowired
+    public StoreJournal(InMemoryStore store,
+                        GeoDriverStore geoStore,
+                        @Value("${dispatch.wal.dir:}") String dir,
+                        @Value("${dispatch.wal.snapshot-every-ms:60000}") long snapshotEveryMs,
+                        @Value("${dispatch.wal.fsync:true}") boolean fsync,
+                        @Value("${dispatch.wal.max-pending:65536}") int maxPending) throws IOException {
+        this(store, geoStore, dir.isBlank() ? null : Path.of(dir), snapshotEveryMs, fsync, maxPending,
+                Clock.systemUTC());
+    }
+
+    /** {@code dir == null} journals nothing. */
+    public StoreJournal(InMemoryStore store, GeoDriverStore geoStore, Path dir,
+                        long snapshotEveryMs, boolean fsync, int maxPending, Clock clock) throws IOException {
+        if (snapshotEveryMs <= 0) {
+            throw new IllegalArgumentException("snapshot-every-ms must be > 0");
+        }
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("max-pending must be > 0");
+        }
+        this.pending = new LinkedBlockingQueue<>(maxPending);
+        this.store = store;
+        this.geoStore = geoStore;
+        this.dir = dir;
+        this.snapshotEveryMs = snapshotEveryMs;
+        this.fsync = fsync;
+        this.clock = clock;
+
+        if (dir == null) {
+            writer = null;
+            return;
+        }
+        Files.createDirectories(dir);
+        recover();
+        // start clean: everything recovered goes into a fresh snapshot
+        snapshot();
+
+        store.setMutationListener(this);
+        writer = new Thread(this::drain, "store-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    public int recoveredDrivers() {
+        return recoveredDrivers;
+    }
+
+    public int recoveredRides() {
+        return recoveredRides;
+    }
+
+    @Override
+    public void driverChanged(Driver driver) {
+        report(DRIVER, driver);
+    }
+
+    @Override
+    public void rideChanged(Ride ride) {
+        report(RIDE, ride);
+    }
+
+    @Override
+    public void rideRemoved(Ride ride) {
+        report(RIDE_REMOVED, ride);
+    }
+
+    /** Blocks until everything reported so far is on disk. */
+    public void sync() throws InterruptedException {
+        if (writer == null || closed) {
+            return;
+        }
+        Sync sync = new Sync();
+        if (enqueue(sync)) {
+            sync.done.await();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        store.setMutationListener(null);
+        // wake the writer so it commits what is left and stops
+        enqueue(new Sync());
+        writer.join();
+    }
+
+    // caller's thread, entity locked: the writer only ever sees the bytes
+    private void report(byte type, Object entity) {
+        if (!closed) {
+            enqueue(new Change(entity, RecordWriter.frame(type, entity)));
+        }
+    }
+
+    // blocks while the queue is full; false if the writer is gone
+    private boolean enqueue(Object item) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (pending.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                    if (!writer.isAlive()) {
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    // the change is already applied: it must still be logged
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ---------------- WRITER ----------------
+
+    private void drain() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (!closed || !pending.isEmpty()) {
+                Object first = pending.poll(Math.max(1, nextSnapshotAt - clock.millis()), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch);
+                    commit(batch);
+                    batch.clear();
+                }
+                if (clock.millis() >= nextSnapshotAt) {
+                    snapshot();
+                }
+            }
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // stop journaling rather than write a log with holes in it
+            log.error("Store journal failed, no further changes are journaled", e);
+            closed = true;
+            store.setMutationListener(null);
+        } finally {
+            for (Object change : batch) {
+                if (change instanceof Sync sync) {
+                    sync.done.countDown();
+                }
+            }
+            pending.forEach(change -> {
+                if (change instanceof Sync sync) {
+                    sync.done.countDown();
+                }
+            });
+            pending.clear();
+        }
+    }
+
+    // one write + one fsync for the whole batch, each entity once at its latest record
+    private void commit(List<Object> batch) throws IOException {
+        Map<Object, byte[]> latest = new IdentityHashMap<>();
+        List<Sync> syncs = new ArrayList<>();
+        for (Object change : batch) {
+            if (change instanceof Change c) {
+                latest.put(c.entity(), c.frame());
+            } else if (change instanceof Sync sync) {
+                syncs.add(sync);
+            }
+        }
+
+        if (!latest.isEmpty()) {
+            RecordWriter out = new RecordWriter();
+            for (byte[] frame : latest.values()) {
+                out.add(frame);
+            }
+            writeFully(segment, out.toBuffer());
+            if (fsync) {
+                segment.force(false);
+            }
+            for (Map.Entry<Object, byte[]> e : latest.entrySet()) {
+                if (RecordWriter.typeOf(e.getValue()) == RIDE_REMOVED) {
+                    committed.remove(e.getKey());
+                } else {
+                    committed.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        for (Sync sync : syncs) {
+            sync.done.countDown();
+        }
+    }
+
+    /** Rolls to a new segment and writes the snapshot it starts from. */
+    private void snapshot() throws IOException {
+        long no = segmentNo + 1;
+        if (segment != null) {
+            segment.close();
+        }
+        segment = FileChannel.open(dir.resolve(segmentName(no)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentNo = no;
+
+        RecordWriter out = new RecordWriter();
+        for (Driver driver : store.drivers.values()) {
+            out.add(current(DRIVER, driver));
+        }
+        for (Ride ride : store.rides.values()) {
+            out.add(current(RIDE, ride));
+        }
+        out.add(RecordWriter.frame(END, null));
+
+        Path tmp = dir.resolve(snapshotName(no) + ".tmp");
+        try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(file, out.toBuffer());
+            file.force(true);
+        }
+        Files.move(tmp, dir.resolve(snapshotName(no)), StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        for (Map.Entry<Long, Path> old : files(SEGMENT).headMap(no).entrySet()) {
+            Files.deleteIfExists(old.getValue());
+        }
+        for (Map.Entry<Long, Path> old : files(SNAPSHOT).headMap(no).entrySet()) {
+            Files.deleteIfExists(old.getValue());
+        }
+        nextSnapshotAt = clock.millis() + snapshotEveryMs;
+    }
+
+    // the entity's state now if its lock is free, else its last committed record
+    private byte[] current(byte type, Object entity) {
+        boolean locked = false;
+        try {
+            locked = type == DRIVER ? ((Driver) entity).tryLock(0) : ((Ride) entity).tryLock(0);
+            if (locked) {
+                return RecordWriter.frame(type, entity);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (locked) {
+                if (type == DRIVER) ((Driver) entity).unlock();
+                else ((Ride) entity).unlock();
+            }
+        }
+        // null: not committed yet, so its first record is still queued
+        return committed.get(entity);
+    }
+
+    // ---------------- RECOVERY ----------------
+
+    private void recover() throws IOException {
+        Map<Long, Driver> drivers = new LinkedHashMap<>();
+        Map<String, Ride> rides = new LinkedHashMap<>();
+
+        TreeMap<Long, Path> snapshots = files(SNAPSHOT);
+        TreeMap<Long, Path> segments = files(SEGMENT);
+        long from = 0;
+        if (!snapshots.isEmpty()) {
+            from = snapshots.lastKey();
+            if (!replay(snapshots.lastEntry().getValue(), drivers, rides)) {
+                throw new IllegalStateException("Corrupt store snapshot: " + snapshots.lastEntry().getValue());
+            }
+        }
+        for (Map.Entry<Long, Path> e : segments.tailMap(from).entrySet()) {
+            replay(e.getValue(), drivers, rides);
+        }
+        segmentNo = Math.max(from, segments.isEmpty() ? 0 : segments.lastKey());
+
+        List<Driver> located = new ArrayList<>();
+        for (Driver driver : drivers.values()) {
+            store.drivers.put(driver.getNumericId(), driver);
+            store.driversByStatus.update(driver.getNumericId(), driver.getStatus());
+            committed.put(driver, RecordWriter.frame(DRIVER, driver));
+            if (driver.getLocation() != null) {
+                located.add(driver);
+            }
+        }
+        geoStore.addOrUpdateAll(located);
+        List<Ride> byAge = new ArrayList<>(rides.values());
+        byAge.sort(Comparator.comparingLong(Ride::getNumericId));
+        for (Ride ride : byAge) {
+            store.rides.put(ride.getId(), ride);
+            store.ridesByStatus.update(ride.getNumericId(), ride.getStatus());
+            committed.put(ride, RecordWriter.frame(RIDE, ride));
+            // rebuild the driver → rides index, oldest ride first
+            for (String driverId : ride.getPingedDrivers()) {
+                store.driverRides.record(Driver.numericIdOf(driverId), ride.getNumericId());
+            }
+            if (ride.getAssignedDriverId() != null) {
+                store.driverRides.record(Driver.numericIdOf(ride.getAssignedDriverId()), ride.getNumericId());
+            }
+        }
+        recoveredDrivers = drivers.size();
+        recoveredRides = rides.size();
+        if (recoveredDrivers + recoveredRides > 0) {
+            log.info("Recovered {} drivers and {} rides from {}", recoveredDrivers, recoveredRides, dir);
+        }
+    }
+
+    /**
+     * Applies a snapshot or log segment, mapped read-only; stops at the
+     * first torn or corrupt record. True if it ended on an END record.
+     */
+    private static boolean replay(Path file, Map<Long, Driver> drivers, Map<String, Ride> rides) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (in.remaining() >= 8) {
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.get(record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream data = new DataInputStream(new ByteArrayInputStream(record));
+                switch (data.readByte()) {
+                    case END -> {
+                        return true;
+                    }
+                    case DRIVER -> {
+                        Driver driver = EntityCodec.readDriver(data);
+                        drivers.put(driver.getNumericId(), driver);
+                    }
+                    case RIDE -> {
+                        Ride ride = EntityCodec.readRide(data);
+                        rides.put(ride.getId(), ride);
+                    }
+                    case RIDE_REMOVED -> rides.remove(data.readUTF());
+                    default -> throw new IllegalStateException("Unknown journal record in " + file);
+                }
+            }
+            if (in.hasRemaining()) {
+                log.warn("Ignoring torn journal tail in {} ({} bytes)", file, in.remaining());
+            }
+            return false;
+        }
+    }
+
+    // ---------------- FILES ----------------
+
+    private TreeMap<Long, Path> files(Pattern name) throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (var files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                Matcher m = name.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    found.put(Long.parseLong(m.group(1)), file);
+                }
+            }
+        }
+        return found;
+    }
+
+    // makes the rename (and the new segment's entry) survive a crash
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms cannot open a directory; nothing more to do there
+            log.debug("Cannot fsync directory {}", dir, e);
+        }
+    }
+
+    private static String segmentName(long no) {
+        return String.format("wal-%012d.log", no);
+    }
+
+    private static String snapshotName(long no) {
+        return String.format("snapshot-%012d.snap", no);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /** Frames records as [length][crc32][type + payload] and strings them together. */
+    private static final class RecordWriter {
+
+        private final ByteArrayOutputStream frames = new ByteArrayOutputStream(4096);
+
+        /** One framed record of the entity's current state. */
+        static byte[] frame(byte type, Object entity) {
+            try {
+                ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+                DataOutputStream recordOut = new DataOutputStream(record);
+                recordOut.writeByte(type);
+                switch (type) {
+                    case DRIVER -> EntityCodec.writeDriver(recordOut, (Driver) entity);
+                    case RIDE -> EntityCodec.writeRide(recordOut, (Ride) entity);
+                    case RIDE_REMOVED -> recordOut.writeUTF(((Ride) entity).getId());
+                    default -> {
+                    }
+                }
+                byte[] payload = record.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                return ByteBuffer.allocate(8 + payload.length)
+                        .putInt(payload.length)
+                        .putInt((int) crc.getValue())
+                        .put(payload)
+                        .array();
+            } catch (IOException e) {
+                // in-memory streams do not throw
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        static byte typeOf(byte[] frame) {
+            return frame[8];
+        }
+
+        void add(byte[] frame) {
+            if (frame != null) {
+                frames.writeBytes(frame);
+            }
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(frames.toByteArray());
+        }
+    }
+
+    private record Change(Object entity, byte[] frame) {
+    }
+
+    private static final class Sync {
+        final CountDownLatch done = new CountDownLatch(1);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.dispatcher.store;
+
+/**
+ * Told when an ONLINE driver enters, leaves or changes its default-precision
+ * cell in the geo index; {@link com.example.dispatcher.geo.GeoHashUtil#NO_CELL}
+ * stands for "not ONLINE in the index". Called on geo shard writer threads,
+ * under the shard's write lock: keep it short and never call back into the store.
+ */
+@FunctionalInterface
+public interface SupplyListener {
+    void onSupplyMove(long fromCell, long toCell);
+}
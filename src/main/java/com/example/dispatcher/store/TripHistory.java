@@ -0,0 +1,376 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.collections.LongIntMap;
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.AcceptTimeStats;
+import com.example.dispatcher.model.HourlyRideCount;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Durable history of finished rides for analytics, kept off the heap.
+ * <p>
+ * Rides are buffered in a {@link TripSegment.Builder} as they reach
+ * COMPLETED / CANCELLED and sealed into an immutable column file
+ * ({@code trips-<yyyyMMdd>-<n>.col}, one UTC day of finish times per file)
+ * once it holds {@code dispatch.trips.segment-rows} rides, the day rolls
+ * over, or it has been open for {@code dispatch.trips.seal-after-ms}.
+ * Encoding and writing happen on a background thread. Sealed files are
+ * memory-mapped read-only; queries prune them by their requested-at range
+ * and scan only the columns they need. The rows not sealed yet are
+ * included in queries too, but are lost on a crash.
+ */
+@Component
+public class TripHistory {
+
+    private static final Logger log = LoggerFactory.getLogger(TripHistory.class);
+
+    public static final int DEFAULT_SEGMENT_ROWS = 1 << 16;
+
+    private static final Pattern SEGMENT = Pattern.compile("trips-(\\d{8})-(\\d{6})\\.col");
+    private static final long DAY_MS = 86_400_000L;
+    private static final long HOUR_MS = 3_600_000L;
+    // ridesPerCellHour key: cell << HOUR_BITS | hour offset
+    private static final int HOUR_BITS = 24;
+
+    private final Path dir;
+    private final int segmentRows;
+    private final long sealAfterMs;
+    private final Clock clock;
+    // seals blocks in order; also runs the seal-after-ms tick
+    private final ScheduledExecutorService writer;
+
+    private final Object lock = new Object();
+    // guarded by lock
+    private TripSegment.Builder open;
+    private final List<TripSegment.Builder> sealing = new ArrayList<>();
+    private final List<TripSegment> segments = new ArrayList<>();
+    // writer thread only
+    private long nextFileNo;
+
+    @Autowired
+    public TripHistory(@Value("${dispatch.trips.dir:}") String dir,
+                       @Value("${dispatch.trips.segment-rows:65536}") int segmentRows,
+                       @Value("${dispatch.trips.seal-after-ms:300000}") long sealAfterMs) throws IOException {
+        this(dir.isBlank() ? Files.createTempDirectory("dispatcher-trips") : Path.of(dir),
+                segmentRows, sealAfterMs, Clock.systemUTC());
+        if (sealAfterMs > 0) {
+            long tickMs = Math.max(1_000, sealAfterMs / 10);
+            writer.scheduleWithFixedDelay(this::sealIfStale, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Without the seal-after-ms tick: full blocks, day changes and {@link #flush()} seal. */
+    public TripHistory(Path dir, int segmentRows, long sealAfterMs, Clock clock) throws IOException {
+        if (segmentRows <= 0) {
+            throw new IllegalArgumentException("segment-rows must be > 0");
+        }
+        if (sealAfterMs < 0) {
+            throw new IllegalArgumentException("seal-after-ms must be >= 0");
+        }
+        this.dir = dir;
+        this.segmentRows = segmentRows;
+        this.sealAfterMs = sealAfterMs;
+        this.clock = clock;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "trip-history");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Files.createDirectories(dir);
+        open();
+    }
+
+    /** Adds a ride that just reached COMPLETED / CANCELLED. */
+    public void record(Ride ride) {
+        long day = Math.floorDiv(ride.getFinishedAt(), DAY_MS);
+        synchronized (lock) {
+            if (open != null && open.day() != day) {
+                seal();
+            }
+            if (open == null) {
+                open = new TripSegment.Builder(day, clock.millis());
+            }
+            open.add(ride);
+            if (open.rows() >= segmentRows) {
+                seal();
+            }
+        }
+    }
+
+    /** Seals whatever is buffered and waits until it is on disk. */
+    public void flush() {
+        Future<?> written;
+        synchronized (lock) {
+            if (open != null) {
+                seal();
+            }
+            written = writer.submit(() -> { });
+        }
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Trip history writer failed", e.getCause());
+        }
+    }
+
+    public int segmentCount() {
+        synchronized (lock) {
+            return segments.size();
+        }
+    }
+
+    /**
+     * Rides requested in [{@code from}, {@code to}) counted per pickup cell
+     * (at {@code precision}) and UTC hour, of one status or of every one
+     * ({@code status == null}); ordered by hour, then cell.
+     */
+    public List<HourlyRideCount> ridesPerCellHour(long from, long to, RideStatus status, int precision) {
+        checkQuery(from, to, precision);
+        long firstHour = Math.floorDiv(from, HOUR_MS);
+        if (Math.floorDiv(to - 1, HOUR_MS) - firstHour >= 1L << HOUR_BITS) {
+            throw new IllegalArgumentException("Time range too long");
+        }
+
+        LongIntMap counts = new LongIntMap();
+        for (TripSegment segment : segmentsOverlapping(from, to)) {
+            long[] groups = groups(segment, precision);
+            TripSegment.Timestamps requested = segment.requestedAt();
+            for (int row = 0; row < segment.rows(); row++) {
+                long at = requested.next();
+                if (at < from || at >= to
+                        || (status != null && (segment.status(row) & TripSegment.STATUS_MASK) != status.ordinal())) {
+                    continue;
+                }
+                long cell = groups[segment.pickupCode(row)];
+                if (cell != GeoHashUtil.NO_CELL) {
+                    counts.addTo(cell << HOUR_BITS | (Math.floorDiv(at, HOUR_MS) - firstHour), 1);
+                }
+            }
+        }
+
+        List<HourlyRideCount> result = new ArrayList<>(counts.size());
+        counts.forEach((key, rides) -> result.add(new HourlyRideCount(
+                GeoHashUtil.toBase32(key >>> HOUR_BITS, precision),
+                Instant.ofEpochMilli((firstHour + (key & ((1L << HOUR_BITS) - 1))) * HOUR_MS),
+                rides)));
+        result.sort(Comparator.comparing(HourlyRideCount::hour).thenComparing(HourlyRideCount::geoHash));
+        return result;
+    }
+
+    /**
+     * Median and 90th percentile wait from request to accept of the rides
+     * requested in [{@code from}, {@code to}) that were accepted, per
+     * pickup cell at {@code precision}; ordered by cell.
+     */
+    public List<AcceptTimeStats> acceptTimeByCell(long from, long to, int precision) {
+        checkQuery(from, to, precision);
+
+        // cell << 32 | delay: sorting groups by cell and orders delays within it
+        long[] samples = new long[1024];
+        int n = 0;
+        for (TripSegment segment : segmentsOverlapping(from, to)) {
+            long[] groups = groups(segment, precision);
+            TripSegment.Timestamps requested = segment.requestedAt();
+            TripSegment.Timestamps delays = segment.acceptDelays();
+            for (int row = 0; row < segment.rows(); row++) {
+                long at = requested.next();
+                long delay = delays.next();
+                if (at < from || at >= to || delay < 0) {
+                    continue;
+                }
+                long cell = groups[segment.pickupCode(row)];
+                if (cell == GeoHashUtil.NO_CELL) {
+                    continue;
+                }
+                if (n == samples.length) {
+                    samples = Arrays.copyOf(samples, n << 1);
+                }
+                samples[n++] = cell << 32 | Math.min(delay, Integer.MAX_VALUE);
+            }
+        }
+        Arrays.sort(samples, 0, n);
+
+        List<AcceptTimeStats> result = new ArrayList<>();
+        for (int start = 0, end; start < n; start = end) {
+            long cell = samples[start] >>> 32;
+            end = start + 1;
+            while (end < n && samples[end] >>> 32 == cell) {
+                end++;
+            }
+            int count = end - start;
+            long median = samples[start + (count - 1) / 2] & 0xffffffffL;
+            long p90 = samples[start + (int) Math.ceil(count * 0.9) - 1] & 0xffffffffL;
+            result.add(new AcceptTimeStats(GeoHashUtil.toBase32(cell, precision), count, median, p90));
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    // ---------------- INTERNALS ----------------
+
+    // caller holds lock; open != null
+    private void seal() {
+        TripSegment.Builder full = open;
+        open = null;
+        sealing.add(full);
+        writer.execute(() -> write(full));
+    }
+
+    private void sealIfStale() {
+        synchronized (lock) {
+            if (open != null && clock.millis() - open.openedAt() >= sealAfterMs) {
+                seal();
+            }
+        }
+    }
+
+    // writer thread
+    private void write(TripSegment.Builder block) {
+        try {
+            String name = String.format("trips-%s-%06d.col",
+                    LocalDate.ofEpochDay(block.day()).format(DateTimeFormatter.BASIC_ISO_DATE), nextFileNo);
+            Path tmp = dir.resolve(name + ".tmp");
+            try (FileChannel file = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer bytes = block.encode();
+                while (bytes.hasRemaining()) {
+                    file.write(bytes);
+                }
+                file.force(true);
+            }
+            Path file = dir.resolve(name);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            nextFileNo++;
+
+            TripSegment segment = map(file);
+            synchronized (lock) {
+                segments.add(segment);
+                sealing.remove(block);
+            }
+        } catch (IOException e) {
+            // stays in sealing: still queried, lost on restart
+            log.error("Could not write trip segment of {} rides", block.rows(), e);
+        }
+    }
+
+    private void open() throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (var files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher m = SEGMENT.matcher(name);
+                if (m.matches()) {
+                    found.put(Long.parseLong(m.group(2)), file);
+                } else if (name.endsWith(".col.tmp")) {
+                    // a seal that did not finish
+                    Files.delete(file);
+                }
+            }
+        }
+        long rows = 0;
+        for (Path file : found.values()) {
+            try {
+                TripSegment segment = map(file);
+                segments.add(segment);
+                rows += segment.rows();
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping unreadable trip segment {}: {}", file, e.getMessage());
+            }
+        }
+        nextFileNo = found.isEmpty() ? 1 : found.lastKey() + 1;
+        if (!segments.isEmpty()) {
+            log.info("Trip history: {} rides in {} segments under {}", rows, segments.size(), dir);
+        }
+    }
+
+    private static TripSegment map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping outlives the channel
+            return new TripSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private List<TripSegment> segmentsOverlapping(long from, long to) {
+        List<TripSegment> hits = new ArrayList<>();
+        List<TripSegment.Builder> unsealed = new ArrayList<>();
+        synchronized (lock) {
+            for (TripSegment segment : segments) {
+                if (segment.overlaps(from, to)) {
+                    hits.add(segment);
+                }
+            }
+            // sealing blocks are no longer written to; the open one is
+            unsealed.addAll(sealing);
+            if (open != null) {
+                unsealed.add(open.copy());
+            }
+        }
+        for (TripSegment.Builder block : unsealed) {
+            TripSegment segment = new TripSegment(block.encode());
+            if (segment.overlaps(from, to)) {
+                hits.add(segment);
+            }
+        }
+        return hits;
+    }
+
+    // dictionary code → enclosing cell at the query precision
+    private static long[] groups(TripSegment segment, int precision) {
+        long[] cells = segment.cells();
+        long[] groups = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            groups[i] = cells[i] == GeoHashUtil.NO_CELL
+                    ? GeoHashUtil.NO_CELL
+                    : GeoHashUtil.parent(cells[i], GeoHashUtil.PRECISION, precision);
+        }
+        return groups;
+    }
+
+    private static void checkQuery(long from, long to, int precision) {
+        if (from >= to) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (precision < 1 || precision > GeoHashUtil.PRECISION) {
+            throw new IllegalArgumentException("precision must be 1.." + GeoHashUtil.PRECISION);
+        }
+    }
+}
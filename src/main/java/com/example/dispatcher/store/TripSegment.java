@@ -0,0 +1,324 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One immutable block of finished rides in column layout, the unit the
+ * {@link TripHistory} writes to disk and scans.
+ * <pre>
+ * int magic, byte version, int rows
+ * long minRequestedAt, long maxRequestedAt   (for pruning by time)
+ * int cells, long[cells]                     (dictionary: distinct cells, ascending)
+ * byte codeWidth                             (1, 2 or 4 bytes per cell code)
+ * then per column: int length, bytes
+ *   REQUESTED_AT  zigzag varint delta to the previous row (first: to minRequestedAt)
+ *   FINISHED_AT   same
+ *   ACCEPT_DELAY  varint acceptedAt - requestedAt + 1, 0 = never accepted
+ *   STATUS        1 byte per row: RideStatus ordinal, | 0x80 if cancelled after accept
+ *   PICKUP, DROP  codeWidth bytes per row: index into the dictionary
+ * </pre>
+ * A scan reads only the columns it needs; cell codes and statuses are
+ * fixed width (random access), timestamps are read front to back.
+ * Readers use absolute gets, so one mapped buffer serves concurrent scans.
+ */
+final class TripSegment {
+
+    static final int MAGIC = 0x54524950; // "TRIP"
+    static final byte VERSION = 1;
+
+    static final int CANCELLED_AFTER_ACCEPT = 0x80;
+    static final int STATUS_MASK = 0x7f;
+
+    private static final int REQUESTED_AT = 0;
+    private static final int FINISHED_AT = 1;
+    private static final int ACCEPT_DELAY = 2;
+    private static final int STATUS = 3;
+    private static final int PICKUP = 4;
+    private static final int DROP = 5;
+    private static final int COLUMNS = 6;
+
+    private final ByteBuffer buf;
+    private final int rows;
+    private final long minRequestedAt;
+    private final long maxRequestedAt;
+    private final long[] cells;
+    private final int codeWidth;
+    private final int[] columnAt = new int[COLUMNS];
+
+    /** Reads the header of an encoded segment (mapped file or heap). */
+    TripSegment(ByteBuffer buf) {
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.get(4) != VERSION) {
+            throw new IllegalArgumentException("Not a trip segment");
+        }
+        rows = buf.getInt(5);
+        minRequestedAt = buf.getLong(9);
+        maxRequestedAt = buf.getLong(17);
+        int at = 25;
+        cells = new long[buf.getInt(at)];
+        at += 4;
+        for (int i = 0; i < cells.length; i++, at += 8) {
+            cells[i] = buf.getLong(at);
+        }
+        codeWidth = buf.get(at++);
+        for (int c = 0; c < COLUMNS; c++) {
+            int length = buf.getInt(at);
+            columnAt[c] = at + 4;
+            at += 4 + length;
+        }
+        if (at > buf.limit()) {
+            throw new IllegalArgumentException("Truncated trip segment");
+        }
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long minRequestedAt() {
+        return minRequestedAt;
+    }
+
+    long maxRequestedAt() {
+        return maxRequestedAt;
+    }
+
+    /** The cell dictionary; {@link GeoHashUtil#NO_CELL} stands for "no location". */
+    long[] cells() {
+        return cells;
+    }
+
+    boolean overlaps(long from, long to) {
+        return rows > 0 && maxRequestedAt >= from && minRequestedAt < to;
+    }
+
+    Timestamps requestedAt() {
+        return new Timestamps(columnAt[REQUESTED_AT], minRequestedAt, true);
+    }
+
+    Timestamps finishedAt() {
+        return new Timestamps(columnAt[FINISHED_AT], minRequestedAt, true);
+    }
+
+    /** Accept delays in ms, one per row, -1 for rides never accepted. */
+    Timestamps acceptDelays() {
+        return new Timestamps(columnAt[ACCEPT_DELAY], 0, false);
+    }
+
+    int status(int row) {
+        return buf.get(columnAt[STATUS] + row);
+    }
+
+    int pickupCode(int row) {
+        return code(columnAt[PICKUP], row);
+    }
+
+    int dropCode(int row) {
+        return code(columnAt[DROP], row);
+    }
+
+    private int code(int column, int row) {
+        return switch (codeWidth) {
+            case 1 -> buf.get(column + row) & 0xff;
+            case 2 -> buf.getShort(column + 2 * row) & 0xffff;
+            default -> buf.getInt(column + 4 * row);
+        };
+    }
+
+    /**
+     * Front-to-back reader of a varint column: absolute timestamps for the
+     * delta-encoded ones, plain values (delay ms, -1 for none) otherwise.
+     */
+    final class Timestamps {
+
+        private int at;
+        private long previous;
+        private final boolean delta;
+
+        private Timestamps(int at, long base, boolean delta) {
+            this.at = at;
+            this.previous = base;
+            this.delta = delta;
+        }
+
+        long next() {
+            long raw = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf.get(at++);
+                raw |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (!delta) {
+                return raw - 1;
+            }
+            previous += (raw >>> 1) ^ -(raw & 1);
+            return previous;
+        }
+    }
+
+    /**
+     * Rows of the segment being filled, in plain arrays until it is
+     * encoded. Not thread-safe: the {@link TripHistory} guards it.
+     */
+    static final class Builder {
+
+        private final long day;
+        private final long openedAt;
+        private int rows;
+        private long[] requestedAt = new long[1024];
+        private long[] finishedAt = new long[1024];
+        private long[] acceptedAt = new long[1024];
+        private byte[] status = new byte[1024];
+        private long[] pickup = new long[1024];
+        private long[] drop = new long[1024];
+
+        Builder(long day, long openedAt) {
+            this.day = day;
+            this.openedAt = openedAt;
+        }
+
+        /** UTC day (epoch days) the rows finished on. */
+        long day() {
+            return day;
+        }
+
+        long openedAt() {
+            return openedAt;
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        void add(Ride ride) {
+            if (rows == requestedAt.length) {
+                int grown = rows << 1;
+                requestedAt = Arrays.copyOf(requestedAt, grown);
+                finishedAt = Arrays.copyOf(finishedAt, grown);
+                acceptedAt = Arrays.copyOf(acceptedAt, grown);
+                status = Arrays.copyOf(status, grown);
+                pickup = Arrays.copyOf(pickup, grown);
+                drop = Arrays.copyOf(drop, grown);
+            }
+            requestedAt[rows] = ride.getRequestedAt();
+            finishedAt[rows] = ride.getFinishedAt();
+            acceptedAt[rows] = ride.getAcceptedAt();
+            status[rows] = (byte) (ride.getStatus().ordinal()
+                    | (ride.isCancelledAfterAccept() ? CANCELLED_AFTER_ACCEPT : 0));
+            pickup[rows] = cellOf(ride.getPickup());
+            drop[rows] = cellOf(ride.getDrop());
+            rows++;
+        }
+
+        /** The rows so far, to encode outside the lock that guards this one. */
+        Builder copy() {
+            Builder copy = new Builder(day, openedAt);
+            copy.rows = rows;
+            copy.requestedAt = Arrays.copyOf(requestedAt, rows);
+            copy.finishedAt = Arrays.copyOf(finishedAt, rows);
+            copy.acceptedAt = Arrays.copyOf(acceptedAt, rows);
+            copy.status = Arrays.copyOf(status, rows);
+            copy.pickup = Arrays.copyOf(pickup, rows);
+            copy.drop = Arrays.copyOf(drop, rows);
+            return copy;
+        }
+
+        ByteBuffer encode() {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                min = Math.min(min, requestedAt[i]);
+                max = Math.max(max, requestedAt[i]);
+            }
+            if (rows == 0) {
+                min = 0;
+                max = 0;
+            }
+
+            long[] cells = new long[rows * 2];
+            System.arraycopy(pickup, 0, cells, 0, rows);
+            System.arraycopy(drop, 0, cells, rows, rows);
+            Arrays.sort(cells);
+            int distinct = 0;
+            for (int i = 0; i < cells.length; i++) {
+                if (i == 0 || cells[i] != cells[i - 1]) {
+                    cells[distinct++] = cells[i];
+                }
+            }
+            cells = Arrays.copyOf(cells, distinct);
+            int width = distinct <= 1 << 8 ? 1 : distinct <= 1 << 16 ? 2 : 4;
+
+            byte[][] columns = new byte[COLUMNS][];
+            columns[REQUESTED_AT] = deltas(requestedAt, min);
+            columns[FINISHED_AT] = deltas(finishedAt, min);
+            ByteArrayOutputStream delays = new ByteArrayOutputStream(rows * 2);
+            for (int i = 0; i < rows; i++) {
+                putVarLong(delays, acceptedAt[i] == 0 ? 0 : Math.max(0, acceptedAt[i] - requestedAt[i]) + 1);
+            }
+            columns[ACCEPT_DELAY] = delays.toByteArray();
+            columns[STATUS] = Arrays.copyOf(status, rows);
+            columns[PICKUP] = codes(pickup, cells, width);
+            columns[DROP] = codes(drop, cells, width);
+
+            int size = 25 + 4 + 8 * distinct + 1;
+            for (byte[] column : columns) {
+                size += 4 + column.length;
+            }
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.putInt(MAGIC).put(VERSION).putInt(rows).putLong(min).putLong(max);
+            out.putInt(distinct);
+            for (long cell : cells) {
+                out.putLong(cell);
+            }
+            out.put((byte) width);
+            for (byte[] column : columns) {
+                out.putInt(column.length).put(column);
+            }
+            return out.flip();
+        }
+
+        private byte[] deltas(long[] values, long base) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 3);
+            long previous = base;
+            for (int i = 0; i < rows; i++) {
+                long delta = values[i] - previous;
+                putVarLong(out, (delta << 1) ^ (delta >> 63));
+                previous = values[i];
+            }
+            return out.toByteArray();
+        }
+
+        private byte[] codes(long[] values, long[] cells, int width) {
+            ByteBuffer out = ByteBuffer.allocate(rows * width);
+            for (int i = 0; i < rows; i++) {
+                int code = Arrays.binarySearch(cells, values[i]);
+                switch (width) {
+                    case 1 -> out.put((byte) code);
+                    case 2 -> out.putShort((short) code);
+                    default -> out.putInt(code);
+                }
+            }
+            return out.array();
+        }
+
+        private static long cellOf(Location at) {
+            return at == null ? GeoHashUtil.NO_CELL : GeoHashUtil.encodeCell(at.lat(), at.lng());
+        }
+
+        private static void putVarLong(ByteArrayOutputStream out, long v) {
+            while ((v & ~0x7fL) != 0) {
+                out.write((int) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            out.write((int) v);
+        }
+    }
+}
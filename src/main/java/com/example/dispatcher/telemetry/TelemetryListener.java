@@ -0,0 +1,244 @@
+package com.example.dispatcher.telemetry;
+
+import com.example.dispatcher.model.LocationUpdate;
+import com.example.dispatcher.store.GeoDriverStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Binary location telemetry over long-lived TCP connections, enabled with
+ * {@code dispatch.telemetry.enabled=true}.
+ * <p>
+ * Each frame is {@link #FRAME_BYTES} bytes, big-endian:
+ * <pre>
+ *   int  slot       driver slot, see GET /drivers/{id}/slot
+ *   int  latE7      latitude  * 1e7
+ *   int  lngE7      longitude * 1e7
+ *   long timestamp  epoch ms on the device; older frames for a slot are dropped
+ * </pre>
+ * One selector thread reads every connection into its own direct buffer
+ * and decodes frames in place into reused primitive arrays; each select
+ * round is applied to the geo store as one batch. Frames with an unknown
+ * slot, out-of-range coordinates or a timestamp more than
+ * {@link LocationUpdate#MAX_CLOCK_SKEW_MS} ahead of the server are dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "dispatch.telemetry.enabled", havingValue = "true")
+public class TelemetryListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryListener.class);
+
+    public static final int FRAME_BYTES = 20;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_BATCH = 8192;
+    private static final int MAX_LAT_E7 = 900_000_000;
+    private static final int MAX_LNG_E7 = 1_800_000_000;
+
+    private final GeoDriverStore geoStore;
+    private final int requestedPort;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread loop;
+    private volatile boolean running;
+
+    // decoded frames of the current round, reused (selector thread only)
+    private final int[] batchSlots = new int[MAX_BATCH];
+    private final double[] batchLats = new double[MAX_BATCH];
+    private final double[] batchLngs = new double[MAX_BATCH];
+    private int batchSize;
+
+    // newest frame timestamp seen per slot (selector thread only); slots are
+    // never handed to another driver, so an entry never needs resetting
+    private long[] lastFrameAt = new long[0];
+
+    private final AtomicLong framesApplied = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+
+    public TelemetryListener(GeoDriverStore geoStore,
+                             @Value("${dispatch.telemetry.port:9091}") int port) {
+        this.geoStore = geoStore;
+        this.requestedPort = port;
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(requestedPort));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        loop = new Thread(this::run, "telemetry-listener");
+        loop.setDaemon(true);
+        loop.start();
+        log.info("Telemetry listener on port {}", getPort());
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        loop.join();
+    }
+
+    /** Bound port, useful when started on port 0. */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public long framesApplied() {
+        return framesApplied.get();
+    }
+
+    public long framesDropped() {
+        return framesDropped.get();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+                flush();
+            }
+        } catch (IOException e) {
+            log.error("Telemetry listener stopped", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(BUFFER_BYTES));
+    }
+
+    private void read(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        int read;
+        try {
+            read = channel.read(buffer);
+        } catch (IOException e) {
+            read = -1;
+        }
+
+        buffer.flip();
+        int slotCount = geoStore.slotCount();
+        long latestAllowed = System.currentTimeMillis() + LocationUpdate.MAX_CLOCK_SKEW_MS;
+        while (buffer.remaining() >= FRAME_BYTES) {
+            decode(buffer, slotCount, latestAllowed);
+        }
+        buffer.compact();
+
+        if (read < 0) {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+    }
+
+    // one frame from the buffer into the batch, no objects
+    private void decode(ByteBuffer buffer, int slotCount, long latestAllowed) {
+        int slot = buffer.getInt();
+        int latE7 = buffer.getInt();
+        int lngE7 = buffer.getInt();
+        long timestamp = buffer.getLong();
+
+        if (slot < 0 || slot >= slotCount
+                || latE7 < -MAX_LAT_E7 || latE7 > MAX_LAT_E7
+                || lngE7 < -MAX_LNG_E7 || lngE7 > MAX_LNG_E7
+                // a clock far ahead would otherwise silence the slot for good
+                || timestamp > latestAllowed) {
+            framesDropped.incrementAndGet();
+            return;
+        }
+        if (slot >= lastFrameAt.length) {
+            int from = lastFrameAt.length;
+            lastFrameAt = Arrays.copyOf(lastFrameAt, Math.max(slotCount, from << 1));
+            Arrays.fill(lastFrameAt, from, lastFrameAt.length, Long.MIN_VALUE);
+        }
+        if (timestamp < lastFrameAt[slot]) {
+            framesDropped.incrementAndGet();
+            return;
+        }
+        lastFrameAt[slot] = timestamp;
+
+        if (batchSize == MAX_BATCH) {
+            flush();
+        }
+        batchSlots[batchSize] = slot;
+        batchLats[batchSize] = latE7 / 1e7;
+        batchLngs[batchSize] = lngE7 / 1e7;
+        batchSize++;
+    }
+
+    private void flush() {
+        if (batchSize == 0) {
+            return;
+        }
+        int applied = geoStore.moveAll(batchSlots, batchLats, batchLngs, batchSize);
+        framesApplied.addAndGet(applied);
+        framesDropped.addAndGet(batchSize - applied);
+        batchSize = 0;
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+                // shutting down
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // shutting down
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.dispatcher.timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Hierarchical hashed timing wheel: O(1) schedule and cancel, however many
+ * timers are pending.
+ * <p>
+ * Time is counted in ticks since start. Level {@code L} has 256 buckets of
+ * 256<sup>L</sup> ticks each, so four levels cover 2<sup>32</sup> ticks
+ * (about 497 days at 10 ms); later deadlines wait in an overflow list.
+ * A timer is filed at the lowest level whose current revolution contains
+ * its deadline, and moves down a level (cascades) when that bucket comes
+ * round, so every timer is re-filed at most once per level.
+ * <p>
+ * Timers live in parallel primitive arrays linked into per-bucket lists
+ * (no node object per timer), addressed by {@code long} handles: slot
+ * index plus a generation, so a stale handle never cancels a later timer
+ * reusing the slot. A slot is freed as its timer fires or is cancelled.
+ * Due tasks run on the given executor, never under the wheel's lock.
+ * Thread-safe: one lock, held for O(1) work per call.
+ */
+public final class HashedWheelTimer implements AutoCloseable {
+
+    /** Never returned by {@link #schedule}. */
+    public static final long NO_TIMER = 0;
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final int OVERFLOW = LEVELS * WHEEL_SIZE;
+    private static final int NIL = -1;
+
+    private final long tickNanos;
+    private final Executor executor;
+    private final LongSupplier nanoClock;
+    private final long startNanos;
+
+    private final Object lock = new Object();
+
+    // ---- guarded by lock ----
+    // last tick processed
+    private long currentTick;
+    // bucket heads: level * WHEEL_SIZE + slot, then the overflow list
+    private final int[] heads = new int[OVERFLOW + 1];
+    // per timer slot
+    private Runnable[] tasks = new Runnable[1024];
+    private long[] deadlines = new long[1024];
+    private int[] next = new int[1024];
+    private int[] prev = new int[1024];
+    private int[] bucketOf = new int[1024];
+    private int[] generations = new int[1024];
+    // free slots, as a stack
+    private int[] free = new int[1024];
+    private int freeCount;
+    private int used;
+    private int pending;
+
+    private volatile Thread ticker;
+    private volatile boolean closed;
+
+    public HashedWheelTimer(long tickMs, Executor executor) {
+        this(tickMs, executor, System::nanoTime);
+    }
+
+    /** With its own clock: nothing fires until {@link #start()} or {@link #advance()}. */
+    public HashedWheelTimer(long tickMs, Executor executor, LongSupplier nanoClock) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tick must be > 0");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.executor = executor;
+        this.nanoClock = nanoClock;
+        this.startNanos = nanoClock.getAsLong();
+        Arrays.fill(heads, NIL);
+        Arrays.fill(generations, 1);
+    }
+
+    /** Starts the thread that advances the wheel every tick. */
+    public synchronized void start() {
+        if (ticker != null || closed) {
+            return;
+        }
+        Thread t = new Thread(this::run, "timer-wheel");
+        t.setDaemon(true);
+        ticker = t;
+        t.start();
+    }
+
+    /** Runs {@code task} once, {@code delayMs} from now (rounded up to a tick); returns its handle. */
+    public long schedule(long delayMs, Runnable task) {
+        if (delayMs < 0) {
+            throw new IllegalArgumentException("delay must be >= 0");
+        }
+        long due = nanoClock.getAsLong() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        long deadline = Math.floorDiv(due + tickNanos - 1, tickNanos);
+        synchronized (lock) {
+            int timer = allocate();
+            tasks[timer] = task;
+            deadlines[timer] = Math.max(deadline, currentTick + 1);
+            file(timer);
+            pending++;
+            return (long) generations[timer] << 32 | timer;
+        }
+    }
+
+    /** Cancels the timer if it has not fired yet; returns whether it was pending. */
+    public boolean cancel(long handle) {
+        int timer = (int) handle;
+        int generation = (int) (handle >>> 32);
+        synchronized (lock) {
+            if (timer < 0 || timer >= used || generations[timer] != generation || tasks[timer] == null) {
+                return false;
+            }
+            unlink(timer);
+            release(timer);
+            return true;
+        }
+    }
+
+    /** Timers scheduled and neither fired nor cancelled. */
+    public int pending() {
+        synchronized (lock) {
+            return pending;
+        }
+    }
+
+    /**
+     * Processes every tick up to now and hands the due tasks to the
+     * executor. The ticker thread calls it; without one, call it yourself.
+     */
+    public void advance() {
+        long target = (nanoClock.getAsLong() - startNanos) / tickNanos;
+        List<Runnable> due = null;
+        synchronized (lock) {
+            while (currentTick < target) {
+                long tick = ++currentTick;
+                cascade(tick);
+                int bucket = (int) (tick & WHEEL_MASK);
+                int timer = heads[bucket];
+                heads[bucket] = NIL;
+                while (timer != NIL) {
+                    int following = next[timer];
+                    if (due == null) {
+                        due = new ArrayList<>();
+                    }
+                    due.add(tasks[timer]);
+                    release(timer);
+                    timer = following;
+                }
+            }
+        }
+        if (due == null) {
+            return;
+        }
+        for (Runnable task : due) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread t = ticker;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    // ---------------- INTERNALS ----------------
+
+    private void run() {
+        while (!closed) {
+            advance();
+            long elapsed = nanoClock.getAsLong() - startNanos;
+            long untilNextTick = tickNanos - Math.floorMod(elapsed, tickNanos);
+            LockSupport.parkNanos(this, untilNextTick);
+        }
+    }
+
+    // caller holds lock: moves the buckets that came round at this tick down a level
+    private void cascade(long tick) {
+        if ((tick & 0xFFFFFFFFL) == 0) {
+            refile(OVERFLOW);
+        }
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                refile(level * WHEEL_SIZE + (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+            }
+        }
+    }
+
+    private void refile(int bucket) {
+        int timer = heads[bucket];
+        heads[bucket] = NIL;
+        while (timer != NIL) {
+            int following = next[timer];
+            file(timer);
+            timer = following;
+        }
+    }
+
+    // caller holds lock: links the timer into the bucket its deadline falls in
+    private void file(int timer) {
+        long deadline = deadlines[timer];
+        int bucket = OVERFLOW;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = WHEEL_BITS * (level + 1);
+            if (deadline >>> shift == currentTick >>> shift) {
+                bucket = level * WHEEL_SIZE + (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                break;
+            }
+        }
+        int head = heads[bucket];
+        next[timer] = head;
+        prev[timer] = NIL;
+        if (head != NIL) {
+            prev[head] = timer;
+        }
+        heads[bucket] = timer;
+        bucketOf[timer] = bucket;
+    }
+
+    private void unlink(int timer) {
+        int before = prev[timer];
+        int after = next[timer];
+        if (before == NIL) {
+            heads[bucketOf[timer]] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NIL) {
+            prev[after] = before;
+        }
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (used == tasks.length) {
+            int grown = used << 1;
+            tasks = Arrays.copyOf(tasks, grown);
+            deadlines = Arrays.copyOf(deadlines, grown);
+            next = Arrays.copyOf(next, grown);
+            prev = Arrays.copyOf(prev, grown);
+            bucketOf = Arrays.copyOf(bucketOf, grown);
+            generations = Arrays.copyOf(generations, grown);
+            Arrays.fill(generations, used, grown, 1);
+            free = Arrays.copyOf(free, grown);
+        }
+        return used++;
+    }
+
+    // the slot is already out of its bucket
+    private void release(int timer) {
+        tasks[timer] = null;
+        // skip 0 so a handle is never NO_TIMER
+        generations[timer] = generations[timer] == Integer.MAX_VALUE ? 1 : generations[timer] + 1;
+        free[freeCount++] = timer;
+        pending--;
+    }
+}
@@ -1,52 +1,76 @@
 package com.example.dispatcher.timer;
 
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.*;
-import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ride timers (ping timeouts, lifecycle steps) on a {@link HashedWheelTimer}.
+ * <p>
+ * A timer is its wheel handle, a plain {@code long}: nothing is kept per
+ * timer outside the wheel, a fired timer leaves nothing behind, and the
+ * ride and type only become text when debug logging asks for them. Tasks
+ * run on a small worker pool, off the wheel's thread.
+ */
 @Component
 public class TimerManager {
 
-    private final ScheduledExecutorService scheduler =
-            Executors.newScheduledThreadPool(4);
+    private static final Logger log = LoggerFactory.getLogger(TimerManager.class);
+
+    public static final long TICK_MS = 10;
+    private static final int WORKERS = 4;
+
+    private final ExecutorService workers;
+    private final HashedWheelTimer wheel;
 
-    // 🔑 timers tracked by rideId
-    private final Map<String, ScheduledFuture<?>> timers =
-            new ConcurrentHashMap<>();
+    public TimerManager() {
+        AtomicInteger n = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(WORKERS, r -> {
+            Thread t = new Thread(r, "ride-timer-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        wheel = new HashedWheelTimer(TICK_MS, workers);
+        wheel.start();
+    }
 
     /**
      * Schedule a timeout for a ride.
-     * Any existing timer for the ride is cancelled.
+     * Returns the handle to cancel it with.
      */
-    public String schedule(
+    public long schedule(
             String rideId,
             String type,
             long delaySeconds,
             Runnable task
     ) {
-
-        // 🔧 CHANGE: unique timerId
-        String timerId = rideId + ":" + type + ":" + UUID.randomUUID();
-
-        ScheduledFuture<?> future =
-                scheduler.schedule(task, delaySeconds, TimeUnit.SECONDS);
-
-        timers.put(timerId, future);
-
-        return timerId;
+        long handle = wheel.schedule(TimeUnit.SECONDS.toMillis(delaySeconds), task);
+        log.debug("Scheduled {} timer {} for ride {} in {}s", type, handle, rideId, delaySeconds);
+        return handle;
     }
 
     /**
-     * Cancel a single timer
+     * Cancel a single timer; handles that are not ours, or timers that
+     * already fired, are ignored.
      */
-    public void clearTimer(String timerId) {
-
-        ScheduledFuture<?> future = timers.remove(timerId);
+    public void clearTimer(long handle) {
+        wheel.cancel(handle);
+    }
 
-        if (future != null) {
-            future.cancel(true);
-        }
+    /** Timers scheduled and neither fired nor cleared. */
+    public int pending() {
+        return wheel.pending();
     }
 
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        workers.shutdownNow();
+    }
 }
@@ -0,0 +1,69 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.geo.DistanceKernel;
+import com.example.dispatcher.geo.GeoHashUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One haversine per candidate vs the batch kernel (bounding-box pass, then
+ * haversine for survivors), over a rush-hour batch of candidates spread
+ * across ~10 km with a 2 km limit.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=DistanceKernelBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DistanceKernelBenchmark {
+
+    @Param({"64", "4096"})
+    public int candidates;
+
+    @Param({"2000"})
+    public double limitMeters;
+
+    private double pickupLat = 28.61;
+    private double pickupLng = 77.21;
+    private double[] lats;
+    private double[] lngs;
+    private int[] slots;
+    private double[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        lats = new double[candidates];
+        lngs = new double[candidates];
+        slots = new int[candidates];
+        out = new double[candidates];
+        for (int i = 0; i < candidates; i++) {
+            lats[i] = pickupLat - 0.05 + random.nextDouble() * 0.1;
+            lngs[i] = pickupLng - 0.05 + random.nextDouble() * 0.1;
+            slots[i] = i;
+        }
+    }
+
+    @Benchmark
+    public int perCandidate() {
+        int within = 0;
+        for (int i = 0; i < candidates; i++) {
+            int s = slots[i];
+            out[i] = GeoHashUtil.distanceMeters(pickupLat, pickupLng, lats[s], lngs[s]);
+            if (out[i] <= limitMeters) {
+                within++;
+            }
+        }
+        return within;
+    }
+
+    @Benchmark
+    public int batchKernel() {
+        return DistanceKernel.distances(pickupLat, pickupLng, lats, lngs, slots, candidates, limitMeters, out);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.dispatcher.bench;
+
+import ch.hsr.geohash.GeoHash;
+import com.example.dispatcher.geo.GeoHashUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Built-in cell arithmetic vs the ch.hsr string path it replaced.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=GeoHashBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GeoHashBenchmark {
+
+    @Param({"1", "5", "30"})
+    public int ring;
+
+    private double lat = 28.6139;
+    private double lng = 77.2090;
+
+    private String hash;
+    private long cell;
+    private long[] buffer;
+
+    @Setup
+    public void setup() {
+        hash = GeoHash.withCharacterPrecision(lat, lng, 6).toBase32();
+        cell = GeoHashUtil.encodeCell(lat, lng);
+        buffer = new long[GeoHashUtil.diskSize(ring)];
+    }
+
+    @Benchmark
+    public String encodeHsr() {
+        return GeoHash.withCharacterPrecision(lat, lng, 6).toBase32();
+    }
+
+    @Benchmark
+    public long encodeCell() {
+        return GeoHashUtil.encodeCell(lat, lng);
+    }
+
+    @Benchmark
+    public Set<String> neighborsHsr() {
+        Set<String> result = new HashSet<>();
+        Set<String> frontier = new HashSet<>();
+        result.add(hash);
+        frontier.add(hash);
+        for (int i = 0; i < ring; i++) {
+            Set<String> next = new HashSet<>();
+            for (String h : frontier) {
+                for (GeoHash gh : GeoHash.fromGeohashString(h).getAdjacent()) {
+                    String adj = gh.toBase32();
+                    if (result.add(adj)) {
+                        next.add(adj);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void neighborsCell(Blackhole bh) {
+        bh.consume(GeoHashUtil.neighbors(cell, ring, buffer));
+        bh.consume(buffer);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.GeoDriver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.store.GeoDriverStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Three dispatch readers against one ingest writer, all on a single hot
+ * cell: {@code locked} readers take the index read lock
+ * ({@link GeoDriverStore#nearest}), {@code snapshot} readers use the
+ * published cell snapshots ({@link GeoDriverStore#nearestSnapshot}). The
+ * writer moves drivers within the cell either way.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=HotCellReadWriteBenchmark}
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HotCellReadWriteBenchmark {
+
+    private static final double LAT = 28.6100;
+    private static final double LNG = 77.2100;
+
+    /** Drivers packed into the hot cell. */
+    @Param({"200"})
+    public int drivers;
+
+    private GeoDriverStore store;
+    private Driver[] fleet;
+
+    @Setup
+    public void setup() {
+        store = new GeoDriverStore();
+        fleet = new Driver[drivers];
+        for (int i = 0; i < drivers; i++) {
+            fleet[i] = new Driver();
+            fleet[i].updateLocation(randomSpot());
+            store.addOrUpdate(fleet[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public List<GeoDriver> lockedRead() {
+        return store.nearest(LAT, LNG, 5, 2_000, DriverStatus.ONLINE, null);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWrite() {
+        move();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public List<GeoDriver> snapshotRead() {
+        return store.nearestSnapshot(LAT, LNG, 5, 2_000, DriverStatus.ONLINE, null);
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public void snapshotWrite() {
+        move();
+    }
+
+    private void move() {
+        Driver d = fleet[ThreadLocalRandom.current().nextInt(drivers)];
+        d.updateLocation(randomSpot());
+        store.addOrUpdate(d);
+    }
+
+    // within ~100 m: the same default-precision cell
+    private static Location randomSpot() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new Location(LAT + random.nextDouble() * 0.001, LNG + random.nextDouble() * 0.001);
+    }
+}
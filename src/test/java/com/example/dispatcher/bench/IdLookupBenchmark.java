@@ -0,0 +1,65 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.store.IdMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Driver lookups as accept / cancel / dispatch do them: by the API's
+ * string id against the old {@code ConcurrentHashMap<String, Driver>},
+ * by the same string through {@link IdMap} (parsed, not hashed), and by
+ * the numeric id services already hold. A request's id is a fresh string,
+ * so the string variants build one per lookup (no cached hash).
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=IdLookupBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IdLookupBenchmark {
+
+    @Param({"100000"})
+    public int drivers;
+
+    private final Map<String, Driver> byString = new ConcurrentHashMap<>();
+    private final IdMap<Driver> byId = new IdMap<>(Driver::numericIdOf);
+    private long[] numericIds;
+
+    @Setup
+    public void setup() {
+        numericIds = new long[drivers];
+        for (int i = 0; i < drivers; i++) {
+            Driver d = new Driver();
+            byString.put(d.getId(), d);
+            byId.put(d.getNumericId(), d);
+            numericIds[i] = d.getNumericId();
+        }
+    }
+
+    @Benchmark
+    public Driver stringKeyedMap() {
+        return byString.get("D-" + randomId());
+    }
+
+    @Benchmark
+    public Driver idMapByString() {
+        return byId.get("D-" + randomId());
+    }
+
+    @Benchmark
+    public Driver idMapByNumericId() {
+        return byId.get(randomId());
+    }
+
+    private long randomId() {
+        return numericIds[ThreadLocalRandom.current().nextInt(drivers)];
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.GeoDriver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.store.GeoDriverStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring search stopping at the first ring with a candidate (the old
+ * heuristic) vs the bounded search dispatch now uses, which keeps going
+ * while the next ring's lower bound is below the best distance.
+ * <p>
+ * {@code pyramidNearest} is the pyramid descent GeoDriverStore.nearest()
+ * now uses, for timing against both.
+ * <p>
+ * The {@code cells} / {@code searches} aux counters give the cells visited
+ * per search; {@code misses} counts searches where the heuristic did not
+ * return the true nearest driver.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=NearestSearchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NearestSearchBenchmark {
+
+    private static final int MAX_RINGS = 30;
+    private static final int PICKUPS = 1024;
+
+    /** Drivers spread over a ~40 km square. */
+    @Param({"50", "2000", "50000"})
+    public int drivers;
+
+    private GeoDriverStore store;
+    private double[] pickupLat;
+    private double[] pickupLng;
+    private boolean[] heuristicMisses;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        store = new GeoDriverStore();
+        for (int i = 0; i < drivers; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(
+                    28.40 + random.nextDouble() * 0.36,
+                    77.00 + random.nextDouble() * 0.40));
+            store.addOrUpdate(d);
+        }
+        pickupLat = new double[PICKUPS];
+        pickupLng = new double[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            pickupLat[i] = 28.45 + random.nextDouble() * 0.26;
+            pickupLng[i] = 77.05 + random.nextDouble() * 0.30;
+        }
+        heuristicMisses = new boolean[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            GeoDriver first = firstRing(i, null);
+            heuristicMisses[i] = first != null && first != bounded(i, null);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long cells;
+        public long searches;
+        public long misses;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            cells = 0;
+            searches = 0;
+            misses = 0;
+        }
+    }
+
+    @Benchmark
+    public GeoDriver firstRingHeuristic(Counters c) {
+        int i = c.next++ & (PICKUPS - 1);
+        c.searches++;
+        if (heuristicMisses[i]) {
+            c.misses++;
+        }
+        return firstRing(i, c);
+    }
+
+    @Benchmark
+    public GeoDriver boundedNearest(Counters c) {
+        int i = c.next++ & (PICKUPS - 1);
+        c.searches++;
+        return bounded(i, c);
+    }
+
+    @Benchmark
+    public java.util.List<GeoDriver> pyramidNearest(Counters c) {
+        int i = c.next++ & (PICKUPS - 1);
+        c.searches++;
+        return store.nearest(pickupLat[i], pickupLng[i], 1, Double.POSITIVE_INFINITY, null);
+    }
+
+    private GeoDriver firstRing(int i, Counters c) {
+        Search s = new Search(pickupLat[i], pickupLng[i]);
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            int cells = s.scan(ring);
+            if (c != null) {
+                c.cells += cells;
+            }
+            if (s.best != null) {
+                break;
+            }
+        }
+        return s.best;
+    }
+
+    private GeoDriver bounded(int i, Counters c) {
+        Search s = new Search(pickupLat[i], pickupLng[i]);
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            if (s.best != null
+                    && GeoHashUtil.ringLowerBoundMeters(s.cell, s.lat, s.lng, ring) >= s.bestDistance) {
+                break;
+            }
+            int cells = s.scan(ring);
+            if (c != null) {
+                c.cells += cells;
+            }
+        }
+        return s.best;
+    }
+
+    private final class Search {
+        final double lat;
+        final double lng;
+        final long cell;
+        final long[] ringCells = new long[GeoHashUtil.ringSize(MAX_RINGS)];
+        GeoDriver best;
+        double bestDistance = Double.MAX_VALUE;
+
+        Search(double lat, double lng) {
+            this.lat = lat;
+            this.lng = lng;
+            this.cell = GeoHashUtil.encodeCell(lat, lng);
+        }
+
+        int scan(int ring) {
+            int n = GeoHashUtil.ring(cell, ring, ringCells);
+            store.forEach(ringCells, n, gd -> {
+                double d = GeoHashUtil.distanceMeters(lat, lng, gd.getLatitude(), gd.getLongitude());
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = gd;
+                }
+            });
+            return n;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.spatial.SpatialIndexType;
+import com.example.dispatcher.store.GeoDriverStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Four ingest threads each applying batches of moves for their own
+ * drivers, spread over a ~30 km city, against a store with 1 or 4 geo
+ * shards. Each batch holds {@value #BATCH} drivers moving ~500 m, so some
+ * of every batch crosses into another shard's prefix.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=ShardedIngestBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ShardedIngestBenchmark {
+
+    private static final int BATCH = 1_000;
+
+    @Param({"1", "4"})
+    public int shards;
+
+    private GeoDriverStore store;
+
+    @Setup
+    public void setup() {
+        store = new GeoDriverStore(SpatialIndexType.GEOHASH, shards, 0, Clock.systemUTC());
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Fleet {
+        final List<Driver> drivers = new ArrayList<>(BATCH);
+        final Random random = new Random();
+
+        @Setup
+        public void setup(ShardedIngestBenchmark bench) {
+            for (int i = 0; i < BATCH; i++) {
+                Driver d = new Driver();
+                d.updateLocation(new Location(28.45 + random.nextDouble() * 0.3, 77.05 + random.nextDouble() * 0.3));
+                drivers.add(d);
+            }
+            bench.store.addOrUpdateAll(drivers);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void moveBatch(Fleet fleet) {
+        for (Driver d : fleet.drivers) {
+            Location at = d.getLocation();
+            // ~500 m steps
+            d.updateLocation(new Location(
+                    at.lat() + (fleet.random.nextDouble() - 0.5) * 0.01,
+                    at.lng() + (fleet.random.nextDouble() - 0.5) * 0.01));
+        }
+        store.addOrUpdateAll(fleet.drivers);
+    }
+}
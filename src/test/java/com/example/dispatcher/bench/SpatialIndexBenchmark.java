@@ -0,0 +1,116 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.geo.DistanceKernel;
+import com.example.dispatcher.spatial.SlotPositions;
+import com.example.dispatcher.spatial.SpatialIndex;
+import com.example.dispatcher.spatial.SpatialIndexType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SpatialIndex} implementations side by side: moving a driver
+ * a short hop, k-nearest at k = 1 and 10, and a 2 km radius query.
+ * Drivers are spread over a ~40 km square with a dense core, pickups are
+ * uniform over the middle of it.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=SpatialIndexBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpatialIndexBenchmark {
+
+    private static final int PICKUPS = 1024;
+
+    @Param({"geohash", "grid", "quadtree"})
+    public String index;
+
+    @Param({"2000", "50000"})
+    public int drivers;
+
+    private SpatialIndex spatialIndex;
+    private double[] lats;
+    private double[] lngs;
+    private double[] pickupLat;
+    private double[] pickupLng;
+    private int[] outSlots;
+    private double[] outDistances;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(7);
+        lats = new double[drivers];
+        lngs = new double[drivers];
+        for (int i = 0; i < drivers; i++) {
+            // half in a ~5 km core, half across the whole square
+            double spread = i % 2 == 0 ? 0.05 : 0.36;
+            lats[i] = 28.58 - spread / 2 + random.nextDouble() * spread;
+            lngs[i] = 77.20 - spread / 2 + random.nextDouble() * spread;
+        }
+
+        spatialIndex = SpatialIndexType.from(index).create(new SlotPositions() {
+            @Override
+            public double lat(int slot) {
+                return lats[slot];
+            }
+
+            @Override
+            public double lng(int slot) {
+                return lngs[slot];
+            }
+
+            @Override
+            public int distances(double lat, double lng, int[] slots, int count,
+                                 double limitMeters, double[] out) {
+                return DistanceKernel.distances(lat, lng, lats, lngs, slots, count, limitMeters, out);
+            }
+        });
+        for (int i = 0; i < drivers; i++) {
+            spatialIndex.upsert(i);
+        }
+
+        pickupLat = new double[PICKUPS];
+        pickupLng = new double[PICKUPS];
+        for (int i = 0; i < PICKUPS; i++) {
+            pickupLat[i] = 28.45 + random.nextDouble() * 0.26;
+            pickupLng[i] = 77.05 + random.nextDouble() * 0.30;
+        }
+        outSlots = new int[10];
+        outDistances = new double[10];
+    }
+
+    @Benchmark
+    public void upsert() {
+        int slot = next++ % drivers;
+        // ~50 m hop back and forth, crossing cells now and then
+        double hop = (next & 1) == 0 ? 0.0005 : -0.0005;
+        lats[slot] += hop;
+        lngs[slot] += hop;
+        spatialIndex.upsert(slot);
+    }
+
+    @Benchmark
+    public int nearest1() {
+        int i = next++ & (PICKUPS - 1);
+        return spatialIndex.nearest(pickupLat[i], pickupLng[i], 1, 20_000, null, outSlots, outDistances);
+    }
+
+    @Benchmark
+    public int nearest10() {
+        int i = next++ & (PICKUPS - 1);
+        return spatialIndex.nearest(pickupLat[i], pickupLng[i], 10, 20_000, null, outSlots, outDistances);
+    }
+
+    @Benchmark
+    public void within2km(Blackhole bh) {
+        int i = next++ & (PICKUPS - 1);
+        spatialIndex.forEachWithin(pickupLat[i], pickupLng[i], 2_000, bh::consume);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.dispatcher.bench;
+
+import com.example.dispatcher.timer.HashedWheelTimer;
+import com.example.dispatcher.timer.TimerManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule-then-clear of one ride timer, as dispatch does for a ping that
+ * is answered, with {@code backlog} other timers pending: the previous
+ * TimerManager (scheduled pool, UUID string id, ConcurrentHashMap of
+ * futures) against the wheel-backed one and the raw wheel handle.
+ * <p>
+ * Run: {@code mvn -Pbench test -DskipTests -Dbench=TimerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TimerBenchmark {
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"100000"})
+    public int backlog;
+
+    private ScheduledExecutorService legacyScheduler;
+    private final Map<String, ScheduledFuture<?>> legacyTimers = new ConcurrentHashMap<>();
+    private TimerManager timerManager;
+    private HashedWheelTimer wheel;
+
+    @Setup
+    public void setup() {
+        legacyScheduler = Executors.newScheduledThreadPool(4);
+        timerManager = new TimerManager();
+        wheel = new HashedWheelTimer(TimerManager.TICK_MS, Runnable::run);
+        wheel.start();
+        for (int i = 0; i < backlog; i++) {
+            String rideId = "R-" + i;
+            legacySchedule(rideId, 3_600);
+            timerManager.schedule(rideId, "DRIVER_TIMEOUT", 3_600, NOOP);
+            wheel.schedule(3_600_000, NOOP);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        legacyScheduler.shutdownNow();
+        timerManager.shutdown();
+        wheel.close();
+    }
+
+    @Benchmark
+    public void legacyScheduleAndClear() {
+        String timerId = legacySchedule("R-1", 20);
+        ScheduledFuture<?> future = legacyTimers.remove(timerId);
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    @Benchmark
+    public void timerManagerScheduleAndClear() {
+        timerManager.clearTimer(timerManager.schedule("R-1", "DRIVER_TIMEOUT", 20, NOOP));
+    }
+
+    @Benchmark
+    public boolean wheelScheduleAndCancel() {
+        return wheel.cancel(wheel.schedule(20_000, NOOP));
+    }
+
+    // the previous TimerManager.schedule, verbatim
+    private String legacySchedule(String rideId, long delaySeconds) {
+        String timerId = rideId + ":" + "DRIVER_TIMEOUT" + ":" + UUID.randomUUID();
+        ScheduledFuture<?> future = legacyScheduler.schedule(NOOP, delaySeconds, TimeUnit.SECONDS);
+        legacyTimers.put(timerId, future);
+        return timerId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.dispatcher.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongObjectMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            String value = "v" + i;
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 1 -> assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> {
+                    String current = expected.get(key);
+                    assertEquals(current != null, map.remove(key, current));
+                    expected.remove(key);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.size(), map.values().size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+    }
+
+    @Test
+    void concurrentWritersShouldNotLoseEntries() throws Exception {
+        ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>();
+        int threads = 4;
+        int perThread = 20_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                done.add(pool.submit(() -> {
+                    for (long k = base; k < base + perThread; k++) {
+                        map.put(k, k);
+                        // every other key comes and goes again
+                        if ((k & 1) == 1) {
+                            assertEquals(k, map.remove(k));
+                        }
+                        assertNotNull(map.get(k & ~1L));
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(threads * perThread / 2, map.size());
+        map.forEach((k, v) -> assertEquals(0, k & 1));
+    }
+}
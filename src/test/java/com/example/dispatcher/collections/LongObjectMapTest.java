@@ -0,0 +1,40 @@
+package com.example.dispatcher.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomPutsAndRemoves() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+    }
+
+    @Test
+    void shouldSupportZeroKeyAndRejectNullValues() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(0L, "zero");
+
+        assertEquals("zero", map.get(0L));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1L, null));
+    }
+}
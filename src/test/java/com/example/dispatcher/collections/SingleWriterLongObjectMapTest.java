@@ -0,0 +1,70 @@
+package com.example.dispatcher.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleWriterLongObjectMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        SingleWriterLongObjectMap<String> map = new SingleWriterLongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextLong(4_000) - 2_000;
+            String value = "v" + i;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = -2_000; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void readersShouldSeeWholeEntriesWhileTheWriterGrowsAndRemoves() throws Exception {
+        SingleWriterLongObjectMap<Long> map = new SingleWriterLongObjectMap<>(4);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            Random random = new Random(3);
+            while (!done.get()) {
+                long key = random.nextInt(100_000);
+                Long value = map.get(key);
+                // the writer only ever maps a key to itself
+                if (value != null && value != key) {
+                    failure.set(key + " -> " + value);
+                }
+            }
+        });
+        reader.start();
+
+        for (long key = 0; key < 100_000; key++) {
+            map.put(key, key);
+            if (key % 3 == 0) {
+                map.remove(key / 2);
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(41L, map.get(41));
+        assertNull(map.get(42));
+        assertNull(map.get(0));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.dispatcher.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceKernelTest {
+
+    @Test
+    void shouldMatchHaversineAndNeverDropACandidateWithinTheLimit() {
+        Random random = new Random(3);
+        int n = 512;
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        int[] slots = new int[n];
+        double[] out = new double[n];
+
+        for (int round = 0; round < 500; round++) {
+            // pickups anywhere, including near the poles and the antimeridian
+            double lat = -89.9 + random.nextDouble() * 179.8;
+            double lng = -180 + random.nextDouble() * 360;
+            double spread = random.nextBoolean() ? 0.2 : 20;
+            double limit = switch (random.nextInt(3)) {
+                case 0 -> 1_000;
+                case 1 -> 50_000;
+                default -> Double.POSITIVE_INFINITY;
+            };
+
+            for (int i = 0; i < n; i++) {
+                lats[i] = Math.max(-90, Math.min(90, lat + (random.nextDouble() - 0.5) * spread));
+                double l = lng + (random.nextDouble() - 0.5) * spread;
+                lngs[i] = l > 180 ? l - 360 : l < -180 ? l + 360 : l;
+                slots[i] = n - 1 - i;
+            }
+
+            int within = DistanceKernel.distances(lat, lng, lats, lngs, slots, n, limit, out);
+
+            int expectedWithin = 0;
+            for (int i = 0; i < n; i++) {
+                int s = slots[i];
+                double exact = GeoHashUtil.distanceMeters(lat, lng, lats[s], lngs[s]);
+                if (exact <= limit) {
+                    expectedWithin++;
+                    assertEquals(exact, out[i], "round " + round + " candidate " + i);
+                } else {
+                    assertTrue(out[i] > limit);
+                }
+            }
+            assertEquals(expectedWithin, within);
+        }
+    }
+
+    @Test
+    void nullSlotsShouldMeanIdentity() {
+        double[] lats = {28.61, 28.70};
+        double[] lngs = {77.21, 77.30};
+        double[] out = new double[2];
+
+        assertEquals(1, DistanceKernel.distances(28.61, 77.21, lats, lngs, null, 2, 1_000, out));
+        assertEquals(0, out[0]);
+        assertEquals(Double.POSITIVE_INFINITY, out[1]);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.dispatcher.geo;
+
+import ch.hsr.geohash.GeoHash;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoHashUtilTest {
+
+    @Test
+    void encodeShouldMatchReferenceImplementation() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lng = random.nextDouble() * 360 - 180;
+
+            long cell = GeoHashUtil.encodeCell(lat, lng);
+            String expected = GeoHash.withCharacterPrecision(lat, lng, 6).toBase32();
+
+            assertEquals(expected, GeoHashUtil.toBase32(cell));
+            assertEquals(cell, GeoHashUtil.fromBase32(expected));
+        }
+    }
+
+    @Test
+    void encodeShouldMatchReferenceAtEveryPyramidPrecision() {
+        Random random = new Random(2);
+        for (int precision = 1; precision <= 9; precision++) {
+            for (int i = 0; i < 2_000; i++) {
+                double lat = random.nextDouble() * 180 - 90;
+                double lng = random.nextDouble() * 360 - 180;
+
+                long cell = GeoHashUtil.encodeCell(lat, lng, precision);
+                String expected = GeoHash.withCharacterPrecision(lat, lng, precision).toBase32();
+
+                assertEquals(expected, GeoHashUtil.toBase32(cell, precision));
+                assertEquals(GeoHashUtil.parent(GeoHashUtil.encodeCell(lat, lng, 9), 9, precision), cell);
+            }
+        }
+    }
+
+    @Test
+    void oddPrecisionNeighborsShouldMatchReferenceBfs() {
+        String hash = GeoHash.withCharacterPrecision(28.61, 77.20, 7).toBase32();
+
+        for (int ring = 0; ring <= 2; ring++) {
+            assertEquals(referenceNeighbors(hash, ring), GeoHashUtil.neighbors(hash, ring));
+        }
+    }
+
+    @Test
+    void cellMinDistanceShouldNeverExceedTrueDistance() {
+        Random random = new Random(4);
+        for (int i = 0; i < 50_000; i++) {
+            int precision = 3 + random.nextInt(5);
+            double lat = random.nextDouble() * 120 - 60;
+            double lng = random.nextDouble() * 360 - 180;
+            double otherLat = Math.max(-90, Math.min(90, lat + random.nextGaussian()));
+            double otherLng = lng + random.nextGaussian();
+            if (otherLng < -180 || otherLng > 180) {
+                continue;
+            }
+
+            long cell = GeoHashUtil.encodeCell(otherLat, otherLng, precision);
+            double bound = GeoHashUtil.minDistanceMeters(cell, precision, lat, lng);
+            double actual = GeoHashUtil.distanceMeters(lat, lng, otherLat, otherLng);
+            assertTrue(bound <= actual + 1e-6, "bound " + bound + " > distance " + actual);
+        }
+        long cell = GeoHashUtil.encodeCell(28.61, 77.20, 5);
+        assertEquals(0, GeoHashUtil.minDistanceMeters(cell, 5, 28.61, 77.20));
+    }
+
+    @Test
+    void neighborsShouldMatchReferenceBfs() {
+        String hash = GeoHash.withCharacterPrecision(28.61, 77.20, 6).toBase32();
+
+        for (int ring = 0; ring <= 4; ring++) {
+            assertEquals(referenceNeighbors(hash, ring), GeoHashUtil.neighbors(hash, ring));
+        }
+    }
+
+    @Test
+    void ringsShouldTileTheDisk() {
+        long cell = GeoHashUtil.encodeCell(28.61, 77.20);
+        long[] buffer = new long[GeoHashUtil.diskSize(5)];
+
+        Set<Long> union = new HashSet<>();
+        for (int ring = 0; ring <= 5; ring++) {
+            int n = GeoHashUtil.ring(cell, ring, buffer);
+            assertEquals(GeoHashUtil.ringSize(ring), n);
+            for (int i = 0; i < n; i++) {
+                assertTrue(union.add(buffer[i]), "cell visited twice");
+            }
+        }
+
+        int n = GeoHashUtil.neighbors(cell, 5, buffer);
+        assertEquals(union.size(), n);
+        for (int i = 0; i < n; i++) {
+            assertTrue(union.contains(buffer[i]));
+        }
+    }
+
+    @Test
+    void neighborsShouldWrapAtTheAntimeridian() {
+        long east = GeoHashUtil.encodeCell(10.0, 179.999);
+        long west = GeoHashUtil.encodeCell(10.0, -179.999);
+
+        Set<Long> ring1 = new HashSet<>();
+        for (long c : GeoHashUtil.neighbors(east, 1)) {
+            ring1.add(c);
+        }
+        assertTrue(ring1.contains(west));
+    }
+
+    @Test
+    void ringLowerBoundShouldNeverExceedTrueDistance() {
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            double lat = random.nextDouble() * 120 - 60;
+            double lng = random.nextDouble() * 360 - 180;
+            double otherLat = Math.max(-90, Math.min(90, lat + random.nextGaussian() * 0.05));
+            double otherLng = lng + random.nextGaussian() * 0.05;
+            if (otherLng < -180 || otherLng > 180) {
+                continue;
+            }
+
+            long cell = GeoHashUtil.encodeCell(lat, lng);
+            long other = GeoHashUtil.encodeCell(otherLat, otherLng);
+            int ring = Math.max(
+                    Math.abs(GeoHashUtil.cellX(other) - GeoHashUtil.cellX(cell)),
+                    Math.abs(GeoHashUtil.cellY(other) - GeoHashUtil.cellY(cell)));
+
+            double bound = GeoHashUtil.ringLowerBoundMeters(cell, lat, lng, ring);
+            double actual = GeoHashUtil.distanceMeters(lat, lng, otherLat, otherLng);
+            assertTrue(bound <= actual + 1e-6, "bound " + bound + " > distance " + actual);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> GeoHashUtil.fromBase32("abc"));
+        assertThrows(IllegalArgumentException.class, () -> GeoHashUtil.fromBase32("ttnfva"));
+        assertThrows(IllegalArgumentException.class, () -> GeoHashUtil.encodeCell(91, 0));
+    }
+
+    // the original BFS over ch.hsr adjacency
+    private static Set<String> referenceNeighbors(String geoHash, int ring) {
+        Set<String> result = new HashSet<>();
+        Set<String> frontier = new HashSet<>();
+        result.add(geoHash);
+        frontier.add(geoHash);
+        for (int i = 0; i < ring; i++) {
+            Set<String> next = new HashSet<>();
+            for (String h : frontier) {
+                for (GeoHash gh : GeoHash.fromGeohashString(h).getAdjacent()) {
+                    if (result.add(gh.toBase32())) {
+                        next.add(gh.toBase32());
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.dispatcher.service;
 
+import com.example.dispatcher.geo.GeoHashUtil;
 import com.example.dispatcher.model.*;
 import com.example.dispatcher.store.GeoDriverStore;
 import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.RideArchive;
+import com.example.dispatcher.store.TripHistory;
 import com.example.dispatcher.timer.TimerManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -138,23 +146,55 @@ class DispatchServiceTest {
         Driver d1=new Driver();
         store.drivers.put(d1.getId(), d1);
         RideService rideService =
-                new RideService(store, dispatchService, timerManager);
+                new RideService(store, dispatchService, timerManager,
+                        mock(HeatmapService.class), mock(RideArchive.class), mock(TripHistory.class));
 
         Ride ride = new Ride();
         // 🔧 REQUIRED: valid state before ACCEPT
         ride.setStatus(RideStatus.DRIVER_PINGED);
         ride.getPingedDrivers().add(d1.getId());
         // 🔧 Ride owns multiple timers
-        ride.getTimers().add("t1");
-        ride.getTimers().add("t2");
+        ride.addTimer(1L);
+        ride.addTimer(2L);
 
         store.rides.put(ride.getId(), ride);
 
         rideService.accept(ride.getId(), d1.getId());
 
         // ✅ Correct verification
-        verify(timerManager, times(1)).clearTimer("t1");
-        verify(timerManager, times(1)).clearTimer("t2");
+        verify(timerManager, times(1)).clearTimer(1L);
+        verify(timerManager, times(1)).clearTimer(2L);
+    }
+
+    @Test
+    void shouldMarkPingExpiredWhenDriverCancels() {
+
+        InMemoryStore store = new InMemoryStore();
+        DispatchService dispatchService = mock(DispatchService.class);
+        RideService rideService =
+                new RideService(store, dispatchService, mock(TimerManager.class),
+                        mock(HeatmapService.class), mock(RideArchive.class), mock(TripHistory.class));
+
+        Driver d1 = new Driver();
+        Driver d2 = new Driver();
+        store.drivers.put(d1.getId(), d1);
+        store.drivers.put(d2.getId(), d2);
+
+        Ride ride = new Ride();
+        ride.setStatus(RideStatus.DRIVER_PINGED);
+        ride.getPingedDrivers().add(d1.getId());
+        ride.getPingedDrivers().add(d2.getId());
+        store.rides.put(ride.getId(), ride);
+
+        rideService.driverCancel(ride.getId(), d1.getId());
+
+        assertTrue(ride.getPingedDrivers().isExpired(d1.getId()));
+        assertFalse(ride.getPingedDrivers().isExpired(d2.getId()));
+        assertEquals(Set.of(d1.getId(), d2.getId()), ride.getPingedDrivers());
+
+        // a fresh ping is live again
+        ride.getPingedDrivers().add(d1.getId());
+        assertFalse(ride.getPingedDrivers().isExpired(d1.getId()));
     }
 
 
@@ -223,6 +263,56 @@ class DispatchServiceTest {
 
 
 
+    @Test
+    void shouldFindDriverSeveralRingsAway() {
+
+        Driver d1 = new Driver();
+        d1.updateLocation(new Location(28.6800, 77.2000)); // ~8 km north
+        d1.setStatus(DriverStatus.ONLINE);
+        store.drivers.put(d1.getId(), d1);
+        geoStore.addOrUpdate(d1);
+
+        Ride ride = new Ride();
+        ride.setPickup(new Location(28.6100, 77.2000));
+
+        dispatchService.dispatch(ride);
+
+        assertTrue(ride.getPingedDrivers().contains(d1.getId()));
+    }
+
+    @Test
+    void shouldPingTrueNearestDriver() {
+
+        java.util.Random random = new java.util.Random(11);
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(
+                    28.50 + random.nextDouble() * 0.2,
+                    77.10 + random.nextDouble() * 0.2));
+            store.drivers.put(d.getId(), d);
+            geoStore.addOrUpdate(d);
+            drivers.add(d);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Location pickup = new Location(
+                    28.55 + random.nextDouble() * 0.1,
+                    77.15 + random.nextDouble() * 0.1);
+
+            Ride ride = new Ride();
+            ride.setPickup(pickup);
+            dispatchService.dispatch(ride);
+
+            Driver expected = drivers.stream()
+                    .min(Comparator.comparingDouble(d -> GeoHashUtil.distanceMeters(
+                            d.getLocation().lat(), d.getLocation().lng(),
+                            pickup.lat(), pickup.lng())))
+                    .orElseThrow();
+            assertEquals(Set.of(expected.getId()), ride.getPingedDrivers());
+        }
+    }
+
     @Test
     void shouldStoreTimerIdOnRideWhenDriverPinged() {
 
@@ -239,7 +329,7 @@ class DispatchServiceTest {
 
         dispatchService.dispatch(ride);
 
-        assertFalse(ride.getTimers().isEmpty()); // ➕ NEW
+        assertTrue(ride.timerCount() > 0); // ➕ NEW
     }
 
     // ----------------------------------------------------------------
@@ -250,7 +340,8 @@ class DispatchServiceTest {
     void shouldMoveRideThroughAllStates() throws InterruptedException {
 
         RideService rideService =
-                new RideService(store, dispatchService, timerManager);
+                new RideService(store, dispatchService, timerManager,
+                        mock(HeatmapService.class), mock(RideArchive.class), mock(TripHistory.class));
 
         Driver d1 = new Driver();
         d1.updateLocation(new Location(28.61, 77.20));
@@ -289,18 +380,19 @@ class DispatchServiceTest {
         DispatchService dispatchService = mock(DispatchService.class);
 
         RideService rideService =
-                new RideService(store, dispatchService, timerManager);
+                new RideService(store, dispatchService, timerManager,
+                        mock(HeatmapService.class), mock(RideArchive.class), mock(TripHistory.class));
 
         Ride ride = new Ride();
-        ride.getTimers().add("t1");
-        ride.getTimers().add("t2");
+        ride.addTimer(1L);
+        ride.addTimer(2L);
 
         store.rides.put("R1", ride);
 
         rideService.riderCancel("R1");
 
-        verify(timerManager).clearTimer("t1");
-        verify(timerManager).clearTimer("t2");
+        verify(timerManager).clearTimer(1L);
+        verify(timerManager).clearTimer(2L);
     }
 
     @Test
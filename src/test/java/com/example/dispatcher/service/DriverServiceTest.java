@@ -1,5 +1,6 @@
 package com.example.dispatcher.service;
 
+import com.example.dispatcher.model.CursorPage;
 import com.example.dispatcher.model.Driver;
 import com.example.dispatcher.model.DriverStatus;
 import com.example.dispatcher.model.Location;
@@ -10,6 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,10 +43,64 @@ class DriverServiceTest {
         assertEquals(DriverStatus.OFFLINE, stored.getStatus());
     }
 
+    @Test
+    void shouldOnlyResolveTheCanonicalId() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        driverService.add(d);
+
+        String digits = d.getId().substring(2);
+        assertSame(d, store.drivers.get("D-" + digits));
+        assertNull(store.drivers.get("D-0" + digits));
+        assertNull(store.drivers.get("D-00" + digits));
+        assertEquals(-1, Driver.numericIdOf("D-"));
+        assertEquals(0, Driver.numericIdOf("D-0"));
+    }
+
     @Test
     void shouldThrowIfLocationMissing() {
         Driver d = new Driver();
         assertThrows(IllegalArgumentException.class,
                 () -> driverService.add(d));
     }
+
+    @Test
+    void nearbyShouldRejectOutOfRangeKAndCoordinates() {
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.findNearby(28.61, 77.21, 2_000_000_000, Double.POSITIVE_INFINITY, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.findNearby(28.61, 77.21, 0, 1_000, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.findNearby(91, 77.21, 10, 1_000, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.findNearby(28.61, Double.NaN, 10, 1_000, null));
+        assertTrue(driverService.findNearby(28.61, 77.21, DriverService.MAX_PAGE, 1_000, null).isEmpty());
+    }
+
+    @Test
+    void shouldPageAndStreamDriversByStatus() {
+        List<Driver> added = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(28.61, 77.21));
+            added.add(driverService.add(d));
+        }
+        driverService.goOffline(added.get(1).getId());
+        driverService.goOffline(added.get(3).getId());
+
+        CursorPage<Driver> first = driverService.getDrivers(null, null, 3);
+        assertEquals(added.subList(0, 3), first.items());
+        CursorPage<Driver> second = driverService.getDrivers(null, first.nextCursor(), 3);
+        assertEquals(added.subList(3, 5), second.items());
+        assertNull(second.nextCursor());
+
+        List<Driver> offline = new ArrayList<>();
+        driverService.forEachDriver(DriverStatus.OFFLINE, offline::add);
+        assertEquals(List.of(added.get(1), added.get(3)), offline);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.getDrivers(null, "nope", 3));
+        assertThrows(IllegalArgumentException.class,
+                () -> driverService.getDrivers(null, null, 0));
+    }
 }
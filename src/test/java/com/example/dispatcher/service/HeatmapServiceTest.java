@@ -0,0 +1,92 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.HeatmapCell;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.store.GeoDriverStore;
+import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.RideArchive;
+import com.example.dispatcher.store.TripHistory;
+import com.example.dispatcher.timer.TimerManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class HeatmapServiceTest {
+
+    private InMemoryStore store;
+    private GeoDriverStore geoStore;
+    private HeatmapService heatmapService;
+    private DriverService driverService;
+    private RideService rideService;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+        geoStore = new GeoDriverStore();
+        heatmapService = new HeatmapService(geoStore);
+        driverService = new DriverService(store, geoStore);
+        TimerManager timerManager = new TimerManager();
+        rideService = new RideService(store, new DispatchService(geoStore, store, timerManager),
+                timerManager, heatmapService, mock(RideArchive.class), mock(TripHistory.class));
+    }
+
+    @Test
+    void supplyShouldFollowDriverMovesAndStatus() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.6100, 77.2100));
+        driverService.add(d);
+        assertEquals(1, at(28.6100, 77.2100).onlineDrivers());
+
+        d.updateLocation(new Location(28.7000, 77.3000));
+        geoStore.addOrUpdate(d);
+        assertNull(find(28.6100, 77.2100));
+        assertEquals(1, at(28.7000, 77.3000).onlineDrivers());
+
+        driverService.goOffline(d.getId());
+        assertNull(find(28.7000, 77.3000));
+        driverService.goOnline(d.getId());
+        assertEquals(1, at(28.7000, 77.3000).onlineDrivers());
+    }
+
+    @Test
+    void demandShouldCountWaitingRidesUntilAccepted() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.6300, 77.2100));
+        driverService.add(d);
+
+        Ride ride = new Ride();
+        ride.setPickup(new Location(28.6310, 77.2150));
+        rideService.create(ride);
+
+        // pinged is still waiting
+        HeatmapCell pickup = at(28.6310, 77.2150);
+        assertEquals(1, pickup.waitingRides());
+        assertEquals(1, pickup.requested().last1m());
+
+        rideService.accept(ride.getId(), d.getId());
+        pickup = at(28.6310, 77.2150);
+        assertEquals(0, pickup.waitingRides());
+        assertEquals(1, pickup.accepted().last1m());
+        assertEquals(1, pickup.requested().last15m());
+    }
+
+    private HeatmapCell at(double lat, double lng) {
+        HeatmapCell cell = find(lat, lng);
+        assertNotNull(cell);
+        return cell;
+    }
+
+    private HeatmapCell find(double lat, double lng) {
+        String geoHash = GeoHashUtil.encode(lat, lng);
+        List<HeatmapCell> cells = heatmapService.cells(GeoHashUtil.PRECISION);
+        return cells.stream().filter(c -> c.geoHash().equals(geoHash)).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.dispatcher.service;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.LocationBatchResult;
+import com.example.dispatcher.model.LocationUpdate;
+import com.example.dispatcher.store.GeoDriverStore;
+import com.example.dispatcher.store.InMemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationIngestServiceTest {
+
+    private InMemoryStore store;
+    private GeoDriverStore geoStore;
+    private DriverService driverService;
+    private LocationIngestService ingest;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryStore();
+        geoStore = new GeoDriverStore();
+        driverService = new DriverService(store, geoStore);
+        // long window: tests flush by hand
+        ingest = new LocationIngestService(store, geoStore, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingest.shutdown();
+    }
+
+    @Test
+    void shouldCoalesceLastWriteWinsAndApplyOnFlush() {
+        Driver d = driver(28.61, 77.21);
+
+        LocationBatchResult result = ingest.submit(List.of(
+                new LocationUpdate(d.getId(), 28.62, 77.22, 100L),
+                new LocationUpdate(d.getId(), 28.70, 77.30, 300L),
+                // arrives last but is older
+                new LocationUpdate(d.getId(), 28.65, 77.25, 200L)));
+
+        assertEquals(new LocationBatchResult(3, 0), result);
+        assertEquals(new Location(28.61, 77.21), d.getLocation(), "nothing applied before flush");
+
+        assertEquals(1, ingest.flush());
+        assertEquals(new Location(28.70, 77.30), d.getLocation());
+        assertEquals(1, geoStore.nearest(28.70, 77.30, 1, 50, null).size());
+        assertTrue(geoStore.nearest(28.61, 77.21, 1, 50, null).isEmpty());
+
+        assertEquals(0, ingest.flush());
+    }
+
+    @Test
+    void shouldRejectUnknownDriversAndBadCoordinates() {
+        Driver d = driver(28.61, 77.21);
+
+        LocationBatchResult result = ingest.submit(List.of(
+                new LocationUpdate("D-unknown", 28.62, 77.22, null),
+                new LocationUpdate(d.getId(), 91, 77.22, null),
+                new LocationUpdate(d.getId(), 28.62, Double.NaN, null),
+                new LocationUpdate(d.getId(), 28.62, 77.22, null)));
+
+        assertEquals(new LocationBatchResult(1, 3), result);
+        assertThrows(IllegalArgumentException.class, () -> ingest.submit(List.of()));
+    }
+
+    @Test
+    void shouldApplyThousandsOfPingsInOneBatch() {
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            drivers.add(driver(28.61, 77.21));
+        }
+
+        List<LocationUpdate> updates = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < drivers.size(); i++) {
+                updates.add(new LocationUpdate(drivers.get(i).getId(),
+                        28.5 + i * 1e-4, 77.1 + round * 1e-3, (long) round));
+            }
+        }
+        ingest.submit(updates);
+
+        assertEquals(2_000, ingest.flush());
+        for (int i = 0; i < drivers.size(); i++) {
+            assertEquals(new Location(28.5 + i * 1e-4, 77.1 + 2e-3), drivers.get(i).getLocation());
+        }
+    }
+
+    @Test
+    void shouldDropPingsOlderThanTheLastAppliedOne() {
+        Driver d = driver(28.61, 77.21);
+
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.70, 77.30, 300L)));
+        assertEquals(1, ingest.flush());
+
+        // delayed into the next window
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.65, 77.25, 200L)));
+        assertEquals(0, ingest.flush());
+        assertEquals(new Location(28.70, 77.30), d.getLocation());
+
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.66, 77.26, 400L)));
+        assertEquals(1, ingest.flush());
+        assertEquals(new Location(28.66, 77.26), d.getLocation());
+    }
+
+    @Test
+    void shouldRejectPingsStampedFarInTheFuture() {
+        Driver d = driver(28.61, 77.21);
+
+        LocationBatchResult result = ingest.submit(List.of(
+                new LocationUpdate(d.getId(), 28.70, 77.30, Long.MAX_VALUE)));
+        assertEquals(new LocationBatchResult(0, 1), result);
+        assertEquals(0, ingest.flush());
+
+        // the driver is not silenced by it
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.66, 77.26, System.currentTimeMillis())));
+        assertEquals(1, ingest.flush());
+        assertEquals(new Location(28.66, 77.26), d.getLocation());
+    }
+
+    @Test
+    void unstampedPingsShouldNotBeOrderedAgainstDeviceTime() {
+        Driver d = driver(28.61, 77.21);
+
+        // a device clock running ahead, within the allowed skew
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.70, 77.30, System.currentTimeMillis() + 20_000)));
+        assertEquals(1, ingest.flush());
+
+        ingest.submit(List.of(new LocationUpdate(d.getId(), 28.66, 77.26, null)));
+        assertEquals(1, ingest.flush());
+        assertEquals(new Location(28.66, 77.26), d.getLocation());
+    }
+
+    private Driver driver(double lat, double lng) {
+        Driver d = new Driver();
+        d.updateLocation(new Location(lat, lng));
+        return driverService.add(d);
+    }
+}
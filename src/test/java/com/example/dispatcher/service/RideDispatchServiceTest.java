@@ -1,17 +1,24 @@
 package com.example.dispatcher.service;
 
+import com.example.dispatcher.model.CursorPage;
 import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverPingStatusResponse;
 import com.example.dispatcher.model.DriverStatus;
 import com.example.dispatcher.model.Location;
 import com.example.dispatcher.model.Ride;
 import com.example.dispatcher.model.RideStatus;
 import com.example.dispatcher.store.GeoDriverStore;
 import com.example.dispatcher.store.InMemoryStore;
+import com.example.dispatcher.store.RideArchive;
+import com.example.dispatcher.store.TripHistory;
 import com.example.dispatcher.timer.TimerManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 class RideDispatchServiceTest {
 
@@ -27,7 +34,8 @@ class RideDispatchServiceTest {
         geoStore = new GeoDriverStore();
         timerManager = new TimerManager();
         dispatchService = new DispatchService(geoStore, store, timerManager);
-        service = new RideService(store, dispatchService, timerManager);
+        service = new RideService(store, dispatchService, timerManager,
+                mock(HeatmapService.class), mock(RideArchive.class), mock(TripHistory.class));
     }
 
     @Test
@@ -120,6 +128,41 @@ class RideDispatchServiceTest {
         assertTrue(updated.getPingedDrivers().contains(D2.getId()));
     }
 
+    @Test
+    void driverRidesShouldListEveryRideTheDriverTouchedNewestFirst() {
+        Driver d1 = addDriver(28.63, 77.21, DriverStatus.ONLINE);
+        Driver d2 = addDriver(28.64, 77.22, DriverStatus.ONLINE);
+
+        Ride first = new Ride();
+        first.setPickup(new Location(28.63, 77.21));
+        service.create(first);
+        service.accept(first.getId(), d1.getId());
+        // d1 backs out, d2 gets pinged for the same ride
+        service.driverCancel(first.getId(), d1.getId());
+
+        Ride second = new Ride();
+        second.setPickup(new Location(28.64, 77.22));
+        service.create(second);
+        Ride untouched = new Ride();
+        store.rides.put(untouched.getId(), untouched);
+
+        DriverRideService driverRides = new DriverRideService(store, mock(RideArchive.class));
+        CursorPage<DriverPingStatusResponse> page = driverRides.getRidesForDriver(d2.getId(), null, 1);
+        assertEquals(List.of(second.getId()), page.items().stream().map(DriverPingStatusResponse::getRideId).toList());
+        assertNotNull(page.nextCursor());
+
+        page = driverRides.getRidesForDriver(d2.getId(), page.nextCursor(), 1);
+        assertEquals(List.of(first.getId()), page.items().stream().map(DriverPingStatusResponse::getRideId).toList());
+        assertNull(page.nextCursor());
+
+        List<DriverPingStatusResponse> d1Rides = driverRides.getRidesForDriver(d1.getId(), null, 10).items();
+        assertEquals(1, d1Rides.size());
+        assertTrue(d1Rides.get(0).isExpired());
+        assertFalse(d1Rides.get(0).isCurrentlyAssigned());
+
+        assertThrows(IllegalArgumentException.class, () -> driverRides.getRidesForDriver(d1.getId(), "x", 10));
+    }
+
     // ---------------- HELPER ----------------
     private Driver addDriver( double lat, double lng, DriverStatus status) {
         Driver d = new Driver();
@@ -0,0 +1,29 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GeohashSpatialIndexTest extends SpatialIndexContractTest {
+
+    @Override
+    protected SpatialIndex create(SlotPositions positions) {
+        return new GeohashSpatialIndex(positions);
+    }
+
+    @Test
+    void pyramidCountsShouldFollowMoves() {
+        GeohashSpatialIndex pyramid = (GeohashSpatialIndex) index;
+        put(0, 28.61, 77.21);
+
+        for (int p = GeohashSpatialIndex.TOP_PRECISION; p <= GeohashSpatialIndex.LEAF_PRECISION; p++) {
+            assertEquals(1, pyramid.count(p, GeoHashUtil.encodeCell(28.61, 77.21, p)));
+        }
+
+        put(0, 28.70, 77.30);
+        assertEquals(0, pyramid.count(7, GeoHashUtil.encodeCell(28.61, 77.21, 7)));
+        assertEquals(1, pyramid.count(7, GeoHashUtil.encodeCell(28.70, 77.30, 7)));
+        assertEquals(1, pyramid.count(3, GeoHashUtil.encodeCell(28.61, 77.21, 3)));
+    }
+}
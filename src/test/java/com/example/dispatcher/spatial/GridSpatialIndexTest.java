@@ -0,0 +1,9 @@
+package com.example.dispatcher.spatial;
+
+class GridSpatialIndexTest extends SpatialIndexContractTest {
+
+    @Override
+    protected SpatialIndex create(SlotPositions positions) {
+        return new GridSpatialIndex(positions);
+    }
+}
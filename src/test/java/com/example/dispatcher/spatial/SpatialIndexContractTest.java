@@ -0,0 +1,214 @@
+package com.example.dispatcher.spatial;
+
+import com.example.dispatcher.geo.DistanceKernel;
+import com.example.dispatcher.geo.GeoHashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link SpatialIndex} must share, checked against brute
+ * force; one subclass per implementation.
+ */
+abstract class SpatialIndexContractTest {
+
+    private static final int SLOTS = 3_000;
+
+    protected final double[] lats = new double[SLOTS];
+    protected final double[] lngs = new double[SLOTS];
+    private final boolean[] indexed = new boolean[SLOTS];
+
+    protected SpatialIndex index;
+
+    protected abstract SpatialIndex create(SlotPositions positions);
+
+    @BeforeEach
+    void setUp() {
+        index = create(new SlotPositions() {
+            @Override
+            public double lat(int slot) {
+                return lats[slot];
+            }
+
+            @Override
+            public double lng(int slot) {
+                return lngs[slot];
+            }
+
+            // array-backed, like DriverPositionTable
+            @Override
+            public int distances(double lat, double lng, int[] slots, int count,
+                                 double limitMeters, double[] out) {
+                return DistanceKernel.distances(lat, lng, lats, lngs, slots, count, limitMeters, out);
+            }
+        });
+    }
+
+    @Test
+    void shouldTrackSizeAcrossUpsertMoveAndRemove() {
+        put(0, 28.61, 77.21);
+        put(1, 28.62, 77.22);
+        assertEquals(2, index.size());
+
+        put(0, 19.07, 72.87);
+        assertEquals(2, index.size());
+
+        index.remove(1);
+        index.remove(1);
+        index.remove(42);
+        assertEquals(1, index.size());
+        assertEquals(0, index.nearest(28.62, 77.22, 1, 1_000, null, new int[1], null));
+    }
+
+    @Test
+    void emptyIndexShouldFindNothing() {
+        assertEquals(0, index.nearest(0, 0, 5, Double.POSITIVE_INFINITY, null, new int[5], new double[5]));
+        index.forEachWithin(0, 0, 1e7, slot -> fail());
+        index.forEachInBox(-90, -180, 90, 180, slot -> fail());
+    }
+
+    @Test
+    void nearestShouldMatchBruteForceUnderRandomMoves() {
+        Random random = new Random(7);
+        scatter(random);
+
+        for (int round = 0; round < 300; round++) {
+            mutate(random);
+
+            double lat = 28.3 + random.nextDouble() * 0.6;
+            double lng = 76.9 + random.nextDouble() * 0.6;
+            int k = 1 + random.nextInt(20);
+            double radius = switch (random.nextInt(3)) {
+                case 0 -> 500;
+                case 1 -> 5_000;
+                default -> Double.POSITIVE_INFINITY;
+            };
+            IntPredicate filter = random.nextBoolean() ? null : slot -> slot % 3 != 0;
+
+            int[] slots = new int[k];
+            double[] distances = new double[k];
+            int n = index.nearest(lat, lng, k, radius, filter, slots, distances);
+
+            double[] expected = bruteForce(lat, lng, k, radius, filter);
+            assertEquals(expected.length, n, "round " + round);
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[i], distances[i], 1e-9, "round " + round);
+                assertEquals(distances[i], distance(lat, lng, slots[i]), 1e-9);
+                assertTrue(filter == null || filter.test(slots[i]));
+            }
+        }
+    }
+
+    @Test
+    void rangeQueriesShouldMatchBruteForce() {
+        Random random = new Random(11);
+        scatter(random);
+
+        for (int round = 0; round < 100; round++) {
+            mutate(random);
+
+            double lat = 28.3 + random.nextDouble() * 0.6;
+            double lng = 76.9 + random.nextDouble() * 0.6;
+            double radius = 200 + random.nextDouble() * 10_000;
+
+            Set<Integer> within = new HashSet<>();
+            index.forEachWithin(lat, lng, radius, within::add);
+            Set<Integer> expectedWithin = new HashSet<>();
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (indexed[slot] && distance(lat, lng, slot) <= radius) {
+                    expectedWithin.add(slot);
+                }
+            }
+            assertEquals(expectedWithin, within, "round " + round);
+
+            double south = lat - random.nextDouble() * 0.1;
+            double west = lng - random.nextDouble() * 0.1;
+            double north = lat + random.nextDouble() * 0.1;
+            double east = lng + random.nextDouble() * 0.1;
+            List<Integer> inBox = new ArrayList<>();
+            index.forEachInBox(south, west, north, east, inBox::add);
+            Set<Integer> expectedInBox = new HashSet<>();
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (indexed[slot] && lats[slot] >= south && lats[slot] < north
+                        && lngs[slot] >= west && lngs[slot] < east) {
+                    expectedInBox.add(slot);
+                }
+            }
+            assertEquals(expectedInBox.size(), inBox.size(), "no duplicates, round " + round);
+            assertEquals(expectedInBox, new HashSet<>(inBox), "round " + round);
+        }
+    }
+
+    @Test
+    void nearestShouldSeeAcrossTheAntimeridian() {
+        put(0, 10, 179.9995);
+        put(1, 10, 179.0);
+
+        int[] slots = new int[2];
+        double[] distances = new double[2];
+        assertEquals(2, index.nearest(10, -179.9995, 2, Double.POSITIVE_INFINITY, null, slots, distances));
+        assertEquals(0, slots[0]);
+        assertTrue(distances[0] < 200);
+    }
+
+    @Test
+    void shouldKeepManySlotsAtTheSamePoint() {
+        for (int slot = 0; slot < 100; slot++) {
+            put(slot, 28.61, 77.21);
+        }
+
+        int[] slots = new int[100];
+        assertEquals(100, index.nearest(28.61, 77.21, 100, 10, null, slots, null));
+        assertEquals(100, Arrays.stream(slots).distinct().count());
+    }
+
+    protected void put(int slot, double lat, double lng) {
+        lats[slot] = lat;
+        lngs[slot] = lng;
+        indexed[slot] = true;
+        index.upsert(slot);
+    }
+
+    private void scatter(Random random) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slot % 10 == 0) {
+                // a few far away, so searches have to cross empty space
+                put(slot, -60 + random.nextDouble() * 120, -180 + random.nextDouble() * 360);
+            } else {
+                put(slot, 28.3 + random.nextDouble() * 0.6, 76.9 + random.nextDouble() * 0.6);
+            }
+        }
+    }
+
+    // short hops, occasional removes and re-adds
+    private void mutate(Random random) {
+        for (int i = 0; i < 50; i++) {
+            int slot = random.nextInt(SLOTS);
+            if (random.nextInt(10) == 0) {
+                index.remove(slot);
+                indexed[slot] = false;
+            } else {
+                double lat = Math.max(-90, Math.min(90, lats[slot] + (random.nextDouble() - 0.5) * 0.01));
+                put(slot, lat, lngs[slot] + (random.nextDouble() - 0.5) * 0.01);
+            }
+        }
+    }
+
+    private double[] bruteForce(double lat, double lng, int k, double radius, IntPredicate filter) {
+        return java.util.stream.IntStream.range(0, SLOTS)
+                .filter(slot -> indexed[slot] && (filter == null || filter.test(slot)))
+                .mapToDouble(slot -> distance(lat, lng, slot))
+                .filter(d -> d <= radius)
+                .sorted()
+                .limit(k)
+                .toArray();
+    }
+
+    private double distance(double lat, double lng, int slot) {
+        return GeoHashUtil.distanceMeters(lat, lng, lats[slot], lngs[slot]);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.HeatmapCell;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellHeatmapTest {
+
+    private static final long A = GeoHashUtil.encodeCell(28.6100, 77.2100);
+    private static final long B = GeoHashUtil.encodeCell(28.6200, 77.2300);
+    private static final long FAR = GeoHashUtil.encodeCell(19.0760, 72.8777);
+
+    private final CellHeatmap heatmap = new CellHeatmap();
+
+    @Test
+    void gaugesShouldFollowMovesAtEveryPrecision() {
+        heatmap.supplyMoved(GeoHashUtil.NO_CELL, A);
+        heatmap.supplyMoved(GeoHashUtil.NO_CELL, A);
+        heatmap.supplyMoved(A, B);
+        heatmap.demandMoved(GeoHashUtil.NO_CELL, FAR);
+
+        List<HeatmapCell> fine = heatmap.cells(GeoHashUtil.PRECISION, 0);
+        assertEquals(3, fine.size());
+        assertEquals(1, cell(fine, A, GeoHashUtil.PRECISION).onlineDrivers());
+        assertEquals(1, cell(fine, B, GeoHashUtil.PRECISION).onlineDrivers());
+        assertEquals(1, cell(fine, FAR, GeoHashUtil.PRECISION).waitingRides());
+
+        // A and B share their precision-3 parent
+        List<HeatmapCell> coarse = heatmap.cells(3, 0);
+        assertEquals(2, coarse.size());
+        assertEquals(2, cell(coarse, A, 3).onlineDrivers());
+        assertEquals(0, cell(coarse, A, 3).waitingRides());
+    }
+
+    @Test
+    void emptiedCellsShouldDisappear() {
+        heatmap.supplyMoved(GeoHashUtil.NO_CELL, A);
+        heatmap.supplyMoved(A, GeoHashUtil.NO_CELL);
+
+        for (int p = 1; p <= GeoHashUtil.PRECISION; p++) {
+            assertTrue(heatmap.cells(p, 0).isEmpty(), "precision " + p);
+        }
+    }
+
+    @Test
+    void windowsShouldSlideAndExpire() {
+        long t0 = 1_000 * CellHeatmap.BUCKET_MS;
+        heatmap.rideRequested(A, t0);
+        heatmap.rideRequested(A, t0 + 2 * 60_000);
+        heatmap.rideAccepted(A, t0 + 2 * 60_000);
+
+        HeatmapCell now = cell(heatmap.cells(GeoHashUtil.PRECISION, t0 + 2 * 60_000), A, GeoHashUtil.PRECISION);
+        assertEquals(new HeatmapCell.Window(1, 2, 2), now.requested());
+        assertEquals(new HeatmapCell.Window(1, 1, 1), now.accepted());
+
+        HeatmapCell later = cell(heatmap.cells(GeoHashUtil.PRECISION, t0 + 10 * 60_000), A, GeoHashUtil.PRECISION);
+        assertEquals(new HeatmapCell.Window(0, 0, 2), later.requested());
+
+        assertTrue(heatmap.cells(GeoHashUtil.PRECISION, t0 + 20 * 60_000).isEmpty());
+    }
+
+    @Test
+    void shouldRejectUnsupportedPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> heatmap.cells(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> heatmap.cells(GeoHashUtil.PRECISION + 1, 0));
+    }
+
+    private static HeatmapCell cell(List<HeatmapCell> cells, long cell, int precision) {
+        String geoHash = GeoHashUtil.toBase32(GeoHashUtil.parent(cell, GeoHashUtil.PRECISION, precision), precision);
+        return cells.stream()
+                .filter(c -> c.geoHash().equals(geoHash))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.DriverStatus;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverPositionTableTest {
+
+    @Test
+    void shouldGrowAndKeepRowsPerSlot() {
+        DriverPositionTable table = new DriverPositionTable(2);
+
+        table.set(0, 28.61, 77.21, DriverStatus.ONLINE, 7L, 100L);
+        table.set(9, 19.07, 72.87, DriverStatus.ON_TRIP, 9L, 200L);
+
+        assertEquals(10, table.size());
+        assertEquals(28.61, table.lat(0));
+        assertEquals(77.21, table.lng(0));
+        assertEquals(DriverStatus.ON_TRIP, table.status(9));
+        assertEquals(9L, table.cell(9));
+        assertEquals(200L, table.lastPingAt(9));
+
+        // grown but never written
+        assertNull(table.status(5));
+        assertEquals(GeoHashUtil.NO_CELL, table.cell(5));
+
+        table.setStatus(0, DriverStatus.OFFLINE);
+        assertEquals(DriverStatus.OFFLINE, table.status(0));
+        assertThrows(IllegalArgumentException.class, () -> table.status(10));
+    }
+}
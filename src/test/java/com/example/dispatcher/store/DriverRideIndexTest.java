@@ -0,0 +1,51 @@
+package com.example.dispatcher.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriverRideIndexTest {
+
+    @Test
+    void pagesShouldWalkBackThroughBoundedHistory() {
+        DriverRideIndex index = new DriverRideIndex(10);
+        for (long ride = 1; ride <= 25; ride++) {
+            index.record(7, ride);
+            // pinged, then assigned: still one entry
+            index.record(7, ride);
+        }
+
+        List<Long> seen = new ArrayList<>();
+        long cursor = Long.MAX_VALUE;
+        do {
+            DriverRideIndex.Page page = index.page(7, cursor, 3);
+            for (long ride : page.rideIds()) {
+                seen.add(ride);
+            }
+            cursor = page.next();
+        } while (cursor >= 0);
+
+        // only the last 10 rides are kept, newest first
+        assertEquals(List.of(25L, 24L, 23L, 22L, 21L, 20L, 19L, 18L, 17L, 16L), seen);
+        assertEquals(0, index.page(8, Long.MAX_VALUE, 3).rideIds().length);
+    }
+
+    @Test
+    void cursorShouldStayStableWhileNewRidesArrive() {
+        DriverRideIndex index = new DriverRideIndex();
+        for (long ride = 1; ride <= 5; ride++) {
+            index.record(1, ride);
+        }
+        DriverRideIndex.Page first = index.page(1, Long.MAX_VALUE, 2);
+        assertArrayEquals(new long[]{5, 4}, first.rideIds());
+
+        index.record(1, 6);
+        DriverRideIndex.Page second = index.page(1, first.next(), 2);
+        assertArrayEquals(new long[]{3, 2}, second.rideIds());
+        assertArrayEquals(new long[]{1}, index.page(1, second.next(), 2).rideIds());
+        assertEquals(-1, index.page(1, second.next(), 2).next());
+    }
+}
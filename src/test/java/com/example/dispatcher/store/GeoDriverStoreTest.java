@@ -3,6 +3,22 @@ package com.example.dispatcher.store;
 import com.example.dispatcher.model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.spatial.SpatialIndexType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GeoDriverStoreTest {
@@ -44,4 +60,334 @@ class GeoDriverStoreTest {
         assertEquals(77.22, geo.getLongitude());
     }
 
+    @Test
+    void shouldMoveDriverBetweenCells() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        geoStore.addOrUpdate(d);
+        String oldHash = d.getGeoHash();
+
+        d.updateLocation(new Location(28.70, 77.30));
+        geoStore.addOrUpdate(d);
+
+        assertTrue(geoStore.find(Set.of(oldHash)).isEmpty());
+        assertEquals(1, geoStore.find(Set.of(d.getGeoHash())).size());
+    }
+
+    @Test
+    void nearestShouldReturnKClosestInOrder() {
+        Random random = new Random(5);
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(
+                    28.50 + random.nextDouble() * 0.2,
+                    77.10 + random.nextDouble() * 0.2));
+            geoStore.addOrUpdate(d);
+            drivers.add(d);
+        }
+
+        double lat = 28.6, lng = 77.2;
+        List<String> expected = drivers.stream()
+                .sorted(Comparator.comparingDouble(d -> GeoHashUtil.distanceMeters(
+                        lat, lng, d.getLocation().lat(), d.getLocation().lng())))
+                .limit(7)
+                .map(Driver::getId)
+                .toList();
+
+        List<String> actual = geoStore.nearest(lat, lng, 7, Double.POSITIVE_INFINITY, null)
+                .stream().map(GeoDriver::getDriverId).toList();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void nearestShouldApplyRadiusAndFilter() {
+        Driver near = new Driver();
+        near.updateLocation(new Location(28.6005, 77.2005));
+        Driver offline = new Driver();
+        offline.updateLocation(new Location(28.6001, 77.2001));
+        offline.setStatus(DriverStatus.OFFLINE);
+        Driver far = new Driver();
+        far.updateLocation(new Location(28.70, 77.30));
+        geoStore.addOrUpdate(near);
+        geoStore.addOrUpdate(offline);
+        geoStore.addOrUpdate(far);
+
+        List<GeoDriver> result = geoStore.nearest(28.6, 77.2, 5, 2_000,
+                gd -> gd.getDriver().getStatus() == DriverStatus.ONLINE);
+
+        assertEquals(List.of(near.getId()),
+                result.stream().map(GeoDriver::getDriverId).toList());
+    }
+
+    @Test
+    void statusTransitionsShouldMoveDriverBetweenPartitions() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        geoStore.addOrUpdate(d);
+
+        d.assignRide("R-1");
+        assertTrue(geoStore.nearest(28.61, 77.21, 1, 1_000, DriverStatus.ONLINE, null).isEmpty());
+        assertEquals(1, geoStore.nearest(28.61, 77.21, 1, 1_000, DriverStatus.ON_TRIP, null).size());
+
+        d.clearAssignedRide();
+        assertEquals(1, geoStore.nearest(28.61, 77.21, 1, 1_000, DriverStatus.ONLINE, null).size());
+
+        d.setStatus(DriverStatus.OFFLINE);
+        assertTrue(geoStore.nearest(28.61, 77.21, 1, 1_000, DriverStatus.ONLINE, null).isEmpty());
+        assertEquals(DriverStatus.OFFLINE, geoStore.get(d.getId()).getIndexedStatus());
+    }
+
+    @Test
+    void pyramidCountsShouldFollowMovesAndStatus() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        geoStore.addOrUpdate(d);
+
+        for (int p = 3; p <= 7; p++) {
+            long cell = GeoHashUtil.encodeCell(28.61, 77.21, p);
+            assertEquals(1, geoStore.count(DriverStatus.ONLINE, p, cell));
+        }
+
+        d.updateLocation(new Location(28.70, 77.30));
+        geoStore.addOrUpdate(d);
+        assertEquals(0, geoStore.count(DriverStatus.ONLINE, 7, GeoHashUtil.encodeCell(28.61, 77.21, 7)));
+        assertEquals(1, geoStore.count(DriverStatus.ONLINE, 3, GeoHashUtil.encodeCell(28.61, 77.21, 3)));
+
+        d.setStatus(DriverStatus.OFFLINE);
+        assertEquals(0, geoStore.count(DriverStatus.ONLINE, 3, GeoHashUtil.encodeCell(28.70, 77.30, 3)));
+        assertEquals(1, geoStore.count(DriverStatus.OFFLINE, 3, GeoHashUtil.encodeCell(28.70, 77.30, 3)));
+    }
+
+    @Test
+    void indexShouldSeeLocationOnlyOnceItIsAdded() {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        long before = System.currentTimeMillis();
+        geoStore.addOrUpdate(d);
+
+        assertTrue(geoStore.lastPingAt(d.getId()) >= before);
+        assertEquals(-1, geoStore.lastPingAt("D-unknown"));
+
+        // moved on the Driver but not yet reported to the store
+        d.updateLocation(new Location(28.70, 77.30));
+        assertEquals(1, geoStore.nearest(28.61, 77.21, 1, 100, null).size());
+
+        geoStore.addOrUpdate(d);
+        assertTrue(geoStore.nearest(28.61, 77.21, 1, 100, null).isEmpty());
+        assertEquals(1, geoStore.nearest(28.70, 77.30, 1, 100, null).size());
+    }
+
+    @Test
+    void silentDriversShouldLeaveTheIndexUntilTheirNextPing() {
+        long[] now = {1_000_000};
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public long millis() {
+                return now[0];
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now[0]);
+            }
+        };
+        GeoDriverStore store = new GeoDriverStore(SpatialIndexType.GEOHASH, 60_000, clock);
+
+        Driver chatty = new Driver();
+        chatty.updateLocation(new Location(28.61, 77.21));
+        Driver silent = new Driver();
+        silent.updateLocation(new Location(28.6101, 77.2101));
+        store.addOrUpdate(chatty);
+        store.addOrUpdate(silent);
+
+        // chatty pings every 10 s, silent never again
+        for (int i = 0; i < 6; i++) {
+            now[0] += 10_000;
+            store.addOrUpdate(chatty);
+            store.evictSilent();
+        }
+        now[0] += 1_000;
+        assertEquals(1, store.evictSilent());
+        assertEquals(List.of(chatty.getId()), store.nearest(28.61, 77.21, 5, 100, null).stream()
+                .map(GeoDriver::getDriverId).toList());
+        assertNull(store.get(silent.getId()).getIndexedStatus());
+
+        // a status change is not a ping
+        silent.setStatus(DriverStatus.OFFLINE);
+        silent.setStatus(DriverStatus.ONLINE);
+        assertEquals(1, store.nearest(28.61, 77.21, 5, 100, null).size());
+
+        store.addOrUpdate(silent);
+        assertEquals(2, store.nearest(28.61, 77.21, 5, 100, DriverStatus.ONLINE, null).size());
+        assertEquals(0, store.evictSilent());
+    }
+
+    @Test
+    void snapshotReadsShouldMatchLockedReadsAfterEveryWrite() {
+        Random random = new Random(5);
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(28.5 + random.nextDouble() * 0.2, 77.1 + random.nextDouble() * 0.2));
+            geoStore.addOrUpdate(d);
+            drivers.add(d);
+        }
+
+        for (int round = 0; round < 200; round++) {
+            Driver d = drivers.get(random.nextInt(drivers.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> d.setStatus(random.nextBoolean() ? DriverStatus.OFFLINE : DriverStatus.ONLINE);
+                default -> {
+                    d.updateLocation(new Location(28.5 + random.nextDouble() * 0.2, 77.1 + random.nextDouble() * 0.2));
+                    geoStore.addOrUpdate(d);
+                }
+            }
+
+            double lat = 28.5 + random.nextDouble() * 0.2;
+            double lng = 77.1 + random.nextDouble() * 0.2;
+            DriverStatus status = random.nextBoolean() ? DriverStatus.ONLINE : null;
+            assertEquals(
+                    ids(geoStore.nearest(lat, lng, 5, 3_000, status, null)),
+                    ids(geoStore.nearestSnapshot(lat, lng, 5, 3_000, status, null)),
+                    "round " + round);
+        }
+    }
+
+    @Test
+    void snapshotReadersShouldNotBlockOrBreakUnderHotCellWrites() throws Exception {
+        List<Driver> drivers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(28.6100 + i * 1e-6, 77.2100));
+            geoStore.addOrUpdate(d);
+            drivers.add(d);
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            while (!done.get()) {
+                Driver d = drivers.get(random.nextInt(drivers.size()));
+                d.updateLocation(new Location(28.6100 + random.nextDouble() * 1e-3, 77.2100));
+                geoStore.addOrUpdate(d);
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                List<GeoDriver> found = geoStore.nearestSnapshot(28.6105, 77.2100, 10, 1_000, DriverStatus.ONLINE, null);
+                assertEquals(10, found.size());
+                assertEquals(10, Set.copyOf(found).size());
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    @Test
+    void shardedStoreShouldHandDriversOverAndAnswerAcrossShards() throws Exception {
+        GeoDriverStore store = new GeoDriverStore(SpatialIndexType.GEOHASH, 4, 0, Clock.systemUTC());
+        try {
+            List<Driver> drivers = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                Driver d = new Driver();
+                d.updateLocation(new Location(28.4 + (i % 20) * 0.02, 77.0 + (i / 20) * 0.02));
+                drivers.add(d);
+            }
+            store.addOrUpdateAll(drivers);
+
+            // 4 writers, each moving its own drivers ~30 km around, across shard prefixes
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                List<Driver> mine = drivers.subList(w * 100, (w + 1) * 100);
+                Random random = new Random(w);
+                writers.add(new Thread(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        for (Driver d : mine) {
+                            d.updateLocation(new Location(28.4 + random.nextDouble() * 0.3, 77.0 + random.nextDouble() * 0.3));
+                        }
+                        store.addOrUpdateAll(mine);
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread t : writers) {
+                t.join();
+            }
+
+            for (Driver d : drivers) {
+                GeoDriver entry = store.get(d.getId());
+                assertEquals(store.shardOf(d.getCell(), GeoHashUtil.PRECISION), entry.getShard());
+                assertEquals(DriverStatus.ONLINE, entry.getIndexedStatus());
+            }
+            assertEquals(drivers.size(), store.count(DriverStatus.ONLINE, 3, GeoHashUtil.encodeCell(28.55, 77.15, 3)));
+
+            Random random = new Random(9);
+            for (int q = 0; q < 100; q++) {
+                double lat = 28.4 + random.nextDouble() * 0.3;
+                double lng = 77.0 + random.nextDouble() * 0.3;
+                List<String> expected = drivers.stream()
+                        .sorted(Comparator.comparingDouble(d -> GeoHashUtil.distanceMeters(
+                                lat, lng, d.getLocation().lat(), d.getLocation().lng())))
+                        .limit(5)
+                        .map(Driver::getId)
+                        .toList();
+                assertEquals(expected, ids(store.nearest(lat, lng, 5, Double.POSITIVE_INFINITY, null)));
+                assertEquals(expected, ids(store.nearestSnapshot(lat, lng, 5, 40_000, null, null)));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void moveAllShouldSkipDriversLockedElsewhere() throws Exception {
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        geoStore.addOrUpdate(d);
+        int[] slot = {geoStore.slotOf(d.getId())};
+
+        // a ride transition holds the driver
+        Thread holder = new Thread(() -> {
+            try {
+                d.tryLock(1_000);
+            } catch (InterruptedException ignored) {
+                // test ends
+            }
+        });
+        holder.start();
+        holder.join();
+        assertEquals(0, geoStore.moveAll(slot, new double[]{28.70}, new double[]{77.30}, 1));
+        assertEquals(new Location(28.61, 77.21), d.getLocation());
+    }
+
+    @Test
+    void writesAfterCloseShouldFailFastInsteadOfHanging() {
+        GeoDriverStore store = new GeoDriverStore(SpatialIndexType.GEOHASH, 2, 0, Clock.systemUTC());
+        Driver d = new Driver();
+        d.updateLocation(new Location(28.61, 77.21));
+        store.addOrUpdate(d);
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> store.addOrUpdate(d));
+        // status changes are applied inline, never queued
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> d.setStatus(DriverStatus.OFFLINE));
+    }
+
+    private static List<String> ids(List<GeoDriver> drivers) {
+        return drivers.stream().map(GeoDriver::getDriverId).toList();
+    }
 }
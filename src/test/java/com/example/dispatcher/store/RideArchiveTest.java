@@ -0,0 +1,144 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    private RideArchive archive;
+
+    @BeforeEach
+    void open() throws IOException {
+        archive = new RideArchive(dir, 1_024);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        archive.close();
+    }
+
+    @Test
+    void archivedRidesShouldReadBackAcrossSegments() {
+        List<Ride> rides = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Ride ride = new Ride();
+            ride.setPickup(new Location(28.6 + i * 1e-3, 77.2));
+            ride.setDrop(i % 2 == 0 ? new Location(28.7, 77.3 + i * 1e-3) : null);
+            ride.getPingedDrivers().add("D-" + i);
+            ride.getPingedDrivers().add("D-" + (i + 1));
+            ride.getPingedDrivers().expire("D-" + i);
+            ride.setAssignedDriverId(i % 3 == 0 ? "D-" + i : null);
+            if (i % 5 == 0) {
+                ride.markCancelledAfterAccept();
+            }
+            ride.setStatus(i % 2 == 0 ? RideStatus.COMPLETED : RideStatus.CANCELLED);
+            archive.append(ride);
+            rides.add(ride);
+        }
+
+        assertEquals(100, archive.size());
+        assertTrue(archive.segmentCount() > 1);
+        for (int i = 0; i < rides.size(); i++) {
+            Ride ride = rides.get(i);
+            Ride back = archive.find(ride.getId());
+            assertNotNull(back, ride.getId());
+            assertEquals(ride.getId(), back.getId());
+            assertEquals(ride.getStatus(), back.getStatus());
+            assertEquals(ride.getPickup(), back.getPickup());
+            assertEquals(ride.getDrop(), back.getDrop());
+            assertEquals(ride.getAssignedDriverId(), back.getAssignedDriverId());
+            assertEquals(ride.getPingedDrivers(), back.getPingedDrivers());
+            assertTrue(back.getPingedDrivers().isExpired("D-" + i));
+            assertFalse(back.getPingedDrivers().isExpired("D-" + (i + 1)));
+            assertEquals(ride.isCancelledAfterAccept(), back.isCancelledAfterAccept());
+            assertEquals(ride.getRequestedAt(), back.getRequestedAt());
+            assertEquals(ride.getFinishedAt(), back.getFinishedAt());
+        }
+    }
+
+    @Test
+    void unknownRidesShouldNotBeFound() {
+        assertNull(archive.find(new Ride().getId()));
+        assertNull(archive.find("R-999999999"));
+        assertNull(archive.find("not-a-ride"));
+        assertThrows(IllegalArgumentException.class, () -> archive.append(new Ride("custom")));
+    }
+
+    @Test
+    void retentionShouldArchiveOnlyRidesPastTheirGracePeriod() {
+        long[] now = {System.currentTimeMillis()};
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public long millis() {
+                return now[0];
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now[0]);
+            }
+        };
+        InMemoryStore store = new InMemoryStore();
+        RideRetention retention = new RideRetention(store, archive, 60_000, clock);
+
+        Ride live = new Ride();
+        Ride done = new Ride();
+        done.getPingedDrivers().add("D-1");
+        done.setStatus(RideStatus.CANCELLED);
+        store.rides.put(live.getId(), live);
+        store.rides.put(done.getId(), done);
+
+        assertEquals(0, retention.sweep());
+        now[0] += 61_000;
+        assertEquals(1, retention.sweep());
+
+        assertEquals(List.of(live), store.rides.values());
+        assertEquals(RideStatus.CANCELLED, archive.find(done.getId()).getStatus());
+        assertNull(archive.find(live.getId()));
+    }
+
+    @Test
+    void sweepShouldKeepRidesLiveWhenTheArchiveFails() throws IOException {
+        InMemoryStore store = new InMemoryStore();
+        Clock later = Clock.offset(Clock.systemUTC(), Duration.ofMinutes(2));
+        RideRetention retention = new RideRetention(store, archive, 60_000, later);
+
+        Ride done = new Ride();
+        done.setStatus(RideStatus.CANCELLED);
+        store.rides.put(done.getId(), done);
+        // every append now fails with an I/O error
+        archive.close();
+
+        assertEquals(0, retention.sweep());
+        assertSame(done, store.rides.get(done.getId()));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.dispatcher.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SilenceWheelTest {
+
+    @Test
+    void shouldHandSlotsBackOnceTheirBucketIsDue() {
+        SilenceWheel wheel = new SilenceWheel(100, 1_000, 0);
+        wheel.schedule(1, 250);
+        wheel.schedule(2, 900);
+        wheel.schedule(3, 50_000);   // past the horizon: last bucket
+        assertTrue(wheel.isScheduled(1));
+
+        // never before the deadline: 250 rounds up to the 300 ms tick
+        List<Integer> due = new ArrayList<>();
+        wheel.advance(299, due::add);
+        assertTrue(due.isEmpty());
+        wheel.advance(300, due::add);
+        assertEquals(List.of(1), due);
+        assertFalse(wheel.isScheduled(1));
+
+        wheel.advance(900, due::add);
+        assertEquals(List.of(1, 2), due);
+
+        // a long pause drains the whole wheel once
+        wheel.schedule(4, 1_500);
+        wheel.advance(100_000, due::add);
+        assertEquals(List.of(1, 2, 3, 4), due.stream().sorted().toList());
+    }
+
+    @Test
+    void rescheduledSlotsShouldNotComeBackInTheSameAdvance() {
+        SilenceWheel wheel = new SilenceWheel(10, 100, 0);
+        wheel.schedule(7, 10);
+
+        int[] calls = {0};
+        wheel.advance(10, slot -> {
+            calls[0]++;
+            wheel.schedule(slot, 10);   // already due again
+        });
+
+        assertEquals(1, calls[0]);
+        assertTrue(wheel.isScheduled(7));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.RideStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusIndexTest {
+
+    @Test
+    void shouldMoveIdsBetweenStatuses() {
+        StatusIndex<RideStatus> index = new StatusIndex<>(RideStatus.class);
+        index.update(1, RideStatus.REQUESTED);
+        index.update(2, RideStatus.REQUESTED);
+        index.update(1, RideStatus.DRIVER_PINGED);
+        index.update(1, RideStatus.DRIVER_PINGED);
+
+        assertEquals(1, index.count(RideStatus.REQUESTED));
+        assertEquals(1, index.count(RideStatus.DRIVER_PINGED));
+        assertEquals(2, index.size());
+
+        index.remove(1);
+        index.remove(1);
+        assertEquals(0, index.count(RideStatus.DRIVER_PINGED));
+        assertEquals(1, index.size());
+        assertArrayEquals(new long[]{2}, index.page(null, -1, 10).ids());
+    }
+
+    @Test
+    void pagesShouldWalkOneStatusOrAllInIdOrder() {
+        StatusIndex<RideStatus> index = new StatusIndex<>(RideStatus.class);
+        for (long id = 1; id <= 10; id++) {
+            index.update(id, id % 2 == 0 ? RideStatus.ON_TRIP : RideStatus.REQUESTED);
+        }
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), walk(index, null, 3));
+        assertEquals(List.of(2L, 4L, 6L, 8L, 10L), walk(index, RideStatus.ON_TRIP, 2));
+        assertEquals(List.of(), walk(index, RideStatus.COMPLETED, 2));
+
+        StatusIndex.Page last = index.page(null, 7, 3);
+        assertArrayEquals(new long[]{8, 9, 10}, last.ids());
+        assertEquals(-1, last.next());
+    }
+
+    private static List<Long> walk(StatusIndex<RideStatus> index, RideStatus status, int limit) {
+        List<Long> seen = new ArrayList<>();
+        long after = -1;
+        do {
+            StatusIndex.Page page = index.page(status, after, limit);
+            for (long id : page.ids()) {
+                seen.add(id);
+            }
+            after = page.next();
+        } while (after >= 0);
+        return seen;
+    }
+}
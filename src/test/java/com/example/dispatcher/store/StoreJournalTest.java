@@ -0,0 +1,173 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.DriverStatus;
+import com.example.dispatcher.model.GeoDriver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+import com.example.dispatcher.spatial.SpatialIndexType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<GeoDriverStore> geoStores = new ArrayList<>();
+    private final List<StoreJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void close() throws InterruptedException {
+        for (StoreJournal journal : journals) {
+            journal.close();
+        }
+        geoStores.forEach(GeoDriverStore::close);
+    }
+
+    @Test
+    void restartShouldRecoverDriversRidesAndGeoIndex() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        StoreJournal journal = open(store);
+
+        Driver online = driver(store, 28.6100, 77.2000);
+        Driver offline = driver(store, 28.6200, 77.2100);
+        offline.setStatus(DriverStatus.OFFLINE);
+        store.driverChanged(offline);
+
+        Ride ride = new Ride();
+        ride.setPickup(new Location(28.6110, 77.2010));
+        ride.setDrop(new Location(28.7, 77.3));
+        store.rides.put(ride.getNumericId(), ride);
+        store.rideChanged(ride);
+        ride.getPingedDrivers().add(offline.getId());
+        ride.getPingedDrivers().expire(offline.getId());
+        ride.getPingedDrivers().add(online.getId());
+        ride.setStatus(RideStatus.DRIVER_PINGED);
+        store.rideChanged(ride);
+
+        Ride archived = new Ride();
+        store.rides.put(archived.getNumericId(), archived);
+        store.rideChanged(archived);
+        store.rides.remove(archived.getNumericId(), archived);
+        store.rideRemoved(archived);
+
+        journal.sync();
+        journal.close();
+
+        InMemoryStore recovered = new InMemoryStore();
+        StoreJournal reopened = open(recovered);
+        GeoDriverStore geo = geoStores.get(geoStores.size() - 1);
+
+        assertEquals(2, reopened.recoveredDrivers());
+        assertEquals(1, reopened.recoveredRides());
+
+        Driver d1 = recovered.drivers.get(online.getId());
+        assertEquals(online.getLocation(), d1.getLocation());
+        assertEquals(DriverStatus.ONLINE, d1.getStatus());
+        assertEquals(DriverStatus.OFFLINE, recovered.drivers.get(offline.getId()).getStatus());
+
+        List<GeoDriver> nearest = geo.nearest(28.6110, 77.2010, 5, 5_000, DriverStatus.ONLINE, null);
+        assertEquals(List.of(d1), nearest.stream().map(GeoDriver::getDriver).toList());
+
+        Ride back = recovered.rides.get(ride.getId());
+        assertEquals(RideStatus.DRIVER_PINGED, back.getStatus());
+        assertEquals(ride.getPickup(), back.getPickup());
+        assertEquals(ride.getDrop(), back.getDrop());
+        assertEquals(ride.getPingedDrivers(), back.getPingedDrivers());
+        assertTrue(back.getPingedDrivers().isExpired(offline.getId()));
+        assertFalse(back.getPingedDrivers().isExpired(online.getId()));
+        assertNull(recovered.rides.get(archived.getId()));
+        // the driver → rides index is rebuilt from the recovered rides
+        assertArrayEquals(new long[]{ride.getNumericId()},
+                recovered.driverRides.page(offline.getNumericId(), Long.MAX_VALUE, 10).rideIds());
+
+        // ids keep counting past what was recovered
+        assertTrue(new Ride().getNumericId() > ride.getNumericId());
+        assertTrue(new Driver().getNumericId() > offline.getNumericId());
+    }
+
+    @Test
+    void logTailShouldReplayOverSnapshotUpToTornRecord() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        StoreJournal journal = open(store);
+        Driver driver = driver(store, 28.61, 77.20);
+        journal.sync();
+        journal.close();
+
+        // reopening snapshots the recovered state and starts a new segment
+        InMemoryStore second = new InMemoryStore();
+        StoreJournal reopened = open(second);
+        Driver again = second.drivers.get(driver.getId());
+        again.setStatus(DriverStatus.OFFLINE);
+        second.driverChanged(again);
+        Ride ride = new Ride();
+        second.rides.put(ride.getNumericId(), ride);
+        second.rideChanged(ride);
+        reopened.sync();
+        reopened.close();
+
+        assertEquals(1, count("snapshot-"));
+        assertEquals(1, count("wal-"));
+        try (Stream<Path> files = Files.list(dir)) {
+            Path wal = files.filter(f -> f.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+            // a write cut short by a crash
+            Files.write(wal, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        InMemoryStore third = new InMemoryStore();
+        open(third);
+        assertEquals(DriverStatus.OFFLINE, third.drivers.get(driver.getId()).getStatus());
+        assertEquals(RideStatus.REQUESTED, third.rides.get(ride.getId()).getStatus());
+    }
+
+    @Test
+    void recordShouldHoldTheStateAtReportTime() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        StoreJournal journal = open(store);
+        Driver driver = driver(store, 28.61, 77.20);
+        // changed after the report, never reported: not part of the record
+        driver.setStatus(DriverStatus.OFFLINE);
+        journal.sync();
+        journal.close();
+
+        InMemoryStore recovered = new InMemoryStore();
+        open(recovered);
+        assertEquals(DriverStatus.ONLINE, recovered.drivers.get(driver.getId()).getStatus());
+    }
+
+    private StoreJournal open(InMemoryStore store) throws IOException {
+        GeoDriverStore geo = new GeoDriverStore(SpatialIndexType.GEOHASH, 0, Clock.systemUTC());
+        geoStores.add(geo);
+        StoreJournal journal = new StoreJournal(store, geo, dir, 3_600_000, true, 1024, Clock.systemUTC());
+        journals.add(journal);
+        return journal;
+    }
+
+    private static Driver driver(InMemoryStore store, double lat, double lng) {
+        Driver driver = new Driver();
+        driver.updateLocation(new Location(lat, lng));
+        store.drivers.put(driver.getNumericId(), driver);
+        store.driverChanged(driver);
+        return driver;
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.dispatcher.store;
+
+import com.example.dispatcher.geo.GeoHashUtil;
+import com.example.dispatcher.model.AcceptTimeStats;
+import com.example.dispatcher.model.HourlyRideCount;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.model.Ride;
+import com.example.dispatcher.model.RideStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TripHistoryTest {
+
+    // B's geohash sorts before A's
+    private static final Location A = new Location(28.61, 77.21);
+    private static final Location B = new Location(12.97, 77.59);
+    private static final long EIGHT = Instant.parse("2026-10-17T08:00:00Z").toEpochMilli();
+    private static final long MIN = 60_000;
+    private static final long HOUR = 60 * MIN;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldAggregateAcrossSealedAndOpenBlocksAndAfterReopen() throws IOException {
+        TripHistory history = new TripHistory(dir, 3, 0, Clock.systemUTC());
+        history.record(ride(A, EIGHT + 10 * MIN, 10_000, RideStatus.COMPLETED));
+        history.record(ride(A, EIGHT + 20 * MIN, 30_000, RideStatus.COMPLETED));
+        history.record(ride(A, EIGHT + 30 * MIN, -1, RideStatus.CANCELLED));
+        history.record(ride(B, EIGHT + 40 * MIN, 5_000, RideStatus.COMPLETED));
+        history.record(ride(A, EIGHT + 65 * MIN, 20_000, RideStatus.COMPLETED));
+        // finished the next day: starts a new partition
+        history.record(ride(B, EIGHT + 20 * HOUR, 1_000, RideStatus.COMPLETED));
+
+        assertAggregates(history);
+
+        history.close();
+        assertTrue(history.segmentCount() >= 2);
+        TripHistory reopened = new TripHistory(dir, 3, 0, Clock.systemUTC());
+        assertEquals(history.segmentCount(), reopened.segmentCount());
+        assertAggregates(reopened);
+        reopened.close();
+    }
+
+    @Test
+    void shouldRejectBadQueries() throws IOException {
+        TripHistory history = new TripHistory(dir, 3, 0, Clock.systemUTC());
+        assertThrows(IllegalArgumentException.class, () -> history.ridesPerCellHour(EIGHT, EIGHT, null, 5));
+        assertThrows(IllegalArgumentException.class, () -> history.acceptTimeByCell(EIGHT, EIGHT + HOUR, 7));
+        assertTrue(history.ridesPerCellHour(EIGHT, EIGHT + HOUR, null, 5).isEmpty());
+        history.close();
+    }
+
+    private static void assertAggregates(TripHistory history) {
+        String a = GeoHashUtil.encode(A.lat(), A.lng());
+        String b = GeoHashUtil.encode(B.lat(), B.lng());
+        Instant eight = Instant.ofEpochMilli(EIGHT);
+        Instant nine = eight.plusMillis(HOUR);
+
+        assertEquals(List.of(
+                        new HourlyRideCount(b, eight, 1),
+                        new HourlyRideCount(a, eight, 2),
+                        new HourlyRideCount(a, nine, 1)),
+                history.ridesPerCellHour(EIGHT, EIGHT + 2 * HOUR, RideStatus.COMPLETED, 6));
+        // every status, coarser cells, one hour only
+        assertEquals(List.of(new HourlyRideCount(b.substring(0, 4), eight, 1),
+                        new HourlyRideCount(a.substring(0, 4), eight, 3)),
+                history.ridesPerCellHour(EIGHT, EIGHT + HOUR, null, 4));
+
+        assertEquals(List.of(
+                        new AcceptTimeStats(b, 1, 5_000, 5_000),
+                        new AcceptTimeStats(a, 3, 20_000, 30_000)),
+                history.acceptTimeByCell(EIGHT, EIGHT + 2 * HOUR, 6));
+    }
+
+    private static Ride ride(Location pickup, long requestedAt, long acceptDelay, RideStatus status) {
+        Ride ride = new Ride();
+        ride.setPickup(pickup);
+        ride.setDrop(B);
+        ride.restoreTimes(requestedAt, acceptDelay < 0 ? 0 : requestedAt + acceptDelay, requestedAt + 30 * MIN);
+        ride.setStatus(status);
+        return ride;
+    }
+}
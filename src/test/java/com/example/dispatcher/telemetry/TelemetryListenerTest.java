@@ -0,0 +1,130 @@
+package com.example.dispatcher.telemetry;
+
+import com.example.dispatcher.model.Driver;
+import com.example.dispatcher.model.Location;
+import com.example.dispatcher.store.GeoDriverStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryListenerTest {
+
+    private GeoDriverStore geoStore;
+    private TelemetryListener listener;
+    private final List<Driver> drivers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        geoStore = new GeoDriverStore();
+        for (int i = 0; i < 1_000; i++) {
+            Driver d = new Driver();
+            d.updateLocation(new Location(28.61, 77.21));
+            geoStore.addOrUpdate(d);
+            drivers.add(d);
+        }
+        listener = new TelemetryListener(geoStore, 0);
+        listener.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        listener.stop();
+    }
+
+    @Test
+    void shouldApplyFramesFromALocalClient() throws Exception {
+        int rounds = 200;
+        int frames = rounds * drivers.size();
+        ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+
+        long start = System.nanoTime();
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", listener.getPort()))) {
+            for (int round = 0; round < rounds; round++) {
+                for (Driver d : drivers) {
+                    if (out.remaining() < TelemetryListener.FRAME_BYTES) {
+                        drain(client, out);
+                    }
+                    int slot = geoStore.slotOf(d.getId());
+                    out.putInt(slot)
+                            .putInt(latE7(slot, round))
+                            .putInt(772_100_000 + round * 100)
+                            .putLong(round);
+                }
+            }
+            drain(client, out);
+            awaitProcessed(frames);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("telemetry: %d frames in %.3f s (%.0f frames/s)%n", frames, seconds, frames / seconds);
+
+        assertEquals(frames, listener.framesApplied());
+        for (Driver d : drivers) {
+            int slot = geoStore.slotOf(d.getId());
+            assertEquals(new Location(latE7(slot, rounds - 1) / 1e7, (772_100_000 + (rounds - 1) * 100) / 1e7),
+                    d.getLocation());
+        }
+    }
+
+    @Test
+    void shouldDropBadStaleAndFutureFramesAndReassembleSplitOnes() throws Exception {
+        Driver d = drivers.get(0);
+        int slot = geoStore.slotOf(d.getId());
+
+        ByteBuffer out = ByteBuffer.allocate(6 * TelemetryListener.FRAME_BYTES);
+        out.putInt(slot).putInt(287_000_000).putInt(773_000_000).putLong(10);
+        out.putInt(99_999).putInt(287_000_000).putInt(773_000_000).putLong(11);   // unknown slot
+        out.putInt(slot).putInt(950_000_000).putInt(773_000_000).putLong(12);     // lat > 90
+        out.putInt(slot).putInt(286_000_000).putInt(772_000_000).putLong(5);      // older
+        out.putInt(slot).putInt(286_000_000).putInt(772_000_000).putLong(Long.MAX_VALUE); // far future
+        out.putInt(slot).putInt(286_500_000).putInt(772_500_000).putLong(20);
+        out.flip();
+
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", listener.getPort()))) {
+            // the last frame straddles two writes
+            ByteBuffer head = out.duplicate().limit(out.limit() - 7);
+            client.write(head);
+            Thread.sleep(50);
+            client.write(out.position(out.limit() - 7));
+            awaitProcessed(6);
+        }
+
+        assertEquals(2, listener.framesApplied());
+        assertEquals(4, listener.framesDropped());
+        assertEquals(new Location(28.65, 77.25), d.getLocation());
+        assertEquals(1, geoStore.nearest(28.65, 77.25, 1, 10, null).size());
+    }
+
+    private static int latE7(int slot, int round) {
+        return 280_000_000 + slot * 10_000 + round;
+    }
+
+    private static void drain(SocketChannel client, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            client.write(out);
+        }
+        out.clear();
+    }
+
+    private void awaitProcessed(long frames) throws InterruptedException {
+        await(() -> listener.framesApplied() + listener.framesDropped() >= frames);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
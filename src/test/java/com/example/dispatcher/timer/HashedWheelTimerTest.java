@@ -0,0 +1,88 @@
+package com.example.dispatcher.timer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    private final long[] nanos = {0};
+    private final List<String> fired = new ArrayList<>();
+    // 1 ms ticks, tasks run inline
+    private final HashedWheelTimer wheel = new HashedWheelTimer(1, Runnable::run, () -> nanos[0]);
+
+    @Test
+    void timersShouldFireOnTimeAcrossEveryLevel() {
+        // level 0, 1, 2 and 3 deadlines (256, 65 536, 16 777 216 ticks)
+        long[] delays = {5, 300, 70_000, 20_000_000};
+        for (long delay : delays) {
+            wheel.schedule(delay, () -> fired.add("t" + delay));
+        }
+        assertEquals(4, wheel.pending());
+
+        for (long delay : delays) {
+            advanceTo(delay - 1);
+            assertFalse(fired.contains("t" + delay), "early: " + delay);
+            advanceTo(delay);
+            assertEquals("t" + delay, fired.get(fired.size() - 1));
+        }
+        assertEquals(List.of("t5", "t300", "t70000", "t20000000"), fired);
+        assertEquals(0, wheel.pending());
+    }
+
+    @Test
+    void cancelledAndStaleHandlesShouldNotFire() {
+        long a = wheel.schedule(10, () -> fired.add("a"));
+        long b = wheel.schedule(10, () -> fired.add("b"));
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        advanceTo(10);
+        assertEquals(List.of("b"), fired);
+        assertFalse(wheel.cancel(b));
+
+        // the freed slot is reused under a new generation
+        long c = wheel.schedule(10, () -> fired.add("c"));
+        assertNotEquals(a, c);
+        assertFalse(wheel.cancel(a));
+        assertNotEquals(HashedWheelTimer.NO_TIMER, c);
+        advanceTo(20);
+        assertEquals(List.of("b", "c"), fired);
+    }
+
+    @Test
+    void timersScheduledMidRevolutionShouldKeepTheirDelay() {
+        advanceTo(250);
+        // crosses the level-0 revolution at 256
+        wheel.schedule(10, () -> fired.add("x"));
+        advanceTo(259);
+        assertTrue(fired.isEmpty());
+        advanceTo(260);
+        assertEquals(List.of("x"), fired);
+    }
+
+    @Test
+    void timerManagerShouldFireAndForgetTimers() throws InterruptedException {
+        TimerManager timers = new TimerManager();
+        CountDownLatch done = new CountDownLatch(1);
+        long kept = timers.schedule("R-1", "ARRIVING", 0, done::countDown);
+        long cleared = timers.schedule("R-1", "ON_TRIP", 60, () -> fail("cleared timer fired"));
+        timers.clearTimer(cleared);
+        timers.clearTimer(HashedWheelTimer.NO_TIMER);
+        timers.clearTimer(-1L);
+
+        assertNotEquals(HashedWheelTimer.NO_TIMER, kept);
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(0, timers.pending());
+        timers.shutdown();
+    }
+
+    private void advanceTo(long ms) {
+        nanos[0] = TimeUnit.MILLISECONDS.toNanos(ms);
+        wheel.advance();
+    }
+}